@@ -4,6 +4,7 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 import pharmacy.pharmacy.entity.ERole;
 import pharmacy.pharmacy.entity.UserRole;
+import pharmacy.pharmacy.dao.OrderRepository;
 import pharmacy.pharmacy.dao.UserRoleRepository;
 
 import java.util.Arrays;
@@ -15,9 +16,11 @@ import java.util.stream.Collectors;
 public class DatabaseInitializer implements CommandLineRunner {
 
     private final UserRoleRepository roleRepository;
+    private final OrderRepository orderRepository;
 
-    public DatabaseInitializer(UserRoleRepository roleRepository) {
+    public DatabaseInitializer(UserRoleRepository roleRepository, OrderRepository orderRepository) {
         this.roleRepository = roleRepository;
+        this.orderRepository = orderRepository;
     }
 
     @Override
@@ -41,5 +44,8 @@ public class DatabaseInitializer implements CommandLineRunner {
         if (!rolesToCreate.isEmpty()) {
             roleRepository.saveAll(rolesToCreate);
         }
+
+        // Orders from before subtotals were maintained incrementally; a no-op once they are filled in
+        orderRepository.backfillSubtotals();
     }
 }
\ No newline at end of file
@@ -38,7 +38,9 @@ public class OpenApiConfig {
                 new Tag().name("Product Alternatives Management").extensions(java.util.Map.of("x-order", 13)),
                 new Tag().name("Drug Interaction Management").extensions(java.util.Map.of("x-order", 14)),
                 new Tag().name("Employee Management").extensions(java.util.Map.of("x-order", 15)),
-                new Tag().name("Customer Management").extensions(java.util.Map.of("x-order", 16))
+                new Tag().name("Customer Management").extensions(java.util.Map.of("x-order", 16)),
+                new Tag().name("Cart Management").extensions(java.util.Map.of("x-order", 19)),
+                new Tag().name("Reports").extensions(java.util.Map.of("x-order", 20))
         );
 
         return new OpenAPI()
@@ -0,0 +1,11 @@
+package pharmacy.pharmacy.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Enables @Scheduled background jobs (index refreshes, housekeeping). They share the pool sized by
+// spring.task.scheduling.pool.size, so a long job such as the order archive does not stall the others.
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,24 @@
+package pharmacy.pharmacy.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// Small fixed pool for image resizing; the bounded queue rejects work instead of piling up decoded images
+@Configuration
+public class ThumbnailExecutorConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor thumbnailExecutor(
+            @Value("${pharmacy.uploads.thumbnail-threads:2}") int threads,
+            @Value("${pharmacy.uploads.thumbnail-queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("thumbnail-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -8,12 +8,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.sentry.Sentry;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import pharmacy.pharmacy.dto.AlertDTO;
+import pharmacy.pharmacy.enums.JsonStreamFormat;
 import pharmacy.pharmacy.exception.GlobalException;
 import pharmacy.pharmacy.service.AlertService;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.List;
 
@@ -28,6 +31,19 @@ public class AlertController {
         this.alertService = alertService;
     }
 
+    @Operation(summary = "Stream all alerts",
+            description = "Write every record as it is read, as NDJSON (one object per line) or as one JSON array")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Records streamed", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Unsupported stream format", content = @Content)
+    })
+    @GetMapping(params = "stream")
+    public void streamAllAlerts(@Parameter(description = "ndjson or json") @RequestParam String stream,
+                                HttpServletResponse response) throws IOException {
+        JsonStreamFormat format = JsonStreams.begin(stream, response);
+        alertService.streamAllAlerts(format, response.getOutputStream());
+    }
+
     @Operation(summary = "Get all alerts", description = "Retrieve a list of all alerts")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list",
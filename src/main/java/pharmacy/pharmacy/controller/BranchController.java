@@ -10,6 +10,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import io.sentry.Sentry;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import pharmacy.pharmacy.dto.BranchDTO;
 import pharmacy.pharmacy.exception.GlobalException;
 import pharmacy.pharmacy.service.BranchService;
@@ -32,13 +33,19 @@ public class BranchController {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = BranchDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match",
+                    content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @GetMapping
-    public ResponseEntity<List<BranchDTO>> getAllBranches() {
+    public ResponseEntity<List<BranchDTO>> getAllBranches(WebRequest webRequest) {
         try {
-            return ResponseEntity.ok(branchService.getAllBranches());
+            String etag = branchService.getBranchesEtag();
+            if (webRequest.checkNotModified(etag)) {
+                return ConditionalResponses.notModified(etag);
+            }
+            return ConditionalResponses.ok(etag, branchService.getAllBranches());
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error retrieving branches", e);
@@ -50,6 +57,8 @@ public class BranchController {
             @ApiResponse(responseCode = "200", description = "Branch found",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = BranchDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match",
+                    content = @Content),
             @ApiResponse(responseCode = "404", description = "Branch not found",
                     content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
@@ -57,9 +66,14 @@ public class BranchController {
     })
     @GetMapping("/{id}")
     public ResponseEntity<BranchDTO> getBranchById(
-            @Parameter(description = "ID of the branch to be retrieved") @PathVariable int id) {
+            @Parameter(description = "ID of the branch to be retrieved") @PathVariable int id,
+            WebRequest webRequest) {
         try {
-            return ResponseEntity.ok(branchService.getBranchById(id));
+            String etag = branchService.getBranchEtag(id);
+            if (webRequest.checkNotModified(etag)) {
+                return ConditionalResponses.notModified(etag);
+            }
+            return ConditionalResponses.ok(etag, branchService.getBranchById(id));
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error retrieving branch with id: " + id, e);
@@ -0,0 +1,134 @@
+package pharmacy.pharmacy.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pharmacy.pharmacy.dto.OrderDTO;
+import pharmacy.pharmacy.dto.cart.CartCreateRequest;
+import pharmacy.pharmacy.dto.cart.CartItemRequest;
+import pharmacy.pharmacy.dto.cart.CartResponse;
+import pharmacy.pharmacy.enums.PaymentMethod;
+import pharmacy.pharmacy.service.CartService;
+
+@RestController
+@RequestMapping("/api/carts")
+@Tag(name = "Cart Management", description = "In-memory carts that become orders at checkout")
+public class CartController {
+
+    private final CartService cartService;
+
+    public CartController(CartService cartService) {
+        this.cartService = cartService;
+    }
+
+    @Operation(summary = "Create a cart", description = "Start an empty cart; it expires after a period without use")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cart created",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CartResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input", content = @Content)
+    })
+    @PostMapping
+    public ResponseEntity<CartResponse> createCart(
+            @Parameter(description = "Branch, customer and order-level amounts") @Valid @RequestBody
+            CartCreateRequest request) {
+        return ResponseEntity.ok(cartService.createCart(request));
+    }
+
+    @Operation(summary = "Get a cart", description = "Lines and running totals of a cart")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cart found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CartResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Cart not found or expired", content = @Content)
+    })
+    @GetMapping("/{cartId}")
+    public ResponseEntity<CartResponse> getCart(
+            @Parameter(description = "ID of the cart") @PathVariable String cartId) {
+        return ResponseEntity.ok(cartService.getCart(cartId));
+    }
+
+    @Operation(summary = "Add an item", description = "Add a product by barcode or ID; adding it again raises the quantity")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Item added",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CartResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Cart or product not found", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Cart already checked out", content = @Content)
+    })
+    @PostMapping("/{cartId}/items")
+    public ResponseEntity<CartResponse> addItem(
+            @Parameter(description = "ID of the cart") @PathVariable String cartId,
+            @Parameter(description = "Product and quantity") @Valid @RequestBody CartItemRequest request) {
+        return ResponseEntity.ok(cartService.addItem(cartId, request));
+    }
+
+    @Operation(summary = "Change an item's quantity", description = "Set the quantity of a product in the cart")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Quantity updated",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CartResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid quantity", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Cart or item not found", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Cart already checked out", content = @Content)
+    })
+    @PutMapping("/{cartId}/items/{productId}")
+    public ResponseEntity<CartResponse> updateItemQuantity(
+            @Parameter(description = "ID of the cart") @PathVariable String cartId,
+            @Parameter(description = "ID of the product") @PathVariable Integer productId,
+            @Parameter(description = "New quantity") @RequestParam int quantity) {
+        return ResponseEntity.ok(cartService.updateItemQuantity(cartId, productId, quantity));
+    }
+
+    @Operation(summary = "Remove an item", description = "Remove a product from the cart")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Item removed",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CartResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Cart or item not found", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Cart already checked out", content = @Content)
+    })
+    @DeleteMapping("/{cartId}/items/{productId}")
+    public ResponseEntity<CartResponse> removeItem(
+            @Parameter(description = "ID of the cart") @PathVariable String cartId,
+            @Parameter(description = "ID of the product") @PathVariable Integer productId) {
+        return ResponseEntity.ok(cartService.removeItem(cartId, productId));
+    }
+
+    @Operation(summary = "Discard a cart", description = "Drop a cart without creating an order")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cart discarded"),
+            @ApiResponse(responseCode = "404", description = "Cart not found or expired", content = @Content)
+    })
+    @DeleteMapping("/{cartId}")
+    public ResponseEntity<Void> deleteCart(
+            @Parameter(description = "ID of the cart") @PathVariable String cartId) {
+        cartService.deleteCart(cartId);
+        return ResponseEntity.ok().build();
+    }
+
+    @Operation(summary = "Checkout a cart",
+            description = "Create a pending order from the cart; retrying returns the same order")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Order created",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = OrderDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Cart is empty", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Cart not found or expired", content = @Content),
+            @ApiResponse(responseCode = "409", description = "A product is out of stock", content = @Content)
+    })
+    @PostMapping("/{cartId}/checkout")
+    public ResponseEntity<OrderDTO> checkout(
+            @Parameter(description = "ID of the cart") @PathVariable String cartId,
+            @Parameter(description = "Payment method") @RequestParam PaymentMethod paymentMethod) {
+        return ResponseEntity.ok(cartService.checkout(cartId, paymentMethod));
+    }
+}
@@ -10,13 +10,18 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import io.sentry.Sentry;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import pharmacy.pharmacy.dto.CategoryDTO;
+import pharmacy.pharmacy.dto.category.CatalogFacetsResponse;
 import pharmacy.pharmacy.dto.category.CategoryCreateDTO;
 import pharmacy.pharmacy.dto.category.CategoryResponse;
+import pharmacy.pharmacy.dto.category.CategoryTreeNode;
 import pharmacy.pharmacy.entity.Category;
 import pharmacy.pharmacy.exception.GlobalException;
+import pharmacy.pharmacy.service.CatalogFacetService;
 import pharmacy.pharmacy.service.CategoryService;
+import pharmacy.pharmacy.service.CategoryTreeService;
 
 import java.util.List;
 
@@ -27,8 +32,15 @@ public class CategoryController {
 
     private final CategoryService categoryService;
 
-    public CategoryController(CategoryService categoryService) {
+    private final CatalogFacetService catalogFacetService;
+
+    private final CategoryTreeService categoryTreeService;
+
+    public CategoryController(CategoryService categoryService, CatalogFacetService catalogFacetService,
+                              CategoryTreeService categoryTreeService) {
         this.categoryService = categoryService;
+        this.catalogFacetService = catalogFacetService;
+        this.categoryTreeService = categoryTreeService;
     }
 
     @Operation(summary = "Get all categories", description = "Retrieve a list of all product categories")
@@ -36,13 +48,19 @@ public class CategoryController {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = Category.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match",
+                    content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @GetMapping
-    public ResponseEntity<List<CategoryResponse>> getAllCategories() {
+    public ResponseEntity<List<CategoryResponse>> getAllCategories(WebRequest webRequest) {
         try {
-            return ResponseEntity.ok(categoryService.getAllCategories());
+            String etag = categoryService.getCategoriesEtag();
+            if (webRequest.checkNotModified(etag)) {
+                return ConditionalResponses.notModified(etag);
+            }
+            return ConditionalResponses.ok(etag, categoryService.getAllCategories());
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error retrieving categories", e);
@@ -54,6 +72,8 @@ public class CategoryController {
             @ApiResponse(responseCode = "200", description = "Category found",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = Category.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match",
+                    content = @Content),
             @ApiResponse(responseCode = "404", description = "Category not found",
                     content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
@@ -61,8 +81,13 @@ public class CategoryController {
     })
     @GetMapping("/{id}")
     public ResponseEntity<CategoryResponse> getCategoryById(
-            @Parameter(description = "ID of the category to be retrieved") @PathVariable Integer id) {
-        return ResponseEntity.ok(new CategoryResponse(categoryService.getCategoryById(id)));
+            @Parameter(description = "ID of the category to be retrieved") @PathVariable Integer id,
+            WebRequest webRequest) {
+        String etag = categoryService.getCategoryEtag(id);
+        if (webRequest.checkNotModified(etag)) {
+            return ConditionalResponses.notModified(etag);
+        }
+        return ConditionalResponses.ok(etag, new CategoryResponse(categoryService.getCategoryById(id)));
     }
 
     @Operation(summary = "Create a new category", description = "Add a new product category")
@@ -102,18 +127,20 @@ public class CategoryController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Category updated successfully",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Category.class))),
+                            schema = @Schema(implementation = CategoryResponse.class))),
             @ApiResponse(responseCode = "404", description = "Category not found",
                     content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @PutMapping("/{id}")
-    public ResponseEntity<Category> updateCategory(
+    public ResponseEntity<CategoryResponse> updateCategory(
             @Parameter(description = "ID of the category to be updated") @PathVariable Integer id,
             @Parameter(description = "Updated category object") @RequestBody Category category) {
         try {
-            return ResponseEntity.ok(categoryService.updateCategory(id, category));
+            return ResponseEntity.ok(new CategoryResponse(categoryService.updateCategory(id, category)));
+        } catch (GlobalException e) {
+            throw e;
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error updating category with id: " + id, e);
@@ -140,16 +167,76 @@ public class CategoryController {
         }
     }
 
+    @Operation(summary = "Get category tree", description = "The whole category hierarchy in one response")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved tree",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CategoryTreeNode.class)))
+    })
+    @GetMapping("/tree")
+    public ResponseEntity<List<CategoryTreeNode>> getCategoryTree() {
+        return ResponseEntity.ok(categoryTreeService.getTree());
+    }
+
+    @Operation(summary = "Get category ancestors", description = "Path from the root category down to the direct parent")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved ancestors",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CategoryResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Category not found",
+                    content = @Content)
+    })
+    @GetMapping("/{id}/ancestors")
+    public ResponseEntity<List<CategoryResponse>> getAncestors(
+            @Parameter(description = "ID of the category") @PathVariable Integer id) {
+        return ResponseEntity.ok(categoryTreeService.getAncestors(id));
+    }
+
+    @Operation(summary = "Get category descendants", description = "All subcategories at any depth, nearest first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved descendants",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CategoryResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Category not found",
+                    content = @Content)
+    })
+    @GetMapping("/{id}/descendants")
+    public ResponseEntity<List<CategoryResponse>> getDescendants(
+            @Parameter(description = "ID of the category") @PathVariable Integer id) {
+        return ResponseEntity.ok(categoryTreeService.getDescendants(id));
+    }
+
+    @Operation(summary = "Catalog facets",
+            description = "Product counts per category (including subcategories), prescription flag, stock status " +
+                    "and price range. Each facet applies every other selected filter but not its own.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved facets",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CatalogFacetsResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Unknown stock status or price bucket",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Category not found",
+                    content = @Content)
+    })
+    @GetMapping("/facets")
+    public ResponseEntity<CatalogFacetsResponse> getCatalogFacets(
+            @Parameter(description = "Limit to this category and its subcategories") @RequestParam(required = false) Integer categoryId,
+            @Parameter(description = "Filter on the prescription flag") @RequestParam(required = false) Boolean prescriptionRequired,
+            @Parameter(description = "IN_STOCK, LOW_STOCK or OUT_OF_STOCK") @RequestParam(required = false) String stockStatus,
+            @Parameter(description = "Price bucket number from priceRanges") @RequestParam(required = false) Integer priceBucket) {
+        return ResponseEntity.ok(catalogFacetService.getFacets(categoryId, prescriptionRequired, stockStatus, priceBucket));
+    }
+
     @Operation(summary = "Get child categories", description = "Retrieve all child categories of a parent category")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved child categories",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Category.class))),
+                            schema = @Schema(implementation = CategoryResponse.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @GetMapping("/{parentId}/children")
-    public ResponseEntity<List<Category>> getChildCategories(
+    public ResponseEntity<List<CategoryResponse>> getChildCategories(
             @Parameter(description = "ID of the parent category") @PathVariable Integer parentId) {
         try {
             return ResponseEntity.ok(categoryService.getChildCategories(parentId));
@@ -163,12 +250,12 @@ public class CategoryController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved categories",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Category.class))),
+                            schema = @Schema(implementation = CategoryResponse.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @GetMapping("/search")
-    public ResponseEntity<List<Category>> searchCategories(
+    public ResponseEntity<List<CategoryResponse>> searchCategories(
             @Parameter(description = "Search term for category name") @RequestParam String name) {
         try {
             return ResponseEntity.ok(categoryService.searchCategories(name));
@@ -8,12 +8,16 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.sentry.Sentry;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import pharmacy.pharmacy.dto.InventoryAvailabilityDTO;
 import pharmacy.pharmacy.dto.InventoryDTO;
+import pharmacy.pharmacy.enums.JsonStreamFormat;
 import pharmacy.pharmacy.exception.GlobalException;
 import pharmacy.pharmacy.service.InventoryService;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -27,6 +31,19 @@ public class InventoryController {
         this.inventoryService = inventoryService;
     }
 
+    @Operation(summary = "Stream all inventory records",
+            description = "Write every record as it is read, as NDJSON (one object per line) or as one JSON array")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Records streamed", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Unsupported stream format", content = @Content)
+    })
+    @GetMapping(params = "stream")
+    public void streamAllInventory(@Parameter(description = "ndjson or json") @RequestParam String stream,
+                                   HttpServletResponse response) throws IOException {
+        JsonStreamFormat format = JsonStreams.begin(stream, response);
+        inventoryService.streamAllInventory(format, response.getOutputStream());
+    }
+
     @Operation(summary = "Get all inventory records", description = "Retrieve a list of all inventory records")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list",
@@ -206,4 +223,18 @@ public class InventoryController {
             throw new GlobalException("Error retrieving low stock items", e);
         }
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Get available-to-sell stock",
+            description = "Stock level at the branch less the quantity held for open carts, from memory")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Availability returned",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = InventoryAvailabilityDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Branch or product missing", content = @Content)
+    })
+    @GetMapping("/availability")
+    public ResponseEntity<InventoryAvailabilityDTO> getAvailability(@RequestParam Integer branchId,
+                                                                    @RequestParam Integer productId) {
+        return ResponseEntity.ok(inventoryService.getAvailability(branchId, productId));
+    }
+}
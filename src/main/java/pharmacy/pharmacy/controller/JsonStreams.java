@@ -0,0 +1,29 @@
+package pharmacy.pharmacy.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import pharmacy.pharmacy.enums.JsonStreamFormat;
+import pharmacy.pharmacy.exception.GlobalException;
+
+/**
+ * Shared setup for the {@code ?stream=} variants of the list endpoints, which write rows straight to the
+ * response instead of building the whole list first.
+ */
+final class JsonStreams {
+
+    private JsonStreams() {
+    }
+
+    // Must be called before anything is written, so a bad format still gets a normal 400 body
+    static JsonStreamFormat begin(String stream, HttpServletResponse response) {
+        JsonStreamFormat format;
+        try {
+            format = JsonStreamFormat.fromString(stream);
+        } catch (IllegalArgumentException e) {
+            throw new GlobalException("Unsupported stream format: " + stream, HttpStatus.BAD_REQUEST, "INVALID_FORMAT");
+        }
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        return format;
+    }
+}
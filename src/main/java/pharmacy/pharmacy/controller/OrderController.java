@@ -8,16 +8,26 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.sentry.Sentry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import pharmacy.pharmacy.dto.OrderDTO;
+import pharmacy.pharmacy.dto.OrderHistoryPageResponse;
 import pharmacy.pharmacy.dto.OrderItemDTO;
+import pharmacy.pharmacy.dto.order.OrderStatusBulkRequest;
+import pharmacy.pharmacy.dto.order.OrderStatusBulkResponse;
+import pharmacy.pharmacy.enums.JsonStreamFormat;
 import pharmacy.pharmacy.enums.OrderStatus;
 import pharmacy.pharmacy.enums.PaymentMethod;
 import pharmacy.pharmacy.enums.PaymentStatus;
 import pharmacy.pharmacy.exception.GlobalException;
+import pharmacy.pharmacy.exception.ResourceNotFoundException;
+import pharmacy.pharmacy.service.IdempotencyService;
 import pharmacy.pharmacy.service.OrderService;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -25,10 +35,27 @@ import java.util.List;
 @Tag(name = "Order Management", description = "Endpoints for managing pharmacy orders")
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyService idempotencyService) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
+    }
+
+    @Operation(summary = "Stream all orders",
+            description = "Write every record as it is read, as NDJSON (one object per line) or as one JSON array")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Records streamed", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Unsupported stream format", content = @Content)
+    })
+    @GetMapping(params = "stream")
+    public void streamAllOrders(@Parameter(description = "ndjson or json") @RequestParam String stream,
+                                HttpServletResponse response) throws IOException {
+        JsonStreamFormat format = JsonStreams.begin(stream, response);
+        orderService.streamAllOrders(format, response.getOutputStream());
     }
 
     @Operation(summary = "Get all orders", description = "Retrieve a list of all orders")
@@ -44,6 +71,30 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getAllOrders());
     }
 
+    @Operation(summary = "Browse order history page by page",
+            description = "Orders of a customer or a branch, newest first. Pass the returned nextCursor back "
+                    + "to fetch the next page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved page",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = OrderHistoryPageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Missing user or branch, invalid date range or cursor",
+                    content = @Content)
+    })
+    @GetMapping("/history")
+    public ResponseEntity<OrderHistoryPageResponse> getOrderHistory(
+            @Parameter(description = "Orders of this customer") @RequestParam(required = false) Integer userId,
+            @Parameter(description = "Orders of this branch") @RequestParam(required = false) Integer branchId,
+            @Parameter(description = "Only orders with this status") @RequestParam(required = false) OrderStatus status,
+            @Parameter(description = "First day, inclusive") @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day, inclusive") @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(orderService.getOrderHistory(userId, branchId, status, from, to, cursor, size));
+    }
+
     @Operation(summary = "Get order by ID", description = "Retrieve a specific order by its ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order found",
@@ -72,13 +123,18 @@ public class OrderController {
                             schema = @Schema(implementation = OrderDTO.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input",
                     content = @Content),
+            @ApiResponse(responseCode = "422", description = "Idempotency key reused for a different request",
+                    content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @PostMapping
     public ResponseEntity<OrderDTO> createOrder(
-            @Parameter(description = "Order object to be created") @RequestBody OrderDTO orderDTO) {
-        return ResponseEntity.ok(orderService.createOrder(orderDTO));
+            @Parameter(description = "Order object to be created") @RequestBody OrderDTO orderDTO,
+            @Parameter(description = "Client-chosen key; retries with the same key return the original response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "POST /api/orders", orderDTO, OrderDTO.class,
+                () -> orderService.createOrder(orderDTO));
     }
 
     @Operation(summary = "Update order status", description = "Update the status of an existing order")
@@ -88,6 +144,8 @@ public class OrderController {
                             schema = @Schema(implementation = OrderDTO.class))),
             @ApiResponse(responseCode = "404", description = "Order not found",
                     content = @Content),
+            @ApiResponse(responseCode = "409", description = "The order cannot move to this status",
+                    content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
@@ -97,12 +155,31 @@ public class OrderController {
             @Parameter(description = "New order status") @RequestParam OrderStatus status) {
         try {
             return ResponseEntity.ok(orderService.updateOrderStatus(id, status));
+        } catch (GlobalException | ResourceNotFoundException e) {
+            throw e;
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error updating order status for id: " + id, e);
         }
     }
 
+    @Operation(summary = "Update the status of many orders",
+            description = "Moves the listed orders to one status in a single transaction. Each order is checked "
+                    + "against its version and the allowed transitions; the response gives the outcome per order.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Outcome for every requested order",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = OrderStatusBulkResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Missing status, or empty, oversized or duplicate orders",
+                    content = @Content)
+    })
+    @PatchMapping("/status")
+    public ResponseEntity<OrderStatusBulkResponse> updateOrderStatuses(
+            @Parameter(description = "Target status and the orders with the versions last read")
+            @RequestBody OrderStatusBulkRequest request) {
+        return ResponseEntity.ok(orderService.updateOrderStatuses(request));
+    }
+
     @Operation(summary = "Update payment status", description = "Update the payment status of an existing order")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Payment status updated successfully",
@@ -134,15 +211,22 @@ public class OrderController {
                     content = @Content),
             @ApiResponse(responseCode = "404", description = "Order not found",
                     content = @Content),
+            @ApiResponse(responseCode = "422", description = "Idempotency key reused for a different request",
+                    content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @PostMapping("/{id}/checkout")
     public ResponseEntity<OrderDTO> checkoutOrder(
             @Parameter(description = "ID of the order to checkout") @PathVariable int id,
-            @Parameter(description = "Payment method") @RequestParam PaymentMethod paymentMethod) {
+            @Parameter(description = "Payment method") @RequestParam PaymentMethod paymentMethod,
+            @Parameter(description = "Client-chosen key; retries with the same key return the original response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         try {
-            return ResponseEntity.ok(orderService.checkoutOrder(id, paymentMethod));
+            return idempotencyService.execute(idempotencyKey, "POST /api/orders/" + id + "/checkout",
+                    paymentMethod, OrderDTO.class, () -> orderService.checkoutOrder(id, paymentMethod));
+        } catch (GlobalException e) {
+            throw e;
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error checking out order with id: " + id, e);
@@ -12,6 +12,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import pharmacy.pharmacy.dto.OrderItemDTO;
 import pharmacy.pharmacy.exception.GlobalException;
+import pharmacy.pharmacy.exception.ResourceNotFoundException;
 import pharmacy.pharmacy.service.OrderItemService;
 
 @RestController
@@ -66,6 +67,8 @@ public class OrderItemController {
             @Parameter(description = "New quantity") @RequestParam int quantity) {
         try {
             return ResponseEntity.ok(orderItemService.updateOrderItemQuantity(id, quantity));
+        } catch (GlobalException | ResourceNotFoundException e) {
+            throw e;
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error updating quantity for order item id: " + id, e);
@@ -86,6 +89,8 @@ public class OrderItemController {
         try {
             orderItemService.removeItemFromOrder(id);
             return ResponseEntity.ok().build();
+        } catch (GlobalException | ResourceNotFoundException e) {
+            throw e;
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error removing order item with id: " + id, e);
@@ -10,21 +10,30 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
-import org.apache.poi.hssf.usermodel.HSSFRow;
-import org.apache.poi.hssf.usermodel.HSSFSheet;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import pharmacy.pharmacy.dto.product.BarcodeCacheStats;
+import pharmacy.pharmacy.dto.product.ProductBarcodeSnapshot;
 import pharmacy.pharmacy.dto.product.ProductCreateRequest;
+import pharmacy.pharmacy.dto.product.ProductCursorPageResponse;
+import pharmacy.pharmacy.dto.product.ProductImportReport;
 import pharmacy.pharmacy.dto.product.ProductPageResponse;
 import pharmacy.pharmacy.dto.product.ProductResponse;
+import pharmacy.pharmacy.dto.product.ProductSearchResponse;
+import pharmacy.pharmacy.dto.product.ProductSuggestion;
 import pharmacy.pharmacy.entity.Product;
+import pharmacy.pharmacy.enums.ExportFormat;
+import pharmacy.pharmacy.enums.ProductSortField;
 import pharmacy.pharmacy.exception.GlobalException;
+import pharmacy.pharmacy.service.ProductImportService;
 import pharmacy.pharmacy.service.ProductService;
 
 import java.io.IOException;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 @RestController
@@ -33,9 +42,11 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductImportService productImportService) {
         this.productService = productService;
+        this.productImportService = productImportService;
     }
 
     @Operation(summary = "Get all products", description = "Retrieve a list of all products")
@@ -56,11 +67,44 @@ public class ProductController {
         }
     }
 
+    @Operation(summary = "Browse products page by page",
+            description = "Cursor-paginated catalog listing. Pass the returned nextCursor back to fetch the next page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved page",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ProductCursorPageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid sort field, direction or cursor",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content)
+    })
+    @GetMapping("/page")
+    public ResponseEntity<ProductCursorPageResponse> getProductPage(
+            @Parameter(description = "Sort field: name, price, createdAt or id") @RequestParam(defaultValue = "name") String sort,
+            @Parameter(description = "Sort direction: asc or desc") @RequestParam(defaultValue = "asc") String direction,
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") @RequestParam(required = false) Integer size,
+            @Parameter(description = "Only products in this category") @RequestParam(required = false) Integer categoryId,
+            @Parameter(description = "Only products with this prescription requirement") @RequestParam(required = false) Boolean prescriptionRequired) {
+        ProductSortField sortField;
+        Sort.Direction sortDirection;
+        try {
+            sortField = ProductSortField.fromString(sort);
+            sortDirection = Sort.Direction.fromString(direction);
+        } catch (IllegalArgumentException e) {
+            throw new GlobalException(e.getMessage(), HttpStatus.BAD_REQUEST, "INVALID_SORT");
+        }
+        return ResponseEntity.ok(productService.getProductPage(
+                sortField, sortDirection, cursor, size, categoryId, prescriptionRequired));
+    }
+
     @Operation(summary = "Get product by ID", description = "Retrieve a specific product by its ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Product found",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = Product.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match",
+                    content = @Content),
             @ApiResponse(responseCode = "404", description = "Product not found",
                     content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
@@ -68,29 +112,41 @@ public class ProductController {
     })
     @GetMapping("/{id}")
     public ResponseEntity<ProductPageResponse> getProductPageData(
-            @Parameter(description = "ID of the product to be retrieved") @PathVariable Integer id) {
-        return ResponseEntity.ok(productService.getProductPageData(id));
+            @Parameter(description = "ID of the product to be retrieved") @PathVariable Integer id,
+            WebRequest webRequest) {
+        // Answered from the version columns alone when the client's copy is current
+        String etag = productService.getProductPageEtag(id);
+        if (webRequest.checkNotModified(etag)) {
+            return ConditionalResponses.notModified(etag);
+        }
+        return ConditionalResponses.ok(etag, productService.getProductPageData(id));
     }
 
     @Operation(summary = "Get product by barcode", description = "Retrieve a specific product by its barcode")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Product found",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Product.class))),
+                            schema = @Schema(implementation = ProductBarcodeSnapshot.class))),
             @ApiResponse(responseCode = "404", description = "Product not found",
                     content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @GetMapping("/barcode/{barcode}")
-    public ResponseEntity<Product> getProductByBarcode(
+    public ResponseEntity<ProductBarcodeSnapshot> getProductByBarcode(
             @Parameter(description = "Barcode of the product to be retrieved") @PathVariable String barcode) {
-        try {
-            return ResponseEntity.ok(productService.getProductByBarcode(barcode));
-        } catch (Exception e) {
-            Sentry.captureException(e);
-            throw new GlobalException("Error retrieving product with barcode: " + barcode, e);
-        }
+        return ResponseEntity.ok(productService.lookupByBarcode(barcode));
+    }
+
+    @Operation(summary = "Barcode cache statistics", description = "Hit/miss/eviction counters for sizing the POS barcode cache")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved statistics",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BarcodeCacheStats.class)))
+    })
+    @GetMapping("/barcode-cache/stats")
+    public ResponseEntity<BarcodeCacheStats> getBarcodeCacheStats() {
+        return ResponseEntity.ok(productService.getBarcodeCacheStats());
     }
 
     @Operation(summary = "Create a new product", description = "Add a new product to the inventory")
@@ -110,6 +166,41 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).build(); // 201 Created, no body
     }
 
+    @Operation(summary = "Bulk import products",
+            description = "Import a supplier catalog from .csv or .xlsx. Columns: name, description, price, " +
+                    "costPrice, stockQuantity, reorderLevel, expiryDate, batchNumber, barcode, " +
+                    "prescriptionRequired and categoryId or category (name). Invalid rows are reported, not imported.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished; see the per-row error report",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ProductImportReport.class))),
+            @ApiResponse(responseCode = "400", description = "Unsupported file or missing columns",
+                    content = @Content)
+    })
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ProductImportReport> importProducts(
+            @Parameter(description = "Catalog file (.csv or .xlsx)") @RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(productImportService.importProducts(file));
+    }
+
+    @Operation(summary = "Upload product image",
+            description = "Store a product photo. Identical files are stored once; thumbnails are generated in the background.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Image stored and product updated",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ProductResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Missing or non-image file",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Product not found",
+                    content = @Content)
+    })
+    @PostMapping(value = "/{id}/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ProductResponse> uploadProductImage(
+            @Parameter(description = "ID of the product") @PathVariable Integer id,
+            @Parameter(description = "Image file") @RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(productService.uploadProductImage(id, file));
+    }
+
     @Operation(summary = "Update product", description = "Update an existing product's information")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Product updated successfully",
@@ -152,40 +243,59 @@ public class ProductController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved products",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Product.class))),
+                            schema = @Schema(implementation = ProductResponse.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<Product>> getProductsByCategory(
-            @Parameter(description = "ID of the category") @PathVariable Integer categoryId) {
+    public ResponseEntity<List<ProductResponse>> getProductsByCategory(
+            @Parameter(description = "ID of the category") @PathVariable Integer categoryId,
+            @Parameter(description = "Also include products of all subcategories")
+            @RequestParam(defaultValue = "false") boolean includeSubcategories) {
         try {
-            return ResponseEntity.ok(productService.getProductsByCategory(categoryId));
+            return ResponseEntity.ok(productService.getProductsByCategory(categoryId, includeSubcategories));
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error retrieving products by category", e);
         }
     }
 
-    @Operation(summary = "Search products", description = "Search products by name (case-insensitive)")
+    @Operation(summary = "Search products",
+            description = "Full-text search over name, barcode, category and description, ranked by relevance")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved products",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Product.class))),
+                            schema = @Schema(implementation = ProductSearchResponse.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(
-            @Parameter(description = "Search term for product name") @RequestParam String name) {
+    public ResponseEntity<ProductSearchResponse> searchProducts(
+            @Parameter(description = "Search terms (whole words, prefixes or fragments)") @RequestParam String name,
+            @Parameter(description = "Zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") int size) {
         try {
-            return ResponseEntity.ok(productService.searchProducts(name));
+            return ResponseEntity.ok(productService.searchProducts(name, page, size));
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error searching products", e);
         }
     }
 
+    @Operation(summary = "Suggest products",
+            description = "Type-ahead over product names and barcodes, best sellers first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved suggestions",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ProductSuggestion.class)))
+    })
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestion>> suggestProducts(
+            @Parameter(description = "What the user has typed so far") @RequestParam String q,
+            @Parameter(description = "Maximum number of suggestions (max 10)") @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(productService.suggestProducts(q, limit));
+    }
+
     @Operation(summary = "Get low stock products", description = "Retrieve products with stock below reorder level")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved products",
@@ -204,42 +314,19 @@ public class ProductController {
         }
     }
 
+    @Operation(summary = "Export low stock products",
+            description = "Download products at or below their reorder level as xlsx or csv")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File streamed", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Unsupported format", content = @Content)
+    })
     @GetMapping("/export/low-stock")
-    public void exportLowStockProductsToExcel(HttpServletResponse response) throws IOException {
-
-        List<ProductResponse> lowStockProducts = productService.getLowStockProducts();
-
-        // Create Excel workbook
-        HSSFWorkbook workbook = new HSSFWorkbook();
-        HSSFSheet sheet = workbook.createSheet("Invoices");
-
-        // Header row
-        HSSFRow headerRow = sheet.createRow(0);
-        headerRow.createCell(0).setCellValue("ID");
-        headerRow.createCell(1).setCellValue("Product Name");
-        headerRow.createCell(2).setCellValue("Category Name");
-        headerRow.createCell(3).setCellValue("Barcode");
-        headerRow.createCell(4).setCellValue("Stocks");
-        // Add more fields based on your DTO
-
-        // Data rows
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        int rowNum = 1;
-        for (ProductResponse productResponse : lowStockProducts) {
-            HSSFRow row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(productResponse.getId());
-            row.createCell(1).setCellValue(productResponse.getName()); // Replace with your actual fields
-            row.createCell(2).setCellValue(productResponse.getCategoryName());
-            row.createCell(3).setCellValue(productResponse.getBarcode());
-            row.createCell(4).setCellValue(productResponse.getStockQuantity());
-        }
-
-        // Set response headers
-        response.setContentType("application/vnd.ms-excel");
-        response.setHeader("Content-Disposition", "attachment; filename=low-stock-products.xls");
-
-        workbook.write(response.getOutputStream());
-        workbook.close();
+    public void exportLowStockProductsToExcel(
+            @Parameter(description = "xlsx or csv") @RequestParam(defaultValue = "xlsx") String format,
+            HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = parseExportFormat(format);
+        prepareDownload(response, exportFormat, "low-stock-products");
+        productService.exportLowStockProducts(exportFormat, response.getOutputStream());
     }
 
     @Operation(summary = "Get expiring products", description = "Retrieve products that are expiring soon")
@@ -260,44 +347,32 @@ public class ProductController {
         }
     }
 
+    @Operation(summary = "Export expiring products",
+            description = "Download products expiring within a month as xlsx or csv")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File streamed", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Unsupported format", content = @Content)
+    })
     @GetMapping("/export/expiring")
-    public void exportExpiringSoonProductsToExcel(HttpServletResponse response) throws IOException {
-
-        List<ProductResponse> expiringProducts = productService.getExpiringProducts();
-
-        // Create Excel workbook
-        HSSFWorkbook workbook = new HSSFWorkbook();
-        HSSFSheet sheet = workbook.createSheet("Invoices");
-
-        // Header row
-        HSSFRow headerRow = sheet.createRow(0);
-        headerRow.createCell(0).setCellValue("ID");
-        headerRow.createCell(1).setCellValue("Product Name");
-        headerRow.createCell(2).setCellValue("Expiry Date");
-        headerRow.createCell(3).setCellValue("Category Name");
-        headerRow.createCell(4).setCellValue("Barcode");
-        headerRow.createCell(5).setCellValue("Stocks");
-        // Add more fields based on your DTO
+    public void exportExpiringSoonProductsToExcel(
+            @Parameter(description = "xlsx or csv") @RequestParam(defaultValue = "xlsx") String format,
+            HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = parseExportFormat(format);
+        prepareDownload(response, exportFormat, "expiring-soon-products");
+        productService.exportExpiringProducts(exportFormat, response.getOutputStream());
+    }
 
-        // Data rows
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        int rowNum = 1;
-        for (ProductResponse productResponse : expiringProducts) {
-            HSSFRow row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(productResponse.getId());
-            row.createCell(1).setCellValue(productResponse.getName()); // Replace with your actual fields
-            row.createCell(2).setCellValue(productResponse.getExpiryDate());
-            row.createCell(3).setCellValue(productResponse.getCategoryName());
-            row.createCell(4).setCellValue(productResponse.getBarcode());
-            row.createCell(5).setCellValue(productResponse.getStockQuantity());
+    private ExportFormat parseExportFormat(String format) {
+        try {
+            return ExportFormat.fromString(format);
+        } catch (IllegalArgumentException e) {
+            throw new GlobalException("Unsupported export format: " + format, HttpStatus.BAD_REQUEST, "INVALID_FORMAT");
         }
+    }
 
-        // Set response headers
-        response.setContentType("application/vnd.ms-excel");
-        response.setHeader("Content-Disposition", "attachment; filename=expiring-soon-products.xls");
-
-        workbook.write(response.getOutputStream());
-        workbook.close();
+    private void prepareDownload(HttpServletResponse response, ExportFormat format, String baseName) {
+        response.setContentType(format.getContentType());
+        response.setHeader("Content-Disposition",
+                "attachment; filename=" + baseName + "." + format.getExtension());
     }
 }
-
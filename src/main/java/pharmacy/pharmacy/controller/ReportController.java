@@ -0,0 +1,113 @@
+package pharmacy.pharmacy.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pharmacy.pharmacy.dto.report.SalesReportRow;
+import pharmacy.pharmacy.dto.report.SalesSummaryResponse;
+import pharmacy.pharmacy.service.SalesReportService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/reports/sales")
+@Tag(name = "Reports", description = "Sales reports served from daily rollups of completed orders")
+public class ReportController {
+
+    private final SalesReportService salesReportService;
+
+    public ReportController(SalesReportService salesReportService) {
+        this.salesReportService = salesReportService;
+    }
+
+    @Operation(summary = "Sales summary", description = "Totals for a date range, with one row per day")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Summary computed",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SalesSummaryResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid date range", content = @Content)
+    })
+    @GetMapping
+    public ResponseEntity<SalesSummaryResponse> getSalesSummary(
+            @Parameter(description = "First day, inclusive") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day, inclusive") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Limit to one branch") @RequestParam(required = false) Integer branchId) {
+        return ResponseEntity.ok(salesReportService.getSummary(from, to, branchId));
+    }
+
+    @Operation(summary = "Sales by product", description = "Best-selling products by revenue for a date range")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rows computed",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SalesReportRow.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid date range or limit", content = @Content)
+    })
+    @GetMapping("/by-product")
+    public ResponseEntity<List<SalesReportRow>> getSalesByProduct(
+            @Parameter(description = "First day, inclusive") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day, inclusive") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Limit to one branch") @RequestParam(required = false) Integer branchId,
+            @Parameter(description = "Number of products") @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(salesReportService.getSalesByProduct(from, to, branchId, limit));
+    }
+
+    @Operation(summary = "Sales by category", description = "Revenue per product category for a date range")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rows computed",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SalesReportRow.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid date range", content = @Content)
+    })
+    @GetMapping("/by-category")
+    public ResponseEntity<List<SalesReportRow>> getSalesByCategory(
+            @Parameter(description = "First day, inclusive") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day, inclusive") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Limit to one branch") @RequestParam(required = false) Integer branchId) {
+        return ResponseEntity.ok(salesReportService.getSalesByCategory(from, to, branchId));
+    }
+
+    @Operation(summary = "Sales by branch", description = "Revenue per branch for a date range")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rows computed",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SalesReportRow.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid date range", content = @Content)
+    })
+    @GetMapping("/by-branch")
+    public ResponseEntity<List<SalesReportRow>> getSalesByBranch(
+            @Parameter(description = "First day, inclusive") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day, inclusive") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(salesReportService.getSalesByBranch(from, to));
+    }
+
+    @Operation(summary = "Rebuild sales rollups",
+            description = "Recompute the given days from the raw orders; returns the number of rows written")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Days rebuilt"),
+            @ApiResponse(responseCode = "400", description = "Invalid date range", content = @Content)
+    })
+    @PostMapping("/rebuild")
+    public ResponseEntity<Integer> rebuildSalesRollups(
+            @Parameter(description = "First day, inclusive") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day, inclusive") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(salesReportService.rebuild(from, to));
+    }
+}
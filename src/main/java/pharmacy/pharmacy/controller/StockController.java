@@ -8,14 +8,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.sentry.Sentry;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import pharmacy.pharmacy.dto.StockDTO;
 import pharmacy.pharmacy.dto.stock.StockCreateRequest;
+import pharmacy.pharmacy.enums.JsonStreamFormat;
 import pharmacy.pharmacy.exception.GlobalException;
 import pharmacy.pharmacy.service.StockService;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -29,6 +32,19 @@ public class StockController {
         this.stockService = stockService;
     }
 
+    @Operation(summary = "Stream all stock entries",
+            description = "Write every record as it is read, as NDJSON (one object per line) or as one JSON array")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Records streamed", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Unsupported stream format", content = @Content)
+    })
+    @GetMapping(params = "stream")
+    public void streamAllStockEntries(@Parameter(description = "ndjson or json") @RequestParam String stream,
+                                      HttpServletResponse response) throws IOException {
+        JsonStreamFormat format = JsonStreams.begin(stream, response);
+        stockService.streamAllStockEntries(format, response.getOutputStream());
+    }
+
     @Operation(summary = "Get all stock entries", description = "Retrieve a list of all stock entries")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list",
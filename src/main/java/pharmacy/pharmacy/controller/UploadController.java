@@ -0,0 +1,216 @@
+package pharmacy.pharmacy.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import pharmacy.pharmacy.service.FileStorageService;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the files written by {@link FileStorageService}. Stored files are named by their content hash and
+ * never change, so the name is a strong ETag and responses may be cached for a year.
+ */
+@RestController
+@RequestMapping("/uploads")
+@Tag(name = "Uploads", description = "Uploaded category and product images")
+public class UploadController {
+
+    private static final Pattern THUMBNAIL_NAME = Pattern.compile("([0-9a-f]{64}_[0-9]{1,5})\\.jpg");
+    private static final Pattern SINGLE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final String IMMUTABLE_CACHE = "public, max-age=31536000, immutable";
+
+    // Set by Tomcat's NIO connector when it can hand the file straight to the socket
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final FileStorageService fileStorageService;
+
+    public UploadController(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+
+    @Operation(summary = "Get an uploaded file", description = "Supports Range requests and conditional GETs")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File content"),
+            @ApiResponse(responseCode = "206", description = "Requested byte range"),
+            @ApiResponse(responseCode = "304", description = "Client copy is current"),
+            @ApiResponse(responseCode = "404", description = "No such file"),
+            @ApiResponse(responseCode = "416", description = "Range not satisfiable")
+    })
+    @RequestMapping(value = "/{fileName}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getUpload(@Parameter(description = "Stored file name") @PathVariable String fileName,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(FileStorageService.hashOf(FileStorageService.URL_PREFIX + fileName), fileName, request, response);
+    }
+
+    @Operation(summary = "Get an image thumbnail", description = "Supports Range requests and conditional GETs")
+    @RequestMapping(value = "/thumbs/{fileName}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getThumbnail(@Parameter(description = "Thumbnail file name") @PathVariable String fileName,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Matcher name = THUMBNAIL_NAME.matcher(fileName);
+        serve(name.matches() ? name.group(1) : null, "thumbs/" + fileName, request, response);
+    }
+
+    // tag is the content hash part of the name, or null when the name is not one the store produces
+    private void serve(String tag, String relativePath, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        if (tag == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        String etag = "\"" + tag + "\"";
+
+        // The name fixes the content, so a matching tag is answered without touching the disk
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            writeCachingHeaders(response, etag, -1);
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        Path file = fileStorageService.resolve(FileStorageService.URL_PREFIX + relativePath);
+        BasicFileAttributes attributes;
+        try {
+            attributes = file == null ? null : Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            attributes = null;
+        }
+        if (attributes == null || !attributes.isRegularFile()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) == null && ifModifiedSince >= 0
+                && lastModified / 1000 <= ifModifiedSince / 1000) {
+            writeCachingHeaders(response, etag, lastModified);
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long length = attributes.size();
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        boolean partial = false;
+        // If-Range with another validator means the client's partial copy is stale: send the whole file
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            Matcher byteRange = SINGLE_RANGE.matcher(range.trim());
+            // Multi-range requests are answered with the full file, which HTTP allows
+            if (byteRange.matches() && !(byteRange.group(1).isEmpty() && byteRange.group(2).isEmpty())) {
+                if (byteRange.group(1).isEmpty()) {
+                    start = Math.max(0, length - parseLong(byteRange.group(2)));
+                } else {
+                    start = parseLong(byteRange.group(1));
+                    if (!byteRange.group(2).isEmpty()) {
+                        end = Math.min(end, parseLong(byteRange.group(2)));
+                    }
+                }
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                partial = true;
+            }
+        }
+
+        writeCachingHeaders(response, etag, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        MediaType mediaType = MediaTypeFactory.getMediaType(relativePath).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        response.setContentType(mediaType.toString());
+        if (!"image".equals(mediaType.getType()) || mediaType.getSubtype().contains("svg")) {
+            // Anything that could carry script is downloaded, never rendered inline
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment");
+        }
+        long count = end - start + 1;
+        if (partial) {
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        response.setContentLengthLong(count);
+        if (RequestMethod.HEAD.name().equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat sends the bytes with sendfile(2) after this method returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    private static void writeCachingHeaders(HttpServletResponse response, String etag, long lastModified) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE);
+        if (lastModified >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Oversized numbers are treated as "to the end of the file"
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -10,12 +10,15 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import io.sentry.Sentry;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import pharmacy.pharmacy.dto.UserDTO;
 import pharmacy.pharmacy.entity.User;
 import pharmacy.pharmacy.entity.UserRole;
 import pharmacy.pharmacy.exception.GlobalException;
+import pharmacy.pharmacy.mapper.EntityDtoMapper;
 import pharmacy.pharmacy.service.UserService;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/users")
@@ -32,14 +35,16 @@ public class UserController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = User.class))),
+                            schema = @Schema(implementation = UserDTO.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
+    public ResponseEntity<List<UserDTO>> getAllUsers() {
         try {
-            return ResponseEntity.ok(userService.getAllUsers());
+            return ResponseEntity.ok(userService.getAllUsers().stream()
+                    .map(EntityDtoMapper::convertToUserDTO)
+                    .collect(Collectors.toList()));
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error retrieving users", e);
@@ -50,17 +55,17 @@ public class UserController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User found",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = User.class))),
+                            schema = @Schema(implementation = UserDTO.class))),
             @ApiResponse(responseCode = "404", description = "User not found",
                     content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(
+    public ResponseEntity<UserDTO> getUserById(
             @Parameter(description = "ID of the user to be retrieved") @PathVariable int id) {
         try {
-            return ResponseEntity.ok(userService.getUserById(id));
+            return ResponseEntity.ok(EntityDtoMapper.convertToUserDTO(userService.getUserById(id)));
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error retrieving user with id: " + id, e);
@@ -71,17 +76,17 @@ public class UserController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User created successfully",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = User.class))),
+                            schema = @Schema(implementation = UserDTO.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input",
                     content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @PostMapping
-    public ResponseEntity<User> createUser(
+    public ResponseEntity<UserDTO> createUser(
             @Parameter(description = "User object to be created") @RequestBody User user) {
         try {
-            return ResponseEntity.ok(userService.createUser(user));
+            return ResponseEntity.ok(EntityDtoMapper.convertToUserDTO(userService.createUser(user)));
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error creating user", e);
@@ -92,18 +97,18 @@ public class UserController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User updated successfully",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = User.class))),
+                            schema = @Schema(implementation = UserDTO.class))),
             @ApiResponse(responseCode = "404", description = "User not found",
                     content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(
+    public ResponseEntity<UserDTO> updateUser(
             @Parameter(description = "ID of the user to be updated") @PathVariable int id,
             @Parameter(description = "Updated user object") @RequestBody User user) {
         try {
-            return ResponseEntity.ok(userService.updateUser(id, user));
+            return ResponseEntity.ok(EntityDtoMapper.convertToUserDTO(userService.updateUser(id, user)));
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error updating user with id: " + id, e);
@@ -134,18 +139,18 @@ public class UserController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Role assigned successfully",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = User.class))),
+                            schema = @Schema(implementation = UserDTO.class))),
             @ApiResponse(responseCode = "404", description = "User or role not found",
                     content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content)
     })
     @PostMapping("/{userId}/roles")
-    public ResponseEntity<User> assignRoleToUser(
+    public ResponseEntity<UserDTO> assignRoleToUser(
             @Parameter(description = "ID of the user") @PathVariable int userId,
             @Parameter(description = "Role to be assigned") @RequestBody UserRole role) {
         try {
-            return ResponseEntity.ok(userService.assignRoleToUser(userId, role.getId()));
+            return ResponseEntity.ok(EntityDtoMapper.convertToUserDTO(userService.assignRoleToUser(userId, role.getId())));
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Error assigning role to user with id: " + userId, e);
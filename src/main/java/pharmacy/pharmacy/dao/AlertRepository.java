@@ -1,8 +1,11 @@
 package pharmacy.pharmacy.dao;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import pharmacy.pharmacy.entity.Alert;
 import pharmacy.pharmacy.entity.Branch;
@@ -13,6 +16,7 @@ import pharmacy.pharmacy.enums.AlertType;
 
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface AlertRepository extends JpaRepository<Alert, Integer> {
 
@@ -34,6 +38,11 @@ public interface AlertRepository extends JpaRepository<Alert, Integer> {
     // Find alerts by type
     List<Alert> findByAlertType(AlertType alertType);
 
+    // Whether the product already has an open alert of this type
+    @Query("SELECT COUNT(a) > 0 FROM Alert a WHERE a.product.id = :productId AND a.alertType = :alertType " +
+           "AND a.resolved = false")
+    boolean existsUnresolved(@Param("productId") Integer productId, @Param("alertType") AlertType alertType);
+
     // Find critical alerts (OUT_OF_STOCK or EXPIRY_CRITICAL)
     @Query("SELECT a FROM Alert a WHERE a.alertType IN ('OUT_OF_STOCK', 'EXPIRY_CRITICAL')")
     List<Alert> findCriticalAlerts();
@@ -56,4 +65,14 @@ public interface AlertRepository extends JpaRepository<Alert, Integer> {
     @Modifying
     @Query("DELETE FROM Alert a WHERE a.resolved = true AND a.resolvedAt < :date")
     void deleteResolvedOlderThan(@Param("date") Date date);
-}
\ No newline at end of file
+
+    // Rows of [alert, triggered-by name, resolved-by name] for the stream endpoint; users are selected by name
+    // only, because their eager roles would need a second statement while MySQL streams this result
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ProductRepository.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT a, tb.name, rb.name FROM Alert a LEFT JOIN FETCH a.product LEFT JOIN FETCH a.branch " +
+           "LEFT JOIN a.triggeredBy tb LEFT JOIN a.resolvedBy rb ORDER BY a.id")
+    Stream<Object[]> streamAllWithNames();
+}
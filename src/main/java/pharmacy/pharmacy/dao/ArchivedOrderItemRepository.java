@@ -0,0 +1,18 @@
+package pharmacy.pharmacy.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pharmacy.pharmacy.entity.ArchivedOrderItem;
+
+import java.util.List;
+
+@Repository
+public interface ArchivedOrderItemRepository extends JpaRepository<ArchivedOrderItem, Integer> {
+
+    // Rows of [archived item, product name, product barcode]
+    @Query("SELECT i, p.name, p.barcode FROM ArchivedOrderItem i LEFT JOIN Product p ON p.id = i.productId " +
+           "WHERE i.orderId = :orderId ORDER BY i.id")
+    List<Object[]> findByOrderIdWithProduct(@Param("orderId") Integer orderId);
+}
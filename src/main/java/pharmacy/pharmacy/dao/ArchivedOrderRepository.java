@@ -0,0 +1,49 @@
+package pharmacy.pharmacy.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pharmacy.pharmacy.entity.ArchivedOrder;
+import pharmacy.pharmacy.enums.OrderStatus;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Integer> {
+
+    // Every archived order is on or before this date; null while the archive is empty
+    @Query("SELECT MAX(a.orderDate) FROM ArchivedOrder a")
+    Date findLatestOrderDate();
+
+    @Query("SELECT MIN(a.orderDate) FROM ArchivedOrder a WHERE a.status = :status")
+    Date findFirstOrderDateByStatus(@Param("status") OrderStatus status);
+
+    // Rows of [archived order, customer name, branch name]
+    @Query("SELECT a, u.name, b.name FROM ArchivedOrder a LEFT JOIN User u ON u.id = a.userId " +
+           "LEFT JOIN Branch b ON b.id = a.branchId WHERE a.id = :id")
+    List<Object[]> findWithNames(@Param("id") Integer id);
+
+    // Same filters, order and keyset as OrderRepository.findHistoryPage, as rows of
+    // [archived order, customer name, branch name]
+    @Query("SELECT a, u.name, b.name FROM ArchivedOrder a LEFT JOIN User u ON u.id = a.userId " +
+           "LEFT JOIN Branch b ON b.id = a.branchId " +
+           "WHERE (:userId IS NULL OR a.userId = :userId) " +
+           "AND (:branchId IS NULL OR a.branchId = :branchId) " +
+           "AND (:status IS NULL OR a.status = :status) " +
+           "AND (:from IS NULL OR a.orderDate >= :from) " +
+           "AND (:to IS NULL OR a.orderDate < :to) " +
+           "AND (:beforeDate IS NULL OR a.orderDate < :beforeDate " +
+           "     OR (a.orderDate = :beforeDate AND a.id < :beforeId)) " +
+           "ORDER BY a.orderDate DESC, a.id DESC LIMIT :limit")
+    List<Object[]> findHistoryPage(@Param("userId") Integer userId,
+                                   @Param("branchId") Integer branchId,
+                                   @Param("status") OrderStatus status,
+                                   @Param("from") Date from,
+                                   @Param("to") Date to,
+                                   @Param("beforeDate") Date beforeDate,
+                                   @Param("beforeId") Integer beforeId,
+                                   @Param("limit") int limit);
+}
@@ -36,4 +36,11 @@ public interface BranchRepository extends JpaRepository<Branch, Integer> {
     boolean existsByNameAndIdNot(@Param("name") String name, @Param("excludeId") int excludeId);
 
     boolean existsByName(String name);
+
+    @Query("SELECT b.version FROM Branch b WHERE b.id = :id")
+    Optional<Long> findVersionById(@Param("id") int id);
+
+    // One row of [count, sum of versions, highest id]; changes whenever any branch is added, edited or removed
+    @Query("SELECT COUNT(b), COALESCE(SUM(b.version), 0), COALESCE(MAX(b.id), 0) FROM Branch b")
+    List<Object[]> findCollectionVersion();
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package pharmacy.pharmacy.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pharmacy.pharmacy.entity.CategoryClosure;
+
+import java.util.List;
+
+@Repository
+public interface CategoryClosureRepository extends JpaRepository<CategoryClosure, CategoryClosure.Key> {
+
+    // Ancestor ids from the root down to the direct parent
+    @Query("SELECT cc.ancestorId FROM CategoryClosure cc WHERE cc.descendantId = :categoryId AND cc.depth > 0 " +
+           "ORDER BY cc.depth DESC")
+    List<Integer> findAncestorIds(@Param("categoryId") Integer categoryId);
+
+    // Descendant ids, nearest first; excludes the category itself
+    @Query("SELECT cc.descendantId FROM CategoryClosure cc WHERE cc.ancestorId = :categoryId AND cc.depth > 0 " +
+           "ORDER BY cc.depth, cc.descendantId")
+    List<Integer> findDescendantIds(@Param("categoryId") Integer categoryId);
+
+    boolean existsByAncestorIdAndDescendantId(Integer ancestorId, Integer descendantId);
+
+    long countByDepth(Integer depth);
+
+    // New leaf: the self row plus one row per ancestor of its parent
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) VALUES (:categoryId, :categoryId, 0)",
+           nativeQuery = true)
+    void insertSelf(@Param("categoryId") Integer categoryId);
+
+    // Joins a whole subtree under a new parent (also used for a new leaf, whose subtree is itself)
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+                   "SELECT sup.ancestor_id, sub.descendant_id, sup.depth + sub.depth + 1 " +
+                   "FROM category_closure sup JOIN category_closure sub " +
+                   "WHERE sup.descendant_id = :parentId AND sub.ancestor_id = :categoryId",
+           nativeQuery = true)
+    void attachSubtree(@Param("categoryId") Integer categoryId, @Param("parentId") Integer parentId);
+
+    // Cuts the paths from outside ancestors into the subtree; paths inside the subtree are kept.
+    // The derived tables stop MySQL from rejecting a subquery on the table being deleted from.
+    @Modifying
+    @Query(value = "DELETE FROM category_closure " +
+                   "WHERE descendant_id IN (SELECT d FROM (SELECT descendant_id AS d FROM category_closure " +
+                   "WHERE ancestor_id = :categoryId) subtree) " +
+                   "AND ancestor_id NOT IN (SELECT d FROM (SELECT descendant_id AS d FROM category_closure " +
+                   "WHERE ancestor_id = :categoryId) inner_subtree)",
+           nativeQuery = true)
+    void detachSubtree(@Param("categoryId") Integer categoryId);
+
+    @Modifying
+    @Query(value = "DELETE FROM category_closure " +
+                   "WHERE descendant_id IN (SELECT d FROM (SELECT descendant_id AS d FROM category_closure " +
+                   "WHERE ancestor_id = :categoryId) subtree)",
+           nativeQuery = true)
+    void deleteSubtree(@Param("categoryId") Integer categoryId);
+}
@@ -1,9 +1,13 @@
 package pharmacy.pharmacy.dao;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import pharmacy.pharmacy.entity.Category;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Integer> {
@@ -11,4 +15,34 @@ public interface CategoryRepository extends JpaRepository<Category, Integer> {
     List<Category> findByParentId(Integer parentId);
 
     List<Category> findByNameContainingIgnoreCase(String name);
-}
\ No newline at end of file
+
+    // Rows of [id, name, parent id] for building the hierarchy in memory
+    @Query("SELECT c.id, c.name, p.id FROM Category c LEFT JOIN c.parent p")
+    List<Object[]> findHierarchy();
+
+    // Rows of [id, name, description, image url, parent id] for the cached category tree
+    @Query("SELECT c.id, c.name, c.description, c.imageUrl, p.id FROM Category c LEFT JOIN c.parent p")
+    List<Object[]> findTreeRows();
+
+    // Set-based lookups used by the bulk product import
+    @Query("SELECT c.id FROM Category c WHERE c.id IN :ids")
+    List<Integer> findExistingIds(Collection<Integer> ids);
+
+    // Rows of [id, lower-cased name]
+    @Query("SELECT c.id, LOWER(c.name) FROM Category c WHERE LOWER(c.name) IN :names")
+    List<Object[]> findIdsByLowerCaseNameIn(Collection<String> names);
+
+    @Query("SELECT c.version FROM Category c WHERE c.id = :id")
+    Optional<Long> findVersionById(Integer id);
+
+    // One row of [count, sum of versions, highest id]; changes whenever any category is added, edited or removed
+    @Query("SELECT COUNT(c), COALESCE(SUM(c.version), 0), COALESCE(MAX(c.id), 0) FROM Category c")
+    List<Object[]> findCollectionVersion();
+
+    @Query("SELECT DISTINCT c.imageUrl FROM Category c WHERE c.imageUrl LIKE '/uploads/%'")
+    List<String> findDistinctUploadedImageUrls();
+
+    @Modifying
+    @Query("UPDATE Category c SET c.imageUrl = :newUrl, c.version = c.version + 1 WHERE c.imageUrl = :oldUrl")
+    int replaceImageUrl(String oldUrl, String newUrl);
+}
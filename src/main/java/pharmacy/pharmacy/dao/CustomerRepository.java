@@ -1,7 +1,9 @@
 package pharmacy.pharmacy.dao;
 
+import jakarta.persistence.LockModeType;
 import pharmacy.pharmacy.entity.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -14,6 +16,11 @@ public interface CustomerRepository extends JpaRepository<Customer, Integer> {
     // Find customer by user ID
     Optional<Customer> findByUserId(Integer userId);
 
+    // Row-locked read for loyalty point changes, so concurrent accruals and redemptions are not lost
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Customer c WHERE c.user.id = :userId")
+    Optional<Customer> findByUserIdForUpdate(@Param("userId") Integer userId);
+
     // Check if user is already a customer
     boolean existsByUserId(Integer userId);
 
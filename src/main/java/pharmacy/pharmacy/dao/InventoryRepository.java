@@ -1,12 +1,20 @@
 package pharmacy.pharmacy.dao;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import pharmacy.pharmacy.entity.Inventory;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface InventoryRepository extends JpaRepository<Inventory, Integer> {
@@ -35,6 +43,43 @@ public interface InventoryRepository extends JpaRepository<Inventory, Integer> {
     // Find inventory records by branch and product
     Inventory findByBranchIdAndProductId(Integer branchId, Integer productId);
 
+    boolean existsByBranchIdAndProductId(Integer branchId, Integer productId);
+
+    // Locked so a hold, sale or sweep cannot change the quantities between the read and the write-back
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.id = :id")
+    Optional<Inventory> findByIdForUpdate(Integer id);
+
+    // Adds quantity (negative to remove) to the stored level; the alert is set first, from the level it moves to
+    @Modifying
+    @Query("UPDATE Inventory i SET i.lowStockAlert = CASE WHEN i.minimumStockLevel IS NOT NULL " +
+           "AND i.stockLevel + :quantity <= i.minimumStockLevel THEN true ELSE false END, " +
+           "i.lastRestocked = CASE WHEN :quantity > 0 THEN :now ELSE i.lastRestocked END, " +
+           "i.stockLevel = i.stockLevel + :quantity, i.lastUpdated = :now WHERE i.id = :id")
+    int adjustStockLevel(Integer id, int quantity, Date now);
+
+    // Holds stock for a cart; 0 rows when the branch has less than quantity left to sell, or no record
+    @Modifying
+    @Query("UPDATE Inventory i SET i.reservedQuantity = i.reservedQuantity + :quantity " +
+           "WHERE i.branch.id = :branchId AND i.product.id = :productId " +
+           "AND i.stockLevel - i.reservedQuantity >= :quantity")
+    int reserveStock(Integer branchId, Integer productId, int quantity);
+
+    // Gives held stock back; never takes the reserved quantity below zero
+    @Modifying
+    @Query("UPDATE Inventory i SET i.reservedQuantity = CASE WHEN i.reservedQuantity > :quantity " +
+           "THEN i.reservedQuantity - :quantity ELSE 0 END " +
+           "WHERE i.branch.id = :branchId AND i.product.id = :productId")
+    int releaseStock(Integer branchId, Integer productId, int quantity);
+
+    // Available to sell per branch and product, for the in-memory availability counters
+    @Query("SELECT i.branch.id, i.product.id, i.stockLevel - i.reservedQuantity FROM Inventory i")
+    List<Object[]> findAllAvailable();
+
+    @Query("SELECT i.stockLevel - i.reservedQuantity FROM Inventory i " +
+           "WHERE i.branch.id = :branchId AND i.product.id = :productId")
+    List<Integer> findAvailable(Integer branchId, Integer productId);
+
     // Find inventory records with expiry alerts
     List<Inventory> findByExpiryAlertTrue();
 
@@ -45,4 +90,12 @@ public interface InventoryRepository extends JpaRepository<Inventory, Integer> {
     // Custom query to find inventory records that were recently restocked
     @Query("SELECT i FROM Inventory i WHERE i.lastRestocked IS NOT NULL AND i.lastRestocked >= :date")
     List<Inventory> findRecentlyRestocked(Date date);
-}
\ No newline at end of file
+
+    // Streaming cursor for the NDJSON/JSON stream endpoint; the mapper reads only association ids
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ProductRepository.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT i FROM Inventory i ORDER BY i.id")
+    Stream<Inventory> streamAll();
+}
@@ -1,8 +1,11 @@
 package pharmacy.pharmacy.dao;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import pharmacy.pharmacy.entity.Notification;
 import pharmacy.pharmacy.entity.User;
@@ -10,6 +13,7 @@ import pharmacy.pharmacy.enums.NotificationType;
 
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface NotificationRepository extends JpaRepository<Notification, Integer> {
 
@@ -47,4 +51,13 @@ public interface NotificationRepository extends JpaRepository<Notification, Inte
     @Modifying
     @Query("DELETE FROM Notification n WHERE n.createdAt < :date")
     void deleteOlderThan(@Param("date") Date date);
-}
\ No newline at end of file
+
+    // Rows of [notification, user name] for the stream endpoint; the user is selected by name only, because
+    // its eager roles would need a second statement while MySQL streams this result
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ProductRepository.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT n, u.name FROM Notification n JOIN n.user u ORDER BY n.id")
+    Stream<Object[]> streamAllWithUserName();
+}
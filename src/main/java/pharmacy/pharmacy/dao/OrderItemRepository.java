@@ -1,13 +1,18 @@
 package pharmacy.pharmacy.dao;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import pharmacy.pharmacy.entity.Order;
 import pharmacy.pharmacy.entity.OrderItem;
 import pharmacy.pharmacy.entity.Product;
+import pharmacy.pharmacy.enums.OrderStatus;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +21,11 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
     // Find all items for an order
     List<OrderItem> findByOrder(Order order);
 
+    // Locked so concurrent edits of a line apply their subtotal deltas one after the other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT oi FROM OrderItem oi WHERE oi.id = :id")
+    Optional<OrderItem> findByIdForUpdate(@Param("id") Integer id);
+
     // Find all items for an order ID
     @Query("SELECT oi FROM OrderItem oi WHERE oi.order.id = :orderId")
     List<OrderItem> findByOrderId(@Param("orderId") Integer orderId);
@@ -65,6 +75,12 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
            "FROM OrderItem oi GROUP BY oi.product.id ORDER BY totalQuantity DESC LIMIT :count")
     List<Object[]> findTopSellingProducts(@Param("count") int count);
 
+    // Units sold per product since a date, ignoring carts and orders that did not go through
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi JOIN oi.order o " +
+           "WHERE o.orderDate >= :since AND o.status NOT IN :excludedStatuses GROUP BY oi.product.id")
+    List<Object[]> sumQuantitySoldSince(@Param("since") Date since,
+                                        @Param("excludedStatuses") Collection<OrderStatus> excludedStatuses);
+
     // Find order items for completed orders
     @Query("SELECT oi FROM OrderItem oi JOIN oi.order o WHERE o.status = 'COMPLETED'")
     List<OrderItem> findCompletedOrderItems();
@@ -1,8 +1,15 @@
 package pharmacy.pharmacy.dao;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import pharmacy.pharmacy.entity.Order;
 import pharmacy.pharmacy.entity.User;
 import pharmacy.pharmacy.enums.OrderStatus;
@@ -10,21 +17,61 @@ import pharmacy.pharmacy.enums.PaymentMethod;
 import pharmacy.pharmacy.enums.PaymentStatus;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface OrderRepository extends JpaRepository<Order, Integer> {
 
+    // Row-locked read for status changes, so two requests cannot both act on the same transition
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Integer id);
+
+    // Rows of [id, status, version, user_id, branch_id, total_amount] for a bulk status change, locked in id order
+    @Query(value = "SELECT id, status, version, user_id, branch_id, total_amount FROM orders " +
+                   "WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+           nativeQuery = true)
+    List<Object[]> lockStatusRows(@Param("ids") Collection<Integer> ids);
+
+    // Completing an order also marks a pending payment as paid, as updateOrderStatus does for one order
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status, o.version = o.version + 1, " +
+           "o.paymentStatus = CASE WHEN o.paymentStatus = 'PENDING' THEN :pendingPaymentStatus " +
+           "ELSE o.paymentStatus END WHERE o.id IN :ids")
+    int updateStatusInBulk(@Param("ids") Collection<Integer> ids, @Param("status") OrderStatus status,
+                           @Param("pendingPaymentStatus") PaymentStatus pendingPaymentStatus);
+
+    @Query("SELECT MIN(o.orderDate) FROM Order o WHERE o.status = :status")
+    Date findFirstOrderDateByStatus(@Param("status") OrderStatus status);
+
     // Find orders by user
     List<Order> findByUser(User user);
 
-    // Find orders by user ID
-    @Query("SELECT o FROM Order o WHERE o.user.id = :userId")
-    List<Order> findByUserId(@Param("userId") Integer userId);
-
-    // Find orders by branch
-    List<Order> findByBranchId(Integer branchId);
+    /**
+     * One page of order history, newest first, as rows of [order with its branch fetched, customer name].
+     * Rows come after the keyset position ({@code beforeDate}, {@code beforeId}) when it is given; every other
+     * null filter is ignored. Served by the (user|branch, [status,] order_date, id) indexes on {@code orders}.
+     */
+    @Query("SELECT o, u.name FROM Order o JOIN FETCH o.branch LEFT JOIN o.user u " +
+           "WHERE (:userId IS NULL OR o.user.id = :userId) " +
+           "AND (:branchId IS NULL OR o.branch.id = :branchId) " +
+           "AND (:status IS NULL OR o.status = :status) " +
+           "AND (:from IS NULL OR o.orderDate >= :from) " +
+           "AND (:to IS NULL OR o.orderDate < :to) " +
+           "AND (:beforeDate IS NULL OR o.orderDate < :beforeDate " +
+           "     OR (o.orderDate = :beforeDate AND o.id < :beforeId)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC LIMIT :limit")
+    List<Object[]> findHistoryPage(@Param("userId") Integer userId,
+                                   @Param("branchId") Integer branchId,
+                                   @Param("status") OrderStatus status,
+                                   @Param("from") Date from,
+                                   @Param("to") Date to,
+                                   @Param("beforeDate") Date beforeDate,
+                                   @Param("beforeId") Integer beforeId,
+                                   @Param("limit") int limit);
 
     // Find orders by status
     List<Order> findByStatus(OrderStatus status);
@@ -81,4 +128,32 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
     // Calculate total sales for a period
     @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate AND o.status = 'COMPLETED'")
     Optional<BigDecimal> calculateTotalSalesBetweenDates(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
-}
\ No newline at end of file
+
+    // Rows of [order, customer name], so listing every order does not load each customer separately
+    @Query("SELECT o, u.name FROM Order o LEFT JOIN o.user u ORDER BY o.id")
+    List<Object[]> findAllWithCustomerName();
+
+    // Rows of [order, customer name] for the stream endpoint. The user is not fetched as an entity because
+    // its eager roles would need a second statement while MySQL streams this result
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ProductRepository.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o, u.name FROM Order o LEFT JOIN o.user u ORDER BY o.id")
+    Stream<Object[]> streamAllWithCustomerName();
+
+    // Discount and tax are fixed amounts, so a line change moves the subtotal and the total by the same delta
+    @Modifying
+    @Query("UPDATE Order o SET o.subtotalAmount = o.subtotalAmount + :delta, o.totalAmount = o.totalAmount + :delta, " +
+           "o.version = o.version + 1 WHERE o.id = :orderId")
+    int adjustSubtotal(@Param("orderId") Integer orderId, @Param("delta") BigDecimal delta);
+
+    // Orders created before subtotals were stored; summed once at startup
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE orders o SET o.subtotal_amount = (SELECT COALESCE(SUM(oi.unit_price * oi.quantity " +
+                   "- COALESCE(oi.discount_amount, 0)), 0) FROM order_items oi WHERE oi.order_id = o.id) " +
+                   "WHERE o.subtotal_amount IS NULL",
+           nativeQuery = true)
+    int backfillSubtotals();
+}
@@ -1,27 +1,129 @@
 package pharmacy.pharmacy.dao;
 
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import pharmacy.pharmacy.dto.product.ProductBarcodeSnapshot;
+import pharmacy.pharmacy.dto.product.ProductResponse;
+import pharmacy.pharmacy.dto.product.ProductSuggestion;
 import pharmacy.pharmacy.entity.Product;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Integer> {
+public interface ProductRepository extends JpaRepository<Product, Integer>, JpaSpecificationExecutor<Product> {
 
     // Existing product queries
     boolean existsByBarcode(String barcode);
     Optional<Product> findByBarcode(String barcode);
+
+    @Query("SELECT p.barcode FROM Product p WHERE p.barcode IN :barcodes")
+    List<String> findExistingBarcodes(Collection<String> barcodes);
     List<Product> findByCategoryId(Integer categoryId);
     List<Product> findByNameContainingIgnoreCase(String name);
     List<Product> findByIsPrescriptionRequired(Boolean isPrescriptionRequired);
     List<Product> findByStockQuantityLessThanEqual(Integer stockQuantity);
     List<Product> findByExpiryDateBefore(LocalDate date);
 
+    // Compact projection for POS barcode scans; does not load the entity
+    @Query("SELECT new pharmacy.pharmacy.dto.product.ProductBarcodeSnapshot(" +
+           "p.id, p.barcode, p.name, p.price, p.isPrescriptionRequired, p.stockQuantity) " +
+           "FROM Product p WHERE p.barcode = :barcode")
+    Optional<ProductBarcodeSnapshot> findSnapshotByBarcode(String barcode);
+
+    @Query("SELECT new pharmacy.pharmacy.dto.product.ProductBarcodeSnapshot(" +
+           "p.id, p.barcode, p.name, p.price, p.isPrescriptionRequired, p.stockQuantity) " +
+           "FROM Product p WHERE p.id = :id")
+    Optional<ProductBarcodeSnapshot> findSnapshotById(Integer id);
+
+    // List rows built in a single statement; category name comes from the join, not a lazy load
+    String PRODUCT_RESPONSE_SELECT = "SELECT new pharmacy.pharmacy.dto.product.ProductResponse(" +
+            "p.id, p.name, p.price, c.id, c.name, p.barcode, p.stockQuantity, p.reorderLevel, p.expiryDate) " +
+            "FROM Product p LEFT JOIN p.category c ";
+
+    @Query(PRODUCT_RESPONSE_SELECT + "ORDER BY p.id")
+    List<ProductResponse> findAllResponses();
+
+    @Query(PRODUCT_RESPONSE_SELECT + "WHERE p.stockQuantity <= p.reorderLevel AND p.reorderLevel > 0 ORDER BY p.id")
+    List<ProductResponse> findResponsesBelowReorderLevel();
+
+    @Query(PRODUCT_RESPONSE_SELECT + "WHERE c.id = :categoryId ORDER BY p.name, p.id")
+    List<ProductResponse> findResponsesByCategoryId(Integer categoryId);
+
+    // Whole subtree in one join through the category closure table
+    @Query(PRODUCT_RESPONSE_SELECT + "JOIN CategoryClosure cc ON cc.descendantId = c.id " +
+           "WHERE cc.ancestorId = :categoryId ORDER BY p.name, p.id")
+    List<ProductResponse> findResponsesInCategorySubtree(Integer categoryId);
+
+    @Query(PRODUCT_RESPONSE_SELECT + "WHERE p.expiryDate BETWEEN CURRENT_DATE AND :thresholdDate ORDER BY p.expiryDate, p.id")
+    List<ProductResponse> findResponsesExpiringSoon(LocalDate thresholdDate);
+
+    // Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the whole result set
+    String STREAMING_FETCH_SIZE = "" + Integer.MIN_VALUE;
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query(PRODUCT_RESPONSE_SELECT + "WHERE p.stockQuantity <= p.reorderLevel AND p.reorderLevel > 0 ORDER BY p.id")
+    Stream<ProductResponse> streamResponsesBelowReorderLevel();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query(PRODUCT_RESPONSE_SELECT + "WHERE p.expiryDate BETWEEN CURRENT_DATE AND :thresholdDate ORDER BY p.expiryDate, p.id")
+    Stream<ProductResponse> streamResponsesExpiringSoon(LocalDate thresholdDate);
+
+    // Facet dimensions; the price bands must match CatalogFacetService.PRICE_BOUNDS
+    String STOCK_STATUS_CASE = "CASE WHEN p.stockQuantity <= 0 THEN 'OUT_OF_STOCK' " +
+            "WHEN p.reorderLevel IS NOT NULL AND p.stockQuantity <= p.reorderLevel THEN 'LOW_STOCK' " +
+            "ELSE 'IN_STOCK' END";
+    String PRICE_BUCKET_CASE = "CASE WHEN p.price < 100 THEN 0 WHEN p.price < 500 THEN 1 " +
+            "WHEN p.price < 1000 THEN 2 WHEN p.price < 5000 THEN 3 ELSE 4 END";
+
+    // Product counts per (category, prescription flag, stock status, price bucket); one small row per combination
+    @Query("SELECT p.category.id, p.isPrescriptionRequired, " + STOCK_STATUS_CASE + ", " + PRICE_BUCKET_CASE +
+           ", COUNT(p) FROM Product p " +
+           "GROUP BY p.category.id, p.isPrescriptionRequired, " + STOCK_STATUS_CASE + ", " + PRICE_BUCKET_CASE)
+    List<Object[]> countByFacets();
+
+    // Stock status per product, so a sale only drops the facet cache when it moves a product to another status
+    @Query("SELECT p.id, " + STOCK_STATUS_CASE + " FROM Product p")
+    List<Object[]> findStockStatuses();
+
+    @Query("SELECT " + STOCK_STATUS_CASE + " FROM Product p WHERE p.id = :productId")
+    List<String> findStockStatus(Integer productId);
+
+    // Type-ahead entries for the suggestion trie
+    @Query("SELECT new pharmacy.pharmacy.dto.product.ProductSuggestion(p.id, p.name, p.barcode, p.price, p.imageUrl) " +
+           "FROM Product p")
+    List<ProductSuggestion> findAllSuggestions();
+
+    @Query("SELECT new pharmacy.pharmacy.dto.product.ProductSuggestion(p.id, p.name, p.barcode, p.price, p.imageUrl) " +
+           "FROM Product p WHERE p.id = :productId")
+    Optional<ProductSuggestion> findSuggestionById(Integer productId);
+
+    // Category fetched in the same select, for the in-memory search index
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category")
+    List<Product> findAllWithCategory();
+
+    @EntityGraph("Product.withCategory")
+    Optional<Product> findWithCategoryById(Integer productId);
+
+    // Products now in the category or among the given ids, for re-indexing after a category change
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category " +
+           "WHERE p.category.id = :categoryId OR p.id IN :productIds")
+    List<Product> findAllWithCategoryByCategoryIdOrIdIn(Integer categoryId, Collection<Integer> productIds);
+
+    // Rows of [product version, category id, category version]; the product page ETag is built from these
+    @Query("SELECT p.version, c.id, c.version FROM Product p LEFT JOIN p.category c WHERE p.id = :productId")
+    List<Object[]> findPageVersions(Integer productId);
+
     // New image-related queries
     @Query("SELECT p.imageUrl FROM Product p WHERE p.id = :productId")
     Optional<String> findImageUrlById(Integer productId);
@@ -34,10 +136,33 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
 
     List<Product> findByImageUrlContaining(String domain); // For finding images from specific domain
 
+    @Query("SELECT DISTINCT p.imageUrl FROM Product p WHERE p.imageUrl LIKE '/uploads/%'")
+    List<String> findDistinctUploadedImageUrls();
+
+    @Modifying
+    @Query("UPDATE Product p SET p.imageUrl = :newUrl, p.version = p.version + 1 WHERE p.imageUrl = :oldUrl")
+    int replaceImageUrl(String oldUrl, String newUrl);
+
+    // Set-based so concurrent sales of one product can neither lose updates nor oversell; 0 rows means too little stock
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, p.version = p.version + 1 " +
+           "WHERE p.id = :productId AND p.stockQuantity >= :quantity")
+    int decrementStock(Integer productId, int quantity);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = COALESCE(p.stockQuantity, 0) + :quantity, p.version = p.version + 1 " +
+           "WHERE p.id = :productId")
+    int incrementStock(Integer productId, int quantity);
+
     // Existing complex queries
     @Query("SELECT p FROM Product p WHERE p.stockQuantity <= p.reorderLevel AND p.reorderLevel > 0")
     List<Product> findProductsBelowReorderLevel();
 
+    // Products of an order that are now out of stock or at or below their reorder level
+    @Query("SELECT DISTINCT p FROM OrderItem oi JOIN oi.product p WHERE oi.order.id = :orderId " +
+           "AND (p.stockQuantity <= 0 OR (p.reorderLevel > 0 AND p.stockQuantity <= p.reorderLevel))")
+    List<Product> findLowStockProductsInOrder(Integer orderId);
+
     @Query("SELECT p FROM Product p WHERE p.expiryDate BETWEEN CURRENT_DATE AND :thresholdDate")
     List<Product> findProductsExpiringSoon(LocalDate thresholdDate);
 
@@ -49,8 +174,8 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     List<Product> findInStockProductsWithImages();
 
     // New query for image update
-    @Query("UPDATE Product p SET p.imageUrl = :imageUrl WHERE p.id = :productId")
-    @Modifying
+    @Query("UPDATE Product p SET p.imageUrl = :imageUrl, p.version = p.version + 1 WHERE p.id = :productId")
+    @Modifying(clearAutomatically = true)
     @Transactional
     int updateProductImage(Integer productId, String imageUrl);
 }
\ No newline at end of file
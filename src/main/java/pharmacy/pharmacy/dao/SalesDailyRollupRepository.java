@@ -0,0 +1,122 @@
+package pharmacy.pharmacy.dao;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pharmacy.pharmacy.dto.report.SalesReportRow;
+import pharmacy.pharmacy.entity.SalesDailyRollup;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SalesDailyRollupRepository extends JpaRepository<SalesDailyRollup, SalesDailyRollup.Key> {
+
+    // Aggregates of order_items joined to their order and product, grouped to the rollup key
+    String ORDER_LINE_SUMS = "SELECT DATE(o.order_date) AS sales_date, o.branch_id, oi.product_id, " +
+            "MAX(p.category_id) AS category_id, SUM(oi.quantity) AS units, " +
+            "SUM(oi.unit_price * oi.quantity - COALESCE(oi.discount_amount, 0)) AS revenue, " +
+            "SUM(COALESCE(oi.unit_cost, p.cost_price) * oi.quantity) AS cost, " +
+            "SUM(COALESCE(oi.discount_amount, 0)) AS discount ";
+
+    String ORDER_LINE_AGGREGATE = ORDER_LINE_SUMS +
+            "FROM orders o JOIN order_items oi ON oi.order_id = o.id JOIN product p ON p.id = oi.product_id ";
+
+    // The same aggregate over orders moved to the archive tables
+    String ARCHIVED_ORDER_LINE_AGGREGATE = ORDER_LINE_SUMS + "FROM orders_archive o " +
+            "JOIN order_items_archive oi ON oi.order_id = o.id JOIN product p ON p.id = oi.product_id ";
+
+    // Lines sold before unit_cost was recorded take the product's current cost once, so from then on an order
+    // leaving COMPLETED subtracts the same cost it added
+    @Modifying
+    @Query(value = "UPDATE order_items oi JOIN product p ON p.id = oi.product_id SET oi.unit_cost = p.cost_price " +
+                   "WHERE oi.unit_cost IS NULL",
+           nativeQuery = true)
+    int backfillOrderItemCosts();
+
+    @Modifying
+    @Query(value = "UPDATE order_items_archive oi JOIN product p ON p.id = oi.product_id " +
+                   "SET oi.unit_cost = p.cost_price WHERE oi.unit_cost IS NULL",
+           nativeQuery = true)
+    int backfillArchivedOrderItemCosts();
+
+    String ROLLUP_COLUMNS = "(sales_date, branch_id, product_id, category_id, units, revenue, cost, discount)";
+
+    String REPORT_FILTER = "WHERE r.salesDate BETWEEN :from AND :to AND (:branchId IS NULL OR r.branchId = :branchId) ";
+
+    String REPORT_SUMS = "SUM(r.units), SUM(r.revenue), SUM(r.cost), SUM(r.discount)";
+
+    /**
+     * Adds the orders' lines to the rollup ({@code sign} 1) or takes them out again ({@code sign} -1).
+     * The derived table lets ON DUPLICATE KEY UPDATE refer to the new values.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sales_daily_rollup " + ROLLUP_COLUMNS + " " +
+                   "SELECT s.sales_date, s.branch_id, s.product_id, s.category_id, :sign * s.units, " +
+                   ":sign * s.revenue, :sign * s.cost, :sign * s.discount FROM (" + ORDER_LINE_AGGREGATE +
+                   "WHERE o.id IN (:orderIds) GROUP BY DATE(o.order_date), o.branch_id, oi.product_id) s " +
+                   "ON DUPLICATE KEY UPDATE units = sales_daily_rollup.units + :sign * s.units, " +
+                   "revenue = sales_daily_rollup.revenue + :sign * s.revenue, " +
+                   "cost = sales_daily_rollup.cost + :sign * s.cost, " +
+                   "discount = sales_daily_rollup.discount + :sign * s.discount",
+           nativeQuery = true)
+    int applyOrders(@Param("orderIds") Collection<Integer> orderIds, @Param("sign") int sign);
+
+    @Modifying
+    @Query("DELETE FROM SalesDailyRollup r WHERE r.salesDate BETWEEN :from AND :to")
+    int deleteBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Recomputes whole days from the raw orders; callers delete the same days first
+    @Modifying
+    @Query(value = "INSERT INTO sales_daily_rollup " + ROLLUP_COLUMNS + " " + ORDER_LINE_AGGREGATE +
+                   "WHERE o.status = 'COMPLETED' AND o.order_date >= :from AND o.order_date < :toExclusive " +
+                   "GROUP BY DATE(o.order_date), o.branch_id, oi.product_id",
+           nativeQuery = true)
+    int insertFromOrders(@Param("from") LocalDate from, @Param("toExclusive") LocalDate toExclusive);
+
+    // Adds archived orders to days just rebuilt from the live orders; a day may be split across both
+    @Modifying
+    @Query(value = "INSERT INTO sales_daily_rollup " + ROLLUP_COLUMNS + " " +
+                   "SELECT s.sales_date, s.branch_id, s.product_id, s.category_id, s.units, s.revenue, s.cost, " +
+                   "s.discount FROM (" + ARCHIVED_ORDER_LINE_AGGREGATE +
+                   "WHERE o.status = 'COMPLETED' AND o.order_date >= :from AND o.order_date < :toExclusive " +
+                   "GROUP BY DATE(o.order_date), o.branch_id, oi.product_id) s " +
+                   "ON DUPLICATE KEY UPDATE units = sales_daily_rollup.units + s.units, " +
+                   "revenue = sales_daily_rollup.revenue + s.revenue, " +
+                   "cost = sales_daily_rollup.cost + s.cost, " +
+                   "discount = sales_daily_rollup.discount + s.discount",
+           nativeQuery = true)
+    int addFromArchivedOrders(@Param("from") LocalDate from, @Param("toExclusive") LocalDate toExclusive);
+
+    @Query("SELECT new pharmacy.pharmacy.dto.report.SalesReportRow(" + REPORT_SUMS + ") " +
+           "FROM SalesDailyRollup r " + REPORT_FILTER)
+    SalesReportRow sumBetween(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                              @Param("branchId") Integer branchId);
+
+    @Query("SELECT new pharmacy.pharmacy.dto.report.SalesReportRow(r.salesDate, " + REPORT_SUMS + ") " +
+           "FROM SalesDailyRollup r " + REPORT_FILTER + "GROUP BY r.salesDate ORDER BY r.salesDate")
+    List<SalesReportRow> sumByDay(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                  @Param("branchId") Integer branchId);
+
+    @Query("SELECT new pharmacy.pharmacy.dto.report.SalesReportRow(r.productId, p.name, " + REPORT_SUMS + ") " +
+           "FROM SalesDailyRollup r LEFT JOIN Product p ON p.id = r.productId " + REPORT_FILTER +
+           "GROUP BY r.productId, p.name ORDER BY SUM(r.revenue) DESC")
+    List<SalesReportRow> sumByProduct(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                      @Param("branchId") Integer branchId, Pageable pageable);
+
+    @Query("SELECT new pharmacy.pharmacy.dto.report.SalesReportRow(r.categoryId, c.name, " + REPORT_SUMS + ") " +
+           "FROM SalesDailyRollup r LEFT JOIN Category c ON c.id = r.categoryId " + REPORT_FILTER +
+           "GROUP BY r.categoryId, c.name ORDER BY SUM(r.revenue) DESC")
+    List<SalesReportRow> sumByCategory(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                       @Param("branchId") Integer branchId);
+
+    @Query("SELECT new pharmacy.pharmacy.dto.report.SalesReportRow(r.branchId, b.name, " + REPORT_SUMS + ") " +
+           "FROM SalesDailyRollup r LEFT JOIN Branch b ON b.id = r.branchId " + REPORT_FILTER +
+           "GROUP BY r.branchId, b.name ORDER BY SUM(r.revenue) DESC")
+    List<SalesReportRow> sumByBranch(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                     @Param("branchId") Integer branchId);
+}
@@ -1,13 +1,17 @@
 package pharmacy.pharmacy.dao;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import pharmacy.pharmacy.entity.Stock;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface StockRepository extends JpaRepository<Stock, Integer> {
@@ -51,4 +55,13 @@ public interface StockRepository extends JpaRepository<Stock, Integer> {
     // Find stock entries that haven't expired yet
     @Query("SELECT s FROM Stock s WHERE s.expiryDate IS NULL OR s.expiryDate >= CURRENT_DATE")
     List<Stock> findNonExpiredStock();
-}
\ No newline at end of file
+
+    // Streaming cursor for the NDJSON/JSON stream endpoint. Everything the mapper reads is fetched in the same
+    // row, since no other statement can run on the connection while MySQL streams a result
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ProductRepository.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM Stock s JOIN FETCH s.product LEFT JOIN FETCH s.branch ORDER BY s.id")
+    Stream<Stock> streamAllWithProductAndBranch();
+}
@@ -0,0 +1,31 @@
+package pharmacy.pharmacy.dao;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pharmacy.pharmacy.entity.StockReservation;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    // Locked so the sweeper cannot release a hold while checkout is committing it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.holderId = :holderId ORDER BY r.productId")
+    List<StockReservation> findByHolderIdForUpdate(@Param("holderId") String holderId);
+
+    // Expired holds, oldest first; holds locked by a checkout or another sweeper are skipped
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))  // -2 = SKIP LOCKED
+    @Query("SELECT r FROM StockReservation r WHERE r.expiresAt <= :now ORDER BY r.expiresAt, r.id")
+    List<StockReservation> findExpiredForUpdate(@Param("now") Date now, Pageable pageable);
+
+}
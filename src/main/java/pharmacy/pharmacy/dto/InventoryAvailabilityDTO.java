@@ -0,0 +1,13 @@
+package pharmacy.pharmacy.dto;
+
+import lombok.Data;
+
+@Data
+public class InventoryAvailabilityDTO {
+    private Integer branchId;
+    private Integer productId;
+    // False when the branch keeps no inventory record for the product; its sales are then not limited
+    private boolean tracked;
+    // Stock level less the quantity held for open carts; null when not tracked
+    private Integer available;
+}
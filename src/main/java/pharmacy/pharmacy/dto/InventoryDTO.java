@@ -10,6 +10,8 @@ public class InventoryDTO {
     private Integer branchId;
     private String shelfLocation;
     private Integer stockLevel;
+    // Held for open carts; read-only
+    private Integer reservedQuantity;
     private Integer minimumStockLevel;
     private Integer maximumStockLevel;
     private Date lastRestocked;
@@ -15,6 +15,7 @@ public class OrderDTO {
     private Integer userId;
     private Integer branchId;
     private Date orderDate;
+    private BigDecimal subtotalAmount;
     private BigDecimal totalAmount;
     private BigDecimal discountAmount;
     private BigDecimal taxAmount;
@@ -24,6 +25,7 @@ public class OrderDTO {
     private String notes;
     private Integer processedById;
     private List<OrderItemDTO> orderItems;
+    private Long version;
 
     // Additional fields for display purposes
     private String userName;
@@ -0,0 +1,17 @@
+package pharmacy.pharmacy.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryPageResponse {
+    private List<OrderDTO> items;
+    private String nextCursor;   // Opaque; pass back as ?cursor= to fetch the next page
+    private boolean hasNext;
+    private int size;
+}
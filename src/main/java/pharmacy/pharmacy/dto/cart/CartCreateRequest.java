@@ -0,0 +1,18 @@
+package pharmacy.pharmacy.dto.cart;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class CartCreateRequest {
+    @NotNull(message = "Branch is required")
+    private Integer branchId;
+
+    // Null for walk-in customers
+    private Integer userId;
+
+    private BigDecimal discountAmount;
+    private BigDecimal taxAmount;
+}
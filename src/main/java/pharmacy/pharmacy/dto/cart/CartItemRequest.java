@@ -0,0 +1,18 @@
+package pharmacy.pharmacy.dto.cart;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+/**
+ * A product to add to a cart, identified by barcode (answered from the barcode cache) or by id.
+ */
+@Data
+public class CartItemRequest {
+    private String barcode;
+    private Integer productId;
+
+    @NotNull(message = "Quantity is required")
+    @Positive(message = "Quantity must be greater than 0")
+    private Integer quantity;
+}
@@ -0,0 +1,23 @@
+package pharmacy.pharmacy.dto.cart;
+
+import lombok.Data;
+import pharmacy.pharmacy.dto.OrderItemDTO;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+@Data
+public class CartResponse {
+    private String id;
+    private Integer branchId;
+    private Integer userId;
+    private Date createdAt;
+    private List<OrderItemDTO> items;
+    private BigDecimal subtotalAmount;
+    private BigDecimal discountAmount;
+    private BigDecimal taxAmount;
+    private BigDecimal totalAmount;
+    // Set once the cart has been checked out
+    private Integer orderId;
+}
@@ -0,0 +1,19 @@
+package pharmacy.pharmacy.dto.category;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogFacetsResponse {
+    private long totalProducts;                // Matching every selected filter
+    private List<CategoryFacet> categories;    // Tree below the selected category (or the roots)
+    private long uncategorizedCount;
+    private List<FacetCount> prescriptionRequired;
+    private List<FacetCount> stockStatus;
+    private List<PriceRangeFacet> priceRanges;
+}
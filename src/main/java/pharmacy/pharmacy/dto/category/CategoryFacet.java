@@ -0,0 +1,17 @@
+package pharmacy.pharmacy.dto.category;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryFacet {
+    private Integer id;
+    private String name;
+    private long productCount;  // Includes products in all descendant categories
+    private List<CategoryFacet> children;
+}
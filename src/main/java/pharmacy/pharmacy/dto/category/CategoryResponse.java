@@ -13,6 +13,7 @@ public class CategoryResponse {
     private String name;
     private String imageUrl;
     private String description;
+    private String thumbnailUrl;
 
     public CategoryResponse(Category category) {
         this.id = category.getId();
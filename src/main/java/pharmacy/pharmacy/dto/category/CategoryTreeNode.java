@@ -0,0 +1,22 @@
+package pharmacy.pharmacy.dto.category;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Node of the cached category tree. Immutable (children is an unmodifiable list) because one
+ * snapshot is shared by all readers until the next category write replaces it.
+ */
+@Getter
+@AllArgsConstructor
+public class CategoryTreeNode {
+    private final Integer id;
+    private final String name;
+    private final String description;
+    private final String imageUrl;
+    private final Integer parentId;
+    private final int depth;
+    private final List<CategoryTreeNode> children;
+}
@@ -0,0 +1,17 @@
+package pharmacy.pharmacy.dto.category;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceRangeFacet {
+    private int bucket;           // Pass back as priceBucket to filter on this range
+    private BigDecimal minPrice;  // Inclusive
+    private BigDecimal maxPrice;  // Exclusive; null for the open-ended top range
+    private long count;
+}
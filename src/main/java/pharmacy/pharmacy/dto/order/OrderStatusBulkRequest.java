@@ -0,0 +1,18 @@
+package pharmacy.pharmacy.dto.order;
+
+import lombok.Data;
+import pharmacy.pharmacy.enums.OrderStatus;
+
+import java.util.List;
+
+@Data
+public class OrderStatusBulkRequest {
+    private OrderStatus status;
+    private List<OrderVersion> orders;
+
+    @Data
+    public static class OrderVersion {
+        private Integer id;
+        private Long version;   // Version the client last read; null skips the check
+    }
+}
@@ -0,0 +1,17 @@
+package pharmacy.pharmacy.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pharmacy.pharmacy.enums.OrderStatus;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusBulkResponse {
+    private OrderStatus status;
+    private int updated;
+    private List<OrderStatusBulkResult> results;   // One per requested order, in request order
+}
@@ -0,0 +1,17 @@
+package pharmacy.pharmacy.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pharmacy.pharmacy.enums.OrderStatus;
+import pharmacy.pharmacy.enums.OrderTransitionOutcome;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusBulkResult {
+    private Integer id;
+    private OrderTransitionOutcome outcome;
+    private OrderStatus previousStatus;   // Status before the request; null when not found
+    private Long version;                 // Current version after the request; null when not found
+}
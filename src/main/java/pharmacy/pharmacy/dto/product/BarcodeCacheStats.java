@@ -0,0 +1,20 @@
+package pharmacy.pharmacy.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BarcodeCacheStats {
+    private int size;
+    private int maxSize;
+    private long ttlSeconds;
+    private long hits;
+    private long misses;
+    private long evictions;      // Dropped to stay within maxSize
+    private long expirations;    // Dropped because they outlived the TTL
+    private long invalidations;  // Dropped because the product was written
+    private double hitRatio;
+}
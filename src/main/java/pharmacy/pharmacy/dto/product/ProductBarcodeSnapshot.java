@@ -0,0 +1,21 @@
+package pharmacy.pharmacy.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Compact, immutable view of a product for POS barcode scans. Safe to share between
+ * threads and to keep in the barcode lookup cache.
+ */
+@Getter
+@AllArgsConstructor
+public final class ProductBarcodeSnapshot {
+    private final Integer id;
+    private final String barcode;
+    private final String name;
+    private final BigDecimal price;
+    private final Boolean isPrescriptionRequired;
+    private final Integer stockQuantity;
+}
@@ -0,0 +1,17 @@
+package pharmacy.pharmacy.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCursorPageResponse {
+    private List<ProductResponse> items;
+    private String nextCursor;   // Opaque; pass back as ?cursor= to fetch the next page
+    private boolean hasNext;
+    private int size;
+}
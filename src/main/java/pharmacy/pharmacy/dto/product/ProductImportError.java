@@ -0,0 +1,14 @@
+package pharmacy.pharmacy.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportError {
+    private int rowNumber;    // Spreadsheet row number; the header is row 1
+    private String barcode;
+    private String message;
+}
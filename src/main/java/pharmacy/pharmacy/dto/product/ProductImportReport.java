@@ -0,0 +1,19 @@
+package pharmacy.pharmacy.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportReport {
+    private int totalRows;
+    private int imported;
+    private int failed;
+    private long durationMillis;
+    private List<ProductImportError> errors;
+    private boolean errorsTruncated;  // True when more rows failed than are listed in errors
+}
@@ -1,15 +1,18 @@
 package pharmacy.pharmacy.dto.product;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Data
+@NoArgsConstructor
 public class ProductResponse {
     private Integer id;
     private String name;
     private String description;  // Added product description
     private String imageUrl;     // Added product image
+    private String thumbnailUrl; // Small variant for listings; the original until it has been generated
     private BigDecimal price;
     private BigDecimal costPrice;  // Added cost price
     private String categoryName;
@@ -21,6 +24,20 @@ public class ProductResponse {
     private Boolean isPrescriptionRequired;  // Added prescription requirement
     private String batchNumber;    // Added batch number
 
+    // Used by the JPQL constructor-expression list queries in ProductRepository
+    public ProductResponse(Integer id, String name, BigDecimal price, Integer categoryId, String categoryName,
+                           String barcode, Integer stockQuantity, Integer reorderLevel, LocalDate expiryDate) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.barcode = barcode;
+        this.stockQuantity = stockQuantity;
+        this.reorderLevel = reorderLevel;
+        this.expiryDate = expiryDate;
+    }
+
     // Optional: Add status indicators
     public String getStockStatus() {
         if (stockQuantity == null) return "UNKNOWN";
@@ -0,0 +1,22 @@
+package pharmacy.pharmacy.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchHit {
+    private Integer id;
+    private String name;
+    private String barcode;
+    private String categoryName;
+    private BigDecimal price;
+    private String imageUrl;
+    private String thumbnailUrl;
+    private Boolean isPrescriptionRequired;
+    private double score;  // Relevance; higher is better
+}
@@ -0,0 +1,18 @@
+package pharmacy.pharmacy.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResponse {
+    private String query;
+    private int page;
+    private int size;
+    private long totalHits;
+    private List<ProductSearchHit> hits;
+}
@@ -0,0 +1,20 @@
+package pharmacy.pharmacy.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Type-ahead entry. Immutable because instances are shared by the in-memory suggestion trie;
+ * the constructor is also used by a JPQL constructor expression.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductSuggestion {
+    private final Integer id;
+    private final String name;
+    private final String barcode;
+    private final BigDecimal price;
+    private final String imageUrl;
+}
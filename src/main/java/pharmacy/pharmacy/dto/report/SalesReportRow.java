@@ -0,0 +1,44 @@
+package pharmacy.pharmacy.dto.report;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Sales totals for a period, a day, or one product, category or branch. The constructors are used by the
+ * rollup queries; sums over no rows arrive as null and are reported as zero.
+ */
+@Data
+@NoArgsConstructor
+public class SalesReportRow {
+    private LocalDate date;
+    private Integer id;
+    private String name;
+    private long units;
+    private BigDecimal revenue;
+    private BigDecimal cost;
+    private BigDecimal discount;
+    private BigDecimal grossProfit;
+
+    public SalesReportRow(Long units, BigDecimal revenue, BigDecimal cost, BigDecimal discount) {
+        this.units = units != null ? units : 0;
+        this.revenue = revenue != null ? revenue : BigDecimal.ZERO;
+        this.cost = cost != null ? cost : BigDecimal.ZERO;
+        this.discount = discount != null ? discount : BigDecimal.ZERO;
+        this.grossProfit = this.revenue.subtract(this.cost);
+    }
+
+    public SalesReportRow(LocalDate date, Long units, BigDecimal revenue, BigDecimal cost, BigDecimal discount) {
+        this(units, revenue, cost, discount);
+        this.date = date;
+    }
+
+    public SalesReportRow(Integer id, String name, Long units, BigDecimal revenue, BigDecimal cost,
+                          BigDecimal discount) {
+        this(units, revenue, cost, discount);
+        this.id = id;
+        this.name = name;
+    }
+}
@@ -0,0 +1,21 @@
+package pharmacy.pharmacy.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesSummaryResponse {
+    private LocalDate from;
+    private LocalDate to;
+    // Null when the totals cover all branches
+    private Integer branchId;
+    private SalesReportRow totals;
+    // One row per day that had sales
+    private List<SalesReportRow> days;
+}
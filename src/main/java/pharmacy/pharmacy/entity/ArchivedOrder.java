@@ -0,0 +1,82 @@
+package pharmacy.pharmacy.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import pharmacy.pharmacy.enums.OrderStatus;
+import pharmacy.pharmacy.enums.PaymentMethod;
+import pharmacy.pharmacy.enums.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * A COMPLETED or CANCELLED order moved out of {@code orders} once it passed the archive horizon. Keeps the
+ * live row's id and columns; references are plain ids without foreign keys, so archived rows never hold up
+ * changes elsewhere.
+ */
+@Entity
+@Table(name = "orders_archive", indexes = {
+        @Index(name = "idx_orders_archive_user_date", columnList = "user_id, order_date, id"),
+        @Index(name = "idx_orders_archive_branch_date", columnList = "branch_id, order_date, id"),
+        @Index(name = "idx_orders_archive_date", columnList = "order_date")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedOrder {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "user_id")
+    private Integer userId;
+
+    @Column(name = "branch_id", nullable = false)
+    private Integer branchId;
+
+    @Column(name = "order_date", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date orderDate;
+
+    @Column(name = "subtotal_amount", precision = 10, scale = 2)
+    private BigDecimal subtotalAmount;
+
+    @Column(name = "total_amount", nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "discount_amount", precision = 10, scale = 2)
+    private BigDecimal discountAmount;
+
+    @Column(name = "tax_amount", precision = 10, scale = 2)
+    private BigDecimal taxAmount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_method")
+    private PaymentMethod paymentMethod;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_status")
+    private PaymentStatus paymentStatus;
+
+    @Column(name = "created_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+
+    @Column(name = "processed_by")
+    private Integer processedBy;
+
+    @Column(length = 500)
+    private String notes;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(name = "archived_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date archivedAt;
+}
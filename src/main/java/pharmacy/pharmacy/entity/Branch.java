@@ -34,6 +34,11 @@ public class Branch {
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
+    // Optimistic-lock version; also the basis of the resource's ETag
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     // Relationships
     @OneToMany(mappedBy = "branch", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Employee> employees = new HashSet<>();
@@ -44,6 +44,11 @@ public class Category {
     @Column(name = "created_at", updatable = false)
     private Date createdAt;
 
+    // Optimistic-lock version; also the basis of the resource's ETag
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     // Helper methods for bidirectional relationships
     public void addChildCategory(Category child) {
         children.add(child);
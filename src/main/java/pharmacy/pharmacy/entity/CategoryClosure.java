@@ -0,0 +1,45 @@
+package pharmacy.pharmacy.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Closure table of the category hierarchy: one row for every (ancestor, descendant) pair,
+ * including each category paired with itself at depth 0. Subtree and ancestor queries become
+ * a single indexed lookup instead of a walk over {@code Category.parent}.
+ */
+@Entity
+@Table(name = "category_closure", indexes = {
+        @Index(name = "idx_category_closure_descendant", columnList = "descendant_id, depth")
+})
+@IdClass(CategoryClosure.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryClosure {
+
+    @Id
+    @Column(name = "ancestor_id", nullable = false)
+    private Integer ancestorId;
+
+    @Id
+    @Column(name = "descendant_id", nullable = false)
+    private Integer descendantId;
+
+    // Number of edges between ancestor and descendant
+    @Column(nullable = false)
+    private Integer depth;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Integer ancestorId;
+        private Integer descendantId;
+    }
+}
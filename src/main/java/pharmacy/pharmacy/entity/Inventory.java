@@ -9,7 +9,8 @@ import pharmacy.pharmacy.entity.Product;
 import java.util.Date;
 
 @Entity
-@Table(name = "inventory")
+@Table(name = "inventory",
+        indexes = @Index(name = "idx_inventory_branch_product", columnList = "branch_id, product_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -35,6 +36,11 @@ public class Inventory {
     @Column(name = "stock_level", nullable = false, columnDefinition = "INT DEFAULT 0")
     private Integer stockLevel = 0;
 
+    // Part of stockLevel held for open carts; only stockLevel - reservedQuantity can be sold or held
+    @Column(name = "reserved_quantity", nullable = false, columnDefinition = "INT DEFAULT 0")
+    @Builder.Default
+    private Integer reservedQuantity = 0;
+
     @Column(name = "minimum_stock_level")
     private Integer minimumStockLevel;
 
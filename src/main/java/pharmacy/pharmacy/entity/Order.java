@@ -12,7 +12,14 @@ import java.util.Date;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Keyset order history per customer and per branch, newest first
+        @Index(name = "idx_orders_user_date", columnList = "user_id, order_date, id"),
+        @Index(name = "idx_orders_branch_date", columnList = "branch_id, order_date, id"),
+        @Index(name = "idx_orders_branch_status_date", columnList = "branch_id, status, order_date, id"),
+        // Status lookups, and the archiver's search for old COMPLETED/CANCELLED orders
+        @Index(name = "idx_orders_status_date", columnList = "status, order_date")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -36,6 +43,12 @@ public class Order {
     @Temporal(TemporalType.TIMESTAMP)
     private Date orderDate;
 
+    // Sum of the line totals, kept current on every item change so reads and checkout never re-sum the lines
+    @Column(name = "subtotal_amount", precision = 10, scale = 2)
+    @Builder.Default
+    private BigDecimal subtotalAmount = BigDecimal.ZERO;
+
+    // Always subtotalAmount - discountAmount + taxAmount
     @Column(name = "total_amount", nullable = false, precision = 10, scale = 2)
     private BigDecimal totalAmount;
 
@@ -71,6 +84,11 @@ public class Order {
     @Column(length = 500)
     private String notes;
 
+    // Optimistic-lock version; bulk updates of the order bump it as well
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     // Business logic methods
     public void addOrderItem(OrderItem item) {
         orderItems.add(item);
@@ -82,6 +100,12 @@ public class Order {
         item.setOrder(null);
     }
 
+    // For an order held in memory; rows of other orders are adjusted with OrderRepository.adjustSubtotal
+    public void adjustSubtotal(BigDecimal delta) {
+        this.subtotalAmount = (subtotalAmount != null ? subtotalAmount : BigDecimal.ZERO).add(delta);
+        this.totalAmount = (totalAmount != null ? totalAmount : BigDecimal.ZERO).add(delta);
+    }
+
     public void calculateTotal() {
         this.totalAmount = orderItems.stream()
             .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
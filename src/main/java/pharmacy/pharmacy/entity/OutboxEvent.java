@@ -0,0 +1,72 @@
+package pharmacy.pharmacy.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import pharmacy.pharmacy.enums.OutboxStatus;
+
+import java.util.Date;
+
+/**
+ * An event written in the same transaction as the state change it describes, and delivered to its handlers
+ * afterwards by the outbox dispatcher. The event exists if and only if the change committed.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_status_available", columnList = "status, available_at"),
+        @Index(name = "idx_outbox_aggregate_status", columnList = "aggregate_id, status")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_type", nullable = false, length = 64)
+    private String eventType;
+
+    // Events of one aggregate (an order) are delivered in id order
+    @Column(name = "aggregate_id", nullable = false)
+    private Integer aggregateId;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // Not picked up before this time; pushed back after each failed attempt
+    @Column(name = "available_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date availableAt;
+
+    // Comma-separated names of the handlers that have processed the event, so a retry skips them
+    @Column(name = "delivered_to", length = 500)
+    private String deliveredTo;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+
+    @Column(name = "processed_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date processedAt;
+
+    public boolean isDeliveredTo(String handlerName) {
+        return deliveredTo != null && ("," + deliveredTo + ",").contains("," + handlerName + ",");
+    }
+
+    public void markDeliveredTo(String handlerName) {
+        deliveredTo = deliveredTo == null || deliveredTo.isEmpty() ? handlerName : deliveredTo + "," + handlerName;
+    }
+}
@@ -11,6 +11,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "product")
+@NamedEntityGraph(name = "Product.withCategory", attributeNodes = @NamedAttributeNode("category"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -59,6 +60,11 @@ public class Product {
     @Column(name = "created_at", updatable = false)
     private Date createdAt;
 
+    // Optimistic-lock version; also the basis of the resource's ETag
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     // Category relationship (uncommented and corrected)
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
@@ -0,0 +1,67 @@
+package pharmacy.pharmacy.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Completed-order sales pre-aggregated per day, branch and product. Rows are adjusted in the transaction
+ * that moves an order into or out of COMPLETED, so reports read a few rows per day instead of every order.
+ */
+@Entity
+@Table(name = "sales_daily_rollup", indexes = {
+        @Index(name = "idx_sales_rollup_branch_date", columnList = "branch_id, sales_date"),
+        @Index(name = "idx_sales_rollup_product_date", columnList = "product_id, sales_date")
+})
+@IdClass(SalesDailyRollup.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesDailyRollup {
+
+    @Id
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Id
+    @Column(name = "branch_id", nullable = false)
+    private Integer branchId;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    // The product's category when the sale was recorded
+    @Column(name = "category_id")
+    private Integer categoryId;
+
+    @Column(nullable = false)
+    private Long units;
+
+    // Line totals after line discounts
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    // Units at the product's cost price
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal cost;
+
+    // Line discounts; order-level discounts are not attributed to products
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal discount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private LocalDate salesDate;
+        private Integer branchId;
+        private Integer productId;
+    }
+}
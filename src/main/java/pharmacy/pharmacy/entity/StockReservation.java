@@ -0,0 +1,50 @@
+package pharmacy.pharmacy.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.util.Date;
+
+/**
+ * Stock set aside at a branch for one cart line. The same quantity is counted in
+ * {@code inventory.reserved_quantity} until the hold is committed at checkout or released.
+ */
+@Entity
+@Table(name = "stock_reservations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stock_reservations_holder_product",
+                columnNames = {"holder_id", "product_id"}),
+        indexes = @Index(name = "idx_stock_reservations_expires", columnList = "expires_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // The cart the stock is held for
+    @Column(name = "holder_id", nullable = false, length = 64)
+    private String holderId;
+
+    @Column(name = "branch_id", nullable = false)
+    private Integer branchId;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    // Released by the sweeper after this time unless the cart is used again
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "expires_at", nullable = false)
+    private Date expiresAt;
+
+    @CreationTimestamp
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "created_at", updatable = false)
+    private Date createdAt;
+}
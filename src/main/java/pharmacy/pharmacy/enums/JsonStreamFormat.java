@@ -0,0 +1,31 @@
+package pharmacy.pharmacy.enums;
+
+public enum JsonStreamFormat {
+    NDJSON("ndjson", "application/x-ndjson"),  // One JSON object per line
+    JSON("json", "application/json");          // A single array, written element by element
+
+    private final String parameter;
+    private final String contentType;
+
+    JsonStreamFormat(String parameter, String contentType) {
+        this.parameter = parameter;
+        this.contentType = contentType;
+    }
+
+    public String getParameter() {
+        return parameter;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static JsonStreamFormat fromString(String text) {
+        for (JsonStreamFormat format : JsonStreamFormat.values()) {
+            if (format.parameter.equalsIgnoreCase(text)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("No stream format " + text + " found");
+    }
+}
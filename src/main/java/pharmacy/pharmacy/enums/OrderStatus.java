@@ -10,5 +10,21 @@ public enum OrderStatus {
     COMPLETED,    // Order is completed (picked up or delivered)
     CANCELLED,    // Order was cancelled
     REFUNDED,     // Order was refunded
-    FAILED        // Order processing failed
+    FAILED;       // Order processing failed
+
+    // Statuses an order may move to next; CANCELLED, REFUNDED and FAILED are final
+    public boolean canTransitionTo(OrderStatus next) {
+        return switch (this) {
+            case CART -> next == PENDING || next == CANCELLED;
+            case PENDING -> next == PROCESSING || next == READY || next == COMPLETED || next == CANCELLED
+                    || next == FAILED;
+            case PROCESSING -> next == READY || next == SHIPPED || next == COMPLETED || next == CANCELLED
+                    || next == FAILED;
+            case READY -> next == SHIPPED || next == DELIVERED || next == COMPLETED || next == CANCELLED;
+            case SHIPPED -> next == DELIVERED || next == COMPLETED || next == FAILED;
+            case DELIVERED -> next == COMPLETED || next == REFUNDED;
+            case COMPLETED -> next == REFUNDED;
+            case CANCELLED, REFUNDED, FAILED -> false;
+        };
+    }
 }
\ No newline at end of file
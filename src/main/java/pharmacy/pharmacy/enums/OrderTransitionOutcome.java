@@ -0,0 +1,9 @@
+package pharmacy.pharmacy.enums;
+
+public enum OrderTransitionOutcome {
+    UPDATED,             // Moved to the requested status
+    UNCHANGED,           // Already had the requested status
+    NOT_FOUND,           // No order with this ID
+    VERSION_CONFLICT,    // Changed since the client read it; re-read and retry
+    INVALID_TRANSITION   // The requested status cannot follow the current one
+}
@@ -0,0 +1,7 @@
+package pharmacy.pharmacy.enums;
+
+public enum OutboxStatus {
+    PENDING,       // Waiting for, or between, delivery attempts
+    PROCESSED,     // Every handler has processed the event
+    FAILED         // Gave up after the maximum number of attempts
+}
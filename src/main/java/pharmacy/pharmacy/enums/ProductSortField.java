@@ -0,0 +1,29 @@
+package pharmacy.pharmacy.enums;
+
+public enum ProductSortField {
+    NAME("name"),
+    PRICE("price"),
+    CREATED_AT("createdAt"),
+    ID("id");
+
+    private final String property;
+
+    ProductSortField(String property) {
+        this.property = property;
+    }
+
+    // Entity property used for ordering and keyset comparison
+    public String getProperty() {
+        return property;
+    }
+
+    // Accepts either the enum name (CREATED_AT) or the property name (createdAt)
+    public static ProductSortField fromString(String text) {
+        for (ProductSortField field : ProductSortField.values()) {
+            if (field.name().equalsIgnoreCase(text) || field.property.equalsIgnoreCase(text)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("No sort field " + text + " found");
+    }
+}
@@ -0,0 +1,15 @@
+package pharmacy.pharmacy.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@code CategoryService} when a category is created, updated or deleted,
+ * so cached views of the category hierarchy can be dropped after commit.
+ */
+@Getter
+@AllArgsConstructor
+public class CategoryChangedEvent {
+
+    private final Integer categoryId;
+}
@@ -0,0 +1,16 @@
+package pharmacy.pharmacy.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a branch's stock level or reserved quantity for a product changes (holds, sales,
+ * inventory edits). Delivered to listeners after the writing transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class InventoryChangedEvent {
+
+    private final Integer branchId;
+    private final Integer productId;
+}
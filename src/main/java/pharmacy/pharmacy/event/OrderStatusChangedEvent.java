@@ -0,0 +1,27 @@
+package pharmacy.pharmacy.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pharmacy.pharmacy.enums.OrderStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Outbox payload written whenever an order is created or changes status; {@code previousStatus} is null
+ * for a new order. Delivered to the {@code OrderEventHandler}s after the writing transaction commits.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusChangedEvent {
+
+    public static final String TYPE = "ORDER_STATUS_CHANGED";
+
+    private Integer orderId;
+    private Integer userId;
+    private Integer branchId;
+    private OrderStatus previousStatus;
+    private OrderStatus status;
+    private BigDecimal totalAmount;
+}
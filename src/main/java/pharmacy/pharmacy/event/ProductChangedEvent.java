@@ -0,0 +1,24 @@
+package pharmacy.pharmacy.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@code ProductService} whenever a product row is written. Listeners that keep
+ * in-memory views of the catalog subscribe after commit so they never see rolled-back data.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final ChangeType changeType;
+    private final Integer productId;
+    private final String previousBarcode;  // Barcode before the write (null on create)
+    private final String currentBarcode;   // Barcode after the write (null on delete)
+}
@@ -0,0 +1,15 @@
+package pharmacy.pharmacy.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published once after a bulk catalog import. Rows are inserted through JDBC, so listeners that keep
+ * in-memory views of the catalog should reload rather than expect per-product events.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductsImportedEvent {
+
+    private final int importedCount;
+}
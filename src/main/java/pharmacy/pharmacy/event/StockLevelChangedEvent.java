@@ -0,0 +1,16 @@
+package pharmacy.pharmacy.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a product's on-hand quantity changes outside a full product update
+ * (stock receipts, sales). Delivered to listeners after the writing transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class StockLevelChangedEvent {
+
+    private final Integer productId;
+    private final String barcode;
+}
@@ -22,14 +22,16 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleGlobalException(GlobalException ex, WebRequest request) {
         Sentry.captureException(ex);
 
+        HttpStatus status = ex.getHttpStatus() != null ? ex.getHttpStatus() : HttpStatus.INTERNAL_SERVER_ERROR;
+
         ErrorResponse errorResponse = new ErrorResponse(
                 LocalDateTime.now(),
                 ex.getMessage(),
                 request.getDescription(false),
-                HttpStatus.INTERNAL_SERVER_ERROR.value()
+                status.value()
         );
 
-        return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        return new ResponseEntity<>(errorResponse, status);
     }
 
     @ExceptionHandler(ResourceNotFoundException.class)
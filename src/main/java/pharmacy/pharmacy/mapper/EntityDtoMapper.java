@@ -20,6 +20,22 @@ public class EntityDtoMapper {
         return dto;
     }
 
+    // User Mapper (never exposes the password hash)
+    public static UserDTO convertToUserDTO(User user) {
+        UserDTO dto = new UserDTO();
+        dto.setId(user.getId());
+        dto.setName(user.getName());
+        dto.setEmail(user.getEmail());
+        dto.setContactNumber(user.getPhoneNumber());
+        if (user.getRoles() != null && !user.getRoles().isEmpty()) {
+            dto.setRole(user.getRoles().stream()
+                    .map(role -> role.getName().name())
+                    .sorted()
+                    .collect(Collectors.joining(",")));
+        }
+        return dto;
+    }
+
     public static Branch convertToBranch(BranchDTO dto) {
         Branch branch = new Branch();
         branch.setName(dto.getName());
@@ -415,6 +431,7 @@ public class EntityDtoMapper {
         orderItem.setProduct(product);
         orderItem.setQuantity(dto.getQuantity());
         orderItem.setPrice(dto.getPrice());
+        orderItem.setUnitCost(product != null ? product.getCostPrice() : null);
         orderItem.setDiscountAmount(dto.getDiscountAmount());
 
         return orderItem;
@@ -519,13 +536,18 @@ public class EntityDtoMapper {
         if (notification == null) {
             return null;
         }
+        return convertToNotificationDTO(notification,
+                notification.getUser() != null ? notification.getUser().getName() : null);
+    }
 
+    // For rows where the user's name was selected alongside the notification and the user itself is not loaded
+    public static NotificationDTO convertToNotificationDTO(Notification notification, String userName) {
         NotificationDTO dto = new NotificationDTO();
         dto.setId(notification.getId());
 
         if (notification.getUser() != null) {
             dto.setUserId(notification.getUser().getId());
-            dto.setUserName(notification.getUser().getName());
+            dto.setUserName(userName);
         }
 
         dto.setTitle(notification.getTitle());
@@ -577,7 +599,13 @@ public class EntityDtoMapper {
         if (alert == null) {
             return null;
         }
+        return convertToAlertDTO(alert,
+                alert.getTriggeredBy() != null ? alert.getTriggeredBy().getName() : null,
+                alert.getResolvedBy() != null ? alert.getResolvedBy().getName() : null);
+    }
 
+    // For rows where the users' names were selected alongside the alert and the users themselves are not loaded
+    public static AlertDTO convertToAlertDTO(Alert alert, String triggeredByName, String resolvedByName) {
         AlertDTO dto = new AlertDTO();
         dto.setId(alert.getId());
 
@@ -596,14 +624,14 @@ public class EntityDtoMapper {
 
         if (alert.getTriggeredBy() != null) {
             dto.setTriggeredById(alert.getTriggeredBy().getId());
-            dto.setTriggeredByName(alert.getTriggeredBy().getName());
+            dto.setTriggeredByName(triggeredByName);
         }
 
         dto.setResolved(alert.isResolved());
 
         if (alert.getResolvedBy() != null) {
             dto.setResolvedById(alert.getResolvedBy().getId());
-            dto.setResolvedByName(alert.getResolvedBy().getName());
+            dto.setResolvedByName(resolvedByName);
         }
 
         dto.setCreatedAt(alert.getCreatedAt());
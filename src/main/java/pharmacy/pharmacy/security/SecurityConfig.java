@@ -2,6 +2,7 @@ package pharmacy.pharmacy.security;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -48,6 +49,10 @@ public class SecurityConfig {
                                 "/error"
                         ).permitAll()
 
+                        // Uploaded images are served to anonymous shoppers
+                        .requestMatchers(HttpMethod.GET, "/uploads/**").permitAll()
+                        .requestMatchers(HttpMethod.HEAD, "/uploads/**").permitAll()
+
                         // Swagger documentation endpoints
                         .requestMatchers(
                                 "/swagger-ui.html",
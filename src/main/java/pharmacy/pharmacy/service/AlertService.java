@@ -8,13 +8,18 @@ import pharmacy.pharmacy.dto.AlertDTO;
 import pharmacy.pharmacy.entity.*;
 import pharmacy.pharmacy.enums.AlertStatus;
 import pharmacy.pharmacy.enums.AlertType;
+import pharmacy.pharmacy.enums.JsonStreamFormat;
 import pharmacy.pharmacy.exception.GlobalException;
 import pharmacy.pharmacy.exception.ResourceNotFoundException;
 import pharmacy.pharmacy.mapper.EntityDtoMapper;
+import pharmacy.pharmacy.service.export.JsonStreamWriter;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -24,11 +29,14 @@ public class AlertService {
     private final ProductService productService;
     private final BranchService branchService;
     private final UserService userService;
+    private final JsonStreamWriter jsonStreamWriter;
 
     public AlertService(AlertRepository alertRepository,
                       ProductService productService,
                       BranchService branchService,
-                      UserService userService) {
+                      UserService userService,
+                      JsonStreamWriter jsonStreamWriter) {
+        this.jsonStreamWriter = jsonStreamWriter;
         this.alertRepository = alertRepository;
         this.productService = productService;
         this.branchService = branchService;
@@ -47,6 +55,15 @@ public class AlertService {
         }
     }
 
+    // Rows are mapped and written one at a time while the cursor is open; see JsonStreamWriter
+    @Transactional(readOnly = true)
+    public long streamAllAlerts(JsonStreamFormat format, OutputStream out) throws IOException {
+        try (Stream<Object[]> rows = alertRepository.streamAllWithNames()) {
+            return jsonStreamWriter.write(format, rows,
+                    row -> EntityDtoMapper.convertToAlertDTO((Alert) row[0], (String) row[1], (String) row[2]), out);
+        }
+    }
+
     @Transactional(readOnly = true)
     public AlertDTO getAlertById(int id) {
         try {
@@ -90,6 +107,36 @@ public class AlertService {
         }
     }
 
+    /**
+     * Raises a system LOW_STOCK or OUT_OF_STOCK alert for each product of the order that is now at or below
+     * its reorder level, unless the product already has an unresolved alert of that type. Returns the number
+     * of alerts raised.
+     */
+    public int raiseStockAlertsForOrder(int orderId, Integer branchId) {
+        Branch branch = branchId != null ? branchService.getBranchEntityById(branchId) : null;
+        int raised = 0;
+        for (Product product : productService.getLowStockProductsInOrder(orderId)) {
+            boolean outOfStock = product.getStockQuantity() <= 0;
+            AlertType alertType = outOfStock ? AlertType.OUT_OF_STOCK : AlertType.LOW_STOCK;
+            if (alertRepository.existsUnresolved(product.getId(), alertType)) {
+                continue;
+            }
+            String message = outOfStock
+                    ? product.getName() + " is out of stock"
+                    : product.getName() + " is low on stock: " + product.getStockQuantity()
+                            + " left, reorder level " + product.getReorderLevel();
+            alertRepository.save(Alert.builder()
+                    .product(product)
+                    .branch(branch)
+                    .alertType(alertType)
+                    .message(message)
+                    .status(AlertStatus.ACTIVE)
+                    .build());
+            raised++;
+        }
+        return raised;
+    }
+
     public AlertDTO resolveAlert(int id, int resolvedById) {
         try {
             Alert alert = getAlertEntityById(id);
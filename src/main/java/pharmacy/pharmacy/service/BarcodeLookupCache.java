@@ -0,0 +1,188 @@
+package pharmacy.pharmacy.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pharmacy.pharmacy.dto.product.BarcodeCacheStats;
+import pharmacy.pharmacy.dto.product.ProductBarcodeSnapshot;
+import pharmacy.pharmacy.event.ProductChangedEvent;
+import pharmacy.pharmacy.event.StockLevelChangedEvent;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of barcode -> product snapshot for POS scanning.
+ *
+ * Entries are evicted least-recently-used once {@code maxSize} is reached and expire
+ * {@code ttlSeconds} after they were loaded. Product writes invalidate the affected
+ * barcodes after commit, so the TTL only bounds staleness of the stock figure. The same entries can be
+ * looked up by product id.
+ */
+@Component
+public class BarcodeLookupCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private long generation;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    // Product id -> barcode, for exactly the products in entries
+    private final Map<Integer, String> barcodesById = new HashMap<>();
+
+    public BarcodeLookupCache(@Value("${pharmacy.barcode-cache.max-size:10000}") int maxSize,
+                              @Value("${pharmacy.barcode-cache.ttl-seconds:120}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > BarcodeLookupCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    barcodesById.remove(eldest.getValue().snapshot.getId());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached snapshot for the barcode, or loads it with {@code loader} on a miss.
+     * The loader runs outside the cache lock so a slow query never blocks other scans.
+     */
+    public Optional<ProductBarcodeSnapshot> get(String barcode,
+                                                Function<String, Optional<ProductBarcodeSnapshot>> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(barcode);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hits.incrementAndGet();
+                    return Optional.of(entry.snapshot);
+                }
+                remove(barcode);
+                expirations.incrementAndGet();
+            }
+            misses.incrementAndGet();
+            loadGeneration = generation;
+        }
+
+        Optional<ProductBarcodeSnapshot> loaded = loader.apply(barcode);
+        loaded.ifPresent(snapshot -> store(barcode, snapshot, loadGeneration));
+        return loaded;
+    }
+
+    /**
+     * As {@link #get}, by product id. A product without a barcode is loaded every time, since entries are
+     * keyed and invalidated by barcode.
+     */
+    public Optional<ProductBarcodeSnapshot> getById(Integer id,
+                                                    Function<Integer, Optional<ProductBarcodeSnapshot>> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            String barcode = barcodesById.get(id);
+            Entry entry = barcode != null ? entries.get(barcode) : null;
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hits.incrementAndGet();
+                    return Optional.of(entry.snapshot);
+                }
+                remove(barcode);
+                expirations.incrementAndGet();
+            }
+            misses.incrementAndGet();
+            loadGeneration = generation;
+        }
+
+        Optional<ProductBarcodeSnapshot> loaded = loader.apply(id);
+        loaded.ifPresent(snapshot -> store(snapshot.getBarcode(), snapshot, loadGeneration));
+        return loaded;
+    }
+
+    public synchronized void invalidate(String barcode) {
+        generation++;
+        if (barcode != null && remove(barcode) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+        barcodesById.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.getPreviousBarcode());
+        invalidate(event.getCurrentBarcode());
+    }
+
+    // Snapshots carry the stock quantity, so sales and receipts must drop them too
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockLevelChanged(StockLevelChangedEvent event) {
+        invalidate(event.getBarcode());
+    }
+
+    public BarcodeCacheStats getStats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        return new BarcodeCacheStats(size, maxSize, TimeUnit.NANOSECONDS.toSeconds(ttlNanos),
+                hitCount, misses.get(), evictions.get(), expirations.get(), invalidations.get(),
+                lookups == 0 ? 0.0 : (double) hitCount / lookups);
+    }
+
+    // Not stored if an invalidation ran while it was loading
+    private synchronized void store(String barcode, ProductBarcodeSnapshot snapshot, long loadGeneration) {
+        if (generation != loadGeneration || barcode == null) {
+            return;
+        }
+        Entry previous = entries.put(barcode, new Entry(snapshot, System.nanoTime()));
+        if (previous != null) {
+            barcodesById.remove(previous.snapshot.getId());
+        }
+        String previousBarcode = barcodesById.put(snapshot.getId(), barcode);
+        if (previousBarcode != null && !previousBarcode.equals(barcode)) {
+            entries.remove(previousBarcode);
+        }
+    }
+
+    // Caller must hold the monitor
+    private Entry remove(String barcode) {
+        Entry removed = entries.remove(barcode);
+        if (removed != null) {
+            barcodesById.remove(removed.snapshot.getId());
+        }
+        return removed;
+    }
+
+    private static final class Entry {
+        private final ProductBarcodeSnapshot snapshot;
+        private final long loadedAt;
+
+        private Entry(ProductBarcodeSnapshot snapshot, long loadedAt) {
+            this.snapshot = snapshot;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -34,6 +34,20 @@ public class BranchService {
         }
     }
 
+    // ETags come from version columns, so unchanged data is detected without loading or mapping branches
+    @Transactional(readOnly = true)
+    public String getBranchesEtag() {
+        Object[] row = branchRepository.findCollectionVersion().get(0);
+        return "\"branches-" + row[0] + "-" + row[1] + "-" + row[2] + "\"";
+    }
+
+    @Transactional(readOnly = true)
+    public String getBranchEtag(int id) {
+        Long version = branchRepository.findVersionById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Branch not found with id: " + id));
+        return "\"branch-" + id + "-" + version + "\"";
+    }
+
     @Transactional(readOnly = true)
     public BranchDTO getBranchById(int id) {
         try {
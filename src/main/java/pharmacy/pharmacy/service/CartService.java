@@ -0,0 +1,228 @@
+package pharmacy.pharmacy.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import pharmacy.pharmacy.dto.OrderDTO;
+import pharmacy.pharmacy.dto.OrderItemDTO;
+import pharmacy.pharmacy.dto.cart.CartCreateRequest;
+import pharmacy.pharmacy.dto.cart.CartItemRequest;
+import pharmacy.pharmacy.dto.cart.CartResponse;
+import pharmacy.pharmacy.dto.product.ProductBarcodeSnapshot;
+import pharmacy.pharmacy.enums.OrderStatus;
+import pharmacy.pharmacy.enums.PaymentMethod;
+import pharmacy.pharmacy.enums.PaymentStatus;
+import pharmacy.pharmacy.exception.GlobalException;
+import pharmacy.pharmacy.exception.ResourceNotFoundException;
+import pharmacy.pharmacy.service.cart.Cart;
+import pharmacy.pharmacy.service.cart.CartLine;
+import pharmacy.pharmacy.service.cart.CartStore;
+import pharmacy.pharmacy.service.reservation.ReservationService;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Carts held in a {@link CartStore} rather than as CART orders, so building a basket writes nothing to the
+ * database. Checkout turns the cart into a PENDING order in one transaction through
+ * {@link OrderService#createOrder}, which loads the products in one query and batches the stock updates
+ * and item inserts.
+ *
+ * Each line holds its quantity of the branch's stock through {@link ReservationService} while the cart is
+ * in use; checkout spends the holds, and holds of an abandoned cart expire. A change is held before it is
+ * applied to the cart, so a line the branch cannot cover (OUT_OF_STOCK) leaves the cart as it was.
+ */
+@Service
+public class CartService {
+
+    private final CartStore cartStore;
+    private final ProductService productService;
+    private final OrderService orderService;
+    private final ReservationService reservationService;
+
+    public CartService(CartStore cartStore, ProductService productService, OrderService orderService,
+                       ReservationService reservationService) {
+        this.cartStore = cartStore;
+        this.productService = productService;
+        this.orderService = orderService;
+        this.reservationService = reservationService;
+    }
+
+    public CartResponse createCart(CartCreateRequest request) {
+        if (request.getBranchId() == null) {
+            throw new GlobalException("Branch ID is required", HttpStatus.BAD_REQUEST, "INVALID_CART");
+        }
+        Cart cart = new Cart(UUID.randomUUID().toString(), request.getBranchId(), request.getUserId(),
+                request.getDiscountAmount(), request.getTaxAmount());
+        cartStore.put(cart);
+        synchronized (cart) {
+            return toResponse(cart);
+        }
+    }
+
+    public CartResponse getCart(String cartId) {
+        Cart cart = getCartEntity(cartId);
+        synchronized (cart) {
+            return toResponse(cart);
+        }
+    }
+
+    // Products come from the snapshot cache, scanned or added by id; one already in the cart needs no lookup
+    public CartResponse addItem(String cartId, CartItemRequest request) {
+        if (request.getQuantity() == null || request.getQuantity() <= 0) {
+            throw new GlobalException("Quantity must be greater than 0", HttpStatus.BAD_REQUEST, "INVALID_QUANTITY");
+        }
+        Cart cart = getCartEntity(cartId);
+        Integer knownProductId = request.getBarcode() == null ? request.getProductId() : null;
+        synchronized (cart) {
+            ensureOpen(cart);
+            CartLine existing = knownProductId != null ? cart.getLine(knownProductId) : null;
+            if (existing != null) {
+                int quantity = existing.getQuantity() + request.getQuantity();
+                reservationService.hold(cart.getId(), cart.getBranchId(), knownProductId, quantity);
+                cart.setQuantity(existing, quantity);
+                return toResponse(cart);
+            }
+        }
+
+        // Looked up outside the cart's lock, so a cache miss never holds up other calls on the cart
+        ProductBarcodeSnapshot snapshot;
+        if (request.getBarcode() != null) {
+            snapshot = productService.lookupByBarcode(request.getBarcode());
+        } else if (request.getProductId() != null) {
+            snapshot = productService.lookupById(request.getProductId());
+        } else {
+            throw new GlobalException("Barcode or product ID is required",
+                    HttpStatus.BAD_REQUEST, "INVALID_CART_ITEM");
+        }
+        Integer productId = snapshot.getId();
+
+        synchronized (cart) {
+            ensureOpen(cart);
+            CartLine existing = cart.getLine(productId);
+            int quantity = (existing != null ? existing.getQuantity() : 0) + request.getQuantity();
+            reservationService.hold(cart.getId(), cart.getBranchId(), productId, quantity);
+            cart.addLine(productId, snapshot.getBarcode(), snapshot.getName(), snapshot.getPrice(),
+                    request.getQuantity());
+            return toResponse(cart);
+        }
+    }
+
+    public CartResponse updateItemQuantity(String cartId, Integer productId, int quantity) {
+        if (quantity <= 0) {
+            throw new GlobalException("Quantity must be greater than 0", HttpStatus.BAD_REQUEST, "INVALID_QUANTITY");
+        }
+        Cart cart = getCartEntity(cartId);
+        synchronized (cart) {
+            ensureOpen(cart);
+            CartLine line = getLine(cart, productId);
+            reservationService.hold(cart.getId(), cart.getBranchId(), productId, quantity);
+            cart.setQuantity(line, quantity);
+            return toResponse(cart);
+        }
+    }
+
+    public CartResponse removeItem(String cartId, Integer productId) {
+        Cart cart = getCartEntity(cartId);
+        synchronized (cart) {
+            ensureOpen(cart);
+            CartLine line = getLine(cart, productId);
+            reservationService.hold(cart.getId(), cart.getBranchId(), productId, 0);
+            cart.removeLine(line);
+            return toResponse(cart);
+        }
+    }
+
+    public void deleteCart(String cartId) {
+        Cart cart = getCartEntity(cartId);
+        synchronized (cart) {
+            cartStore.remove(cartId);
+            reservationService.releaseAll(cartId);
+        }
+    }
+
+    /**
+     * Creates the order and its items in one transaction. The cart's lock is held throughout, so two
+     * checkouts of one cart cannot both create an order; a retried checkout returns the order already made.
+     * If the order fails (for example OUT_OF_STOCK) the cart is left as it was.
+     */
+    public OrderDTO checkout(String cartId, PaymentMethod paymentMethod) {
+        Cart cart = getCartEntity(cartId);
+        synchronized (cart) {
+            if (cart.getOrderId() != null) {
+                return orderService.getOrderById(cart.getOrderId());
+            }
+            if (cart.isEmpty()) {
+                throw new GlobalException("Cannot checkout empty cart", HttpStatus.BAD_REQUEST, "EMPTY_CART");
+            }
+
+            OrderDTO orderDTO = new OrderDTO();
+            orderDTO.setBranchId(cart.getBranchId());
+            orderDTO.setUserId(cart.getUserId());
+            orderDTO.setStatus(OrderStatus.PENDING);
+            orderDTO.setPaymentStatus(PaymentStatus.PENDING);
+            orderDTO.setPaymentMethod(paymentMethod);
+            orderDTO.setDiscountAmount(cart.getDiscountAmount());
+            orderDTO.setTaxAmount(cart.getTaxAmount());
+            orderDTO.setOrderItems(cart.getLines().stream()
+                    .map(line -> {
+                        OrderItemDTO item = new OrderItemDTO();
+                        item.setProductId(line.getProductId());
+                        item.setQuantity(line.getQuantity());
+                        return item;
+                    })
+                    .collect(Collectors.toList()));
+
+            OrderDTO order = orderService.createOrder(orderDTO, cart.getId());
+            cart.checkedOut(order.getId());
+            return order;
+        }
+    }
+
+    private Cart getCartEntity(String cartId) {
+        return cartStore.get(cartId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found or expired: " + cartId));
+    }
+
+    private static void ensureOpen(Cart cart) {
+        if (cart.getOrderId() != null) {
+            throw new GlobalException("Cart has already been checked out as order " + cart.getOrderId(),
+                    HttpStatus.CONFLICT, "CART_CHECKED_OUT");
+        }
+    }
+
+    private static CartLine getLine(Cart cart, Integer productId) {
+        CartLine line = cart.getLine(productId);
+        if (line == null) {
+            throw new ResourceNotFoundException("Product " + productId + " is not in cart " + cart.getId());
+        }
+        return line;
+    }
+
+    private static CartResponse toResponse(Cart cart) {
+        CartResponse response = new CartResponse();
+        response.setId(cart.getId());
+        response.setBranchId(cart.getBranchId());
+        response.setUserId(cart.getUserId());
+        response.setCreatedAt(cart.getCreatedAt());
+        List<OrderItemDTO> items = cart.getLines().stream()
+                .map(line -> {
+                    OrderItemDTO item = new OrderItemDTO();
+                    item.setProductId(line.getProductId());
+                    item.setProductBarcode(line.getBarcode());
+                    item.setProductName(line.getProductName());
+                    item.setPrice(line.getPrice());
+                    item.setQuantity(line.getQuantity());
+                    item.setTotalPrice(line.getTotalPrice());
+                    return item;
+                })
+                .collect(Collectors.toList());
+        response.setItems(items);
+        response.setSubtotalAmount(cart.getSubtotalAmount());
+        response.setDiscountAmount(cart.getDiscountAmount());
+        response.setTaxAmount(cart.getTaxAmount());
+        response.setTotalAmount(cart.getTotalAmount());
+        response.setOrderId(cart.getOrderId());
+        return response;
+    }
+}
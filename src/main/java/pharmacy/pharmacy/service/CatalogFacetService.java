@@ -0,0 +1,306 @@
+package pharmacy.pharmacy.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pharmacy.pharmacy.dao.CategoryRepository;
+import pharmacy.pharmacy.dao.ProductRepository;
+import pharmacy.pharmacy.dto.category.CatalogFacetsResponse;
+import pharmacy.pharmacy.dto.category.CategoryFacet;
+import pharmacy.pharmacy.dto.category.FacetCount;
+import pharmacy.pharmacy.dto.category.PriceRangeFacet;
+import pharmacy.pharmacy.event.CategoryChangedEvent;
+import pharmacy.pharmacy.event.ProductChangedEvent;
+import pharmacy.pharmacy.event.ProductsImportedEvent;
+import pharmacy.pharmacy.event.StockLevelChangedEvent;
+import pharmacy.pharmacy.exception.GlobalException;
+import pharmacy.pharmacy.exception.ResourceNotFoundException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Faceted browse counts for the shop front.
+ *
+ * The catalog is summarized by one grouped aggregate query into a small table of
+ * (category, prescription flag, stock status, price bucket) counts, which is cached together with
+ * the category hierarchy. Each request filters and sums that table in memory; a facet ignores its own
+ * selection so the other values stay visible. Product and category writes drop the cache; a stock change
+ * drops it only when the product ends up in another stock status, so sales mostly leave it warm.
+ */
+@Service
+public class CatalogFacetService {
+
+    // Lower bounds of the price bands after the first; must match ProductRepository.PRICE_BUCKET_CASE
+    static final List<BigDecimal> PRICE_BOUNDS = List.of(
+            new BigDecimal("100"), new BigDecimal("500"), new BigDecimal("1000"), new BigDecimal("5000"));
+
+    private static final List<String> STOCK_STATUSES = List.of("IN_STOCK", "LOW_STOCK", "OUT_OF_STOCK");
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+
+    private volatile FacetSnapshot snapshot;
+    private long generation;
+
+    public CatalogFacetService(ProductRepository productRepository, CategoryRepository categoryRepository) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public CatalogFacetsResponse getFacets(Integer categoryId, Boolean prescriptionRequired,
+                                           String stockStatus, Integer priceBucket) {
+        if (stockStatus != null && !STOCK_STATUSES.contains(stockStatus)) {
+            throw new GlobalException("Unknown stock status: " + stockStatus, HttpStatus.BAD_REQUEST, "INVALID_FACET");
+        }
+        if (priceBucket != null && (priceBucket < 0 || priceBucket > PRICE_BOUNDS.size())) {
+            throw new GlobalException("Unknown price bucket: " + priceBucket, HttpStatus.BAD_REQUEST, "INVALID_FACET");
+        }
+
+        FacetSnapshot current = currentSnapshot();
+        Set<Integer> scope = null;
+        if (categoryId != null) {
+            if (!current.categories.containsKey(categoryId)) {
+                throw new ResourceNotFoundException("Category not found with id: " + categoryId);
+            }
+            scope = current.subtree(categoryId);
+        }
+        Set<Integer> categoryScope = scope;
+
+        Predicate<FacetCell> inScope = cell -> categoryScope == null || categoryScope.contains(cell.categoryId);
+        Predicate<FacetCell> byPrescription = cell -> prescriptionRequired == null
+                || cell.prescriptionRequired == prescriptionRequired;
+        Predicate<FacetCell> byStock = cell -> stockStatus == null || stockStatus.equals(cell.stockStatus);
+        Predicate<FacetCell> byPrice = cell -> priceBucket == null || cell.priceBucket == priceBucket;
+
+        CatalogFacetsResponse response = new CatalogFacetsResponse();
+
+        // Category facet: every filter except the category itself
+        Map<Integer, Long> directCounts = new HashMap<>();
+        long uncategorized = 0;
+        long total = 0;
+        for (FacetCell cell : current.cells) {
+            if (!byPrescription.test(cell) || !byStock.test(cell) || !byPrice.test(cell)) {
+                continue;
+            }
+            if (cell.categoryId == null) {
+                uncategorized += cell.count;
+            } else {
+                directCounts.merge(cell.categoryId, cell.count, Long::sum);
+            }
+            if (inScope.test(cell)) {
+                total += cell.count;
+            }
+        }
+        response.setTotalProducts(total);
+        response.setUncategorizedCount(categoryId == null ? uncategorized : 0);
+        List<Integer> treeRoots = categoryId == null ? current.roots : List.of(categoryId);
+        List<CategoryFacet> categories = new ArrayList<>();
+        for (Integer rootId : treeRoots) {
+            categories.add(current.rollUp(rootId, directCounts, new HashSet<>()));
+        }
+        response.setCategories(categories);
+
+        // Remaining facets: scope plus every other selection
+        Map<Boolean, Long> prescription = new HashMap<>();
+        Map<String, Long> stock = new HashMap<>();
+        long[] prices = new long[PRICE_BOUNDS.size() + 1];
+        for (FacetCell cell : current.cells) {
+            if (!inScope.test(cell)) {
+                continue;
+            }
+            if (byStock.test(cell) && byPrice.test(cell)) {
+                prescription.merge(cell.prescriptionRequired, cell.count, Long::sum);
+            }
+            if (byPrescription.test(cell) && byPrice.test(cell)) {
+                stock.merge(cell.stockStatus, cell.count, Long::sum);
+            }
+            if (byPrescription.test(cell) && byStock.test(cell)) {
+                prices[cell.priceBucket] += cell.count;
+            }
+        }
+        response.setPrescriptionRequired(List.of(
+                new FacetCount("true", prescription.getOrDefault(true, 0L)),
+                new FacetCount("false", prescription.getOrDefault(false, 0L))));
+        List<FacetCount> stockFacet = new ArrayList<>();
+        for (String status : STOCK_STATUSES) {
+            stockFacet.add(new FacetCount(status, stock.getOrDefault(status, 0L)));
+        }
+        response.setStockStatus(stockFacet);
+        List<PriceRangeFacet> priceFacet = new ArrayList<>();
+        for (int bucket = 0; bucket < prices.length; bucket++) {
+            priceFacet.add(new PriceRangeFacet(bucket,
+                    bucket == 0 ? BigDecimal.ZERO : PRICE_BOUNDS.get(bucket - 1),
+                    bucket < PRICE_BOUNDS.size() ? PRICE_BOUNDS.get(bucket) : null,
+                    prices[bucket]));
+        }
+        response.setPriceRanges(priceFacet);
+        return response;
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        snapshot = null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockLevelChanged(StockLevelChangedEvent event) {
+        List<String> status = productRepository.findStockStatus(event.getProductId());
+        synchronized (this) {
+            // Loads already under way may predate the change, so they are never cached
+            generation++;
+            if (snapshot != null && status.size() == 1
+                    && status.get(0).equals(snapshot.stockStatuses.get(event.getProductId()))) {
+                return;
+            }
+            snapshot = null;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        invalidate();
+    }
+
+    private FacetSnapshot currentSnapshot() {
+        FacetSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+        FacetSnapshot loaded = load();
+        synchronized (this) {
+            // Don't cache a load that raced with a write; the next request reloads
+            if (generation == loadGeneration) {
+                snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    private FacetSnapshot load() {
+        List<FacetCell> cells = new ArrayList<>();
+        for (Object[] row : productRepository.countByFacets()) {
+            cells.add(new FacetCell((Integer) row[0], Boolean.TRUE.equals(row[1]), (String) row[2],
+                    ((Number) row[3]).intValue(), ((Number) row[4]).longValue()));
+        }
+
+        Map<Integer, String> stockStatuses = new HashMap<>();
+        for (Object[] row : productRepository.findStockStatuses()) {
+            stockStatuses.put((Integer) row[0], (String) row[1]);
+        }
+
+        Map<Integer, CategoryNode> categories = new HashMap<>();
+        for (Object[] row : categoryRepository.findHierarchy()) {
+            categories.put((Integer) row[0], new CategoryNode((Integer) row[0], (String) row[1], (Integer) row[2]));
+        }
+        List<Integer> roots = new ArrayList<>();
+        for (CategoryNode node : categories.values()) {
+            CategoryNode parent = node.parentId == null ? null : categories.get(node.parentId);
+            if (parent == null) {
+                roots.add(node.id);
+            } else {
+                parent.childIds.add(node.id);
+            }
+        }
+        Comparator<Integer> byName = Comparator.comparing(id -> categories.get(id).name);
+        roots.sort(byName);
+        categories.values().forEach(node -> node.childIds.sort(byName));
+        return new FacetSnapshot(cells, stockStatuses, categories, roots);
+    }
+
+    private static final class FacetCell {
+        final Integer categoryId;
+        final boolean prescriptionRequired;
+        final String stockStatus;
+        final int priceBucket;
+        final long count;
+
+        FacetCell(Integer categoryId, boolean prescriptionRequired, String stockStatus, int priceBucket, long count) {
+            this.categoryId = categoryId;
+            this.prescriptionRequired = prescriptionRequired;
+            this.stockStatus = stockStatus;
+            this.priceBucket = priceBucket;
+            this.count = count;
+        }
+    }
+
+    private static final class CategoryNode {
+        final Integer id;
+        final String name;
+        final Integer parentId;
+        final List<Integer> childIds = new ArrayList<>();
+
+        CategoryNode(Integer id, String name, Integer parentId) {
+            this.id = id;
+            this.name = name;
+            this.parentId = parentId;
+        }
+    }
+
+    private static final class FacetSnapshot {
+        final List<FacetCell> cells;
+        // The status each product was counted under
+        final Map<Integer, String> stockStatuses;
+        final Map<Integer, CategoryNode> categories;
+        final List<Integer> roots;
+
+        FacetSnapshot(List<FacetCell> cells, Map<Integer, String> stockStatuses,
+                      Map<Integer, CategoryNode> categories, List<Integer> roots) {
+            this.cells = cells;
+            this.stockStatuses = stockStatuses;
+            this.categories = categories;
+            this.roots = roots;
+        }
+
+        Set<Integer> subtree(Integer rootId) {
+            Set<Integer> ids = new HashSet<>();
+            List<Integer> pending = new ArrayList<>(List.of(rootId));
+            while (!pending.isEmpty()) {
+                Integer id = pending.remove(pending.size() - 1);
+                if (ids.add(id)) {
+                    pending.addAll(categories.get(id).childIds);
+                }
+            }
+            return ids;
+        }
+
+        // The visited set guards against a parent cycle in bad data
+        CategoryFacet rollUp(Integer id, Map<Integer, Long> directCounts, Set<Integer> visited) {
+            CategoryNode node = categories.get(id);
+            List<CategoryFacet> children = new ArrayList<>();
+            long count = directCounts.getOrDefault(id, 0L);
+            visited.add(id);
+            for (Integer childId : node.childIds) {
+                if (!visited.contains(childId)) {
+                    CategoryFacet child = rollUp(childId, directCounts, visited);
+                    count += child.getProductCount();
+                    children.add(child);
+                }
+            }
+            return new CategoryFacet(node.id, node.name, count, children);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package pharmacy.pharmacy.service;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import pharmacy.pharmacy.dto.category.CategoryCreateDTO;
@@ -7,9 +8,11 @@ import pharmacy.pharmacy.dto.category.CategoryResponse;
 import pharmacy.pharmacy.dto.product.ProductPageResponse;
 import pharmacy.pharmacy.entity.Category;
 import pharmacy.pharmacy.entity.Product;
+import pharmacy.pharmacy.event.CategoryChangedEvent;
 import pharmacy.pharmacy.exception.ResourceNotFoundException;
 import pharmacy.pharmacy.dao.CategoryRepository;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,9 +22,20 @@ public class CategoryService {
 
     private final FileStorageService fileStorageService;
 
-    public CategoryService(CategoryRepository categoryRepository, FileStorageService fileStorageService) {
+    private final CategoryTreeService categoryTreeService;
+
+    private final ThumbnailService thumbnailService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CategoryService(CategoryRepository categoryRepository, FileStorageService fileStorageService,
+                           CategoryTreeService categoryTreeService, ThumbnailService thumbnailService,
+                           ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
         this.fileStorageService = fileStorageService;
+        this.categoryTreeService = categoryTreeService;
+        this.thumbnailService = thumbnailService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(readOnly = true)
@@ -33,11 +47,26 @@ public class CategoryService {
                     dto.setName(category.getName());
                     dto.setDescription(category.getDescription());
                     dto.setImageUrl(category.getImageUrl());
+                    dto.setThumbnailUrl(thumbnailService.thumbnailUrl(category.getImageUrl()));
                     return dto;
                 })
                 .collect(Collectors.toList());
     }
 
+    // The list includes thumbnail URLs, so its ETag also changes when new thumbnails become available
+    @Transactional(readOnly = true)
+    public String getCategoriesEtag() {
+        Object[] row = categoryRepository.findCollectionVersion().get(0);
+        return "\"categories-" + row[0] + "-" + row[1] + "-" + row[2] + "-" + thumbnailService.getGeneratedCount() + "\"";
+    }
+
+    @Transactional(readOnly = true)
+    public String getCategoryEtag(Integer id) {
+        Long version = categoryRepository.findVersionById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id));
+        return "\"category-" + id + "-" + version + "\"";
+    }
+
     @Transactional(readOnly = true)
     public Category getCategoryById(Integer id) {
         return categoryRepository.findById(id)
@@ -52,13 +81,22 @@ public class CategoryService {
             imageUrl = fileStorageService.storeFile(createDTO.getImageFile()); // Implement this
         }
 
+        Category parent = null;
+        if (createDTO.getParentId() != null) {
+            parent = getCategoryById(createDTO.getParentId());
+        }
+
         Category category = Category.builder()
                 .name(createDTO.getName())
                 .description(createDTO.getDescription())
                 .imageUrl(imageUrl)
+                .parent(parent)
                 .build();
 
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        categoryTreeService.categoryCreated(savedCategory.getId(), createDTO.getParentId());
+        eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory.getId()));
+        return savedCategory;
     }
 
     @Transactional
@@ -67,24 +105,46 @@ public class CategoryService {
 
         category.setName(categoryDetails.getName());
         category.setDescription(categoryDetails.getDescription());
-        category.setParent(categoryDetails.getParent());
 
-        return categoryRepository.save(category);
+        // Only the parent's id is read from the request body
+        Integer currentParentId = category.getParent() != null ? category.getParent().getId() : null;
+        Integer newParentId = categoryDetails.getParent() != null ? categoryDetails.getParent().getId() : null;
+        if (!Objects.equals(currentParentId, newParentId)) {
+            Category newParent = newParentId != null ? getCategoryById(newParentId) : null;
+            categoryTreeService.categoryMoved(id, newParentId);
+            category.setParent(newParent);
+        }
+
+        Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory.getId()));
+        return savedCategory;
     }
 
     @Transactional
     public void deleteCategory(Integer id) {
         Category category = getCategoryById(id);
+        categoryTreeService.categoryDeleted(id);
         categoryRepository.delete(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
     }
 
     @Transactional(readOnly = true)
-    public List<Category> getChildCategories(Integer parentId) {
-        return categoryRepository.findByParentId(parentId);
+    public List<CategoryResponse> getChildCategories(Integer parentId) {
+        return categoryRepository.findByParentId(parentId).stream()
+                .map(this::toListingResponse)
+                .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
-    public List<Category> searchCategories(String name) {
-        return categoryRepository.findByNameContainingIgnoreCase(name);
+    public List<CategoryResponse> searchCategories(String name) {
+        return categoryRepository.findByNameContainingIgnoreCase(name).stream()
+                .map(this::toListingResponse)
+                .collect(Collectors.toList());
+    }
+
+    private CategoryResponse toListingResponse(Category category) {
+        CategoryResponse response = new CategoryResponse(category);
+        response.setThumbnailUrl(thumbnailService.thumbnailUrl(category.getImageUrl()));
+        return response;
     }
-}
\ No newline at end of file
+}
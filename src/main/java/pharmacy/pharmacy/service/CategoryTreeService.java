@@ -0,0 +1,197 @@
+package pharmacy.pharmacy.service;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pharmacy.pharmacy.dao.CategoryClosureRepository;
+import pharmacy.pharmacy.dao.CategoryRepository;
+import pharmacy.pharmacy.dto.category.CategoryResponse;
+import pharmacy.pharmacy.dto.category.CategoryTreeNode;
+import pharmacy.pharmacy.entity.CategoryClosure;
+import pharmacy.pharmacy.event.CategoryChangedEvent;
+import pharmacy.pharmacy.exception.GlobalException;
+import pharmacy.pharmacy.exception.ResourceNotFoundException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Owns the category closure table and an immutable in-memory snapshot of the category tree.
+ *
+ * {@link CategoryService} calls the maintenance methods inside its own transaction, so the closure
+ * rows always commit together with the category change. The snapshot is rebuilt after commit.
+ */
+@Service
+public class CategoryTreeService implements CommandLineRunner {
+
+    private final CategoryRepository categoryRepository;
+    private final CategoryClosureRepository closureRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThumbnailService thumbnailService;
+
+    private volatile TreeSnapshot snapshot = new TreeSnapshot(Collections.emptyList(), Collections.emptyMap());
+
+    public CategoryTreeService(CategoryRepository categoryRepository,
+                               CategoryClosureRepository closureRepository,
+                               TransactionTemplate transactionTemplate,
+                               ThumbnailService thumbnailService) {
+        this.categoryRepository = categoryRepository;
+        this.closureRepository = closureRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.thumbnailService = thumbnailService;
+    }
+
+    @Override
+    public void run(String... args) {
+        // Categories created before the closure table existed need their paths backfilled
+        transactionTemplate.executeWithoutResult(status -> {
+            if (closureRepository.countByDepth(0) != categoryRepository.count()) {
+                rebuildClosure();
+            }
+        });
+        rebuildSnapshot();
+    }
+
+    public List<CategoryTreeNode> getTree() {
+        return snapshot.roots;
+    }
+
+    @Transactional(readOnly = true)
+    public List<CategoryResponse> getAncestors(Integer categoryId) {
+        return toResponses(categoryId, closureRepository.findAncestorIds(categoryId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<CategoryResponse> getDescendants(Integer categoryId) {
+        return toResponses(categoryId, closureRepository.findDescendantIds(categoryId));
+    }
+
+    // Called by CategoryService within the creating transaction
+    void categoryCreated(Integer categoryId, Integer parentId) {
+        closureRepository.insertSelf(categoryId);
+        if (parentId != null) {
+            closureRepository.attachSubtree(categoryId, parentId);
+        }
+    }
+
+    // Called by CategoryService within the updating transaction, before the parent is changed
+    void categoryMoved(Integer categoryId, Integer newParentId) {
+        if (newParentId != null && closureRepository.existsByAncestorIdAndDescendantId(categoryId, newParentId)) {
+            throw new GlobalException("A category cannot be moved under itself or one of its subcategories",
+                    HttpStatus.BAD_REQUEST, "CATEGORY_CYCLE");
+        }
+        closureRepository.detachSubtree(categoryId);
+        if (newParentId != null) {
+            closureRepository.attachSubtree(categoryId, newParentId);
+        }
+    }
+
+    // Called by CategoryService before the delete; children are removed with their parent
+    void categoryDeleted(Integer categoryId) {
+        closureRepository.deleteSubtree(categoryId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        rebuildSnapshot();
+    }
+
+    /**
+     * Loads the hierarchy with one query and swaps in a new immutable tree.
+     */
+    public void rebuildSnapshot() {
+        Map<Integer, Object[]> rows = new HashMap<>();
+        Map<Integer, List<Integer>> childIds = new HashMap<>();
+        List<Integer> rootIds = new ArrayList<>();
+        for (Object[] row : categoryRepository.findTreeRows()) {
+            rows.put((Integer) row[0], row);
+        }
+        for (Object[] row : rows.values()) {
+            Integer parentId = (Integer) row[4];
+            if (parentId == null || !rows.containsKey(parentId)) {
+                rootIds.add((Integer) row[0]);
+            } else {
+                childIds.computeIfAbsent(parentId, id -> new ArrayList<>()).add((Integer) row[0]);
+            }
+        }
+
+        Map<Integer, CategoryTreeNode> byId = new HashMap<>();
+        List<CategoryTreeNode> roots = new ArrayList<>();
+        for (Integer rootId : rootIds) {
+            roots.add(buildNode(rootId, 0, rows, childIds, byId));
+        }
+        roots.sort(Comparator.comparing(CategoryTreeNode::getName));
+        snapshot = new TreeSnapshot(Collections.unmodifiableList(roots), Collections.unmodifiableMap(byId));
+    }
+
+    private CategoryTreeNode buildNode(Integer id, int depth, Map<Integer, Object[]> rows,
+                                      Map<Integer, List<Integer>> childIds, Map<Integer, CategoryTreeNode> byId) {
+        List<CategoryTreeNode> children = new ArrayList<>();
+        for (Integer childId : childIds.getOrDefault(id, Collections.emptyList())) {
+            if (!byId.containsKey(childId)) {
+                children.add(buildNode(childId, depth + 1, rows, childIds, byId));
+            }
+        }
+        children.sort(Comparator.comparing(CategoryTreeNode::getName));
+        Object[] row = rows.get(id);
+        CategoryTreeNode node = new CategoryTreeNode(id, (String) row[1], (String) row[2], (String) row[3],
+                (Integer) row[4], depth, Collections.unmodifiableList(children));
+        byId.put(id, node);
+        return node;
+    }
+
+    // Recomputes every path from the parent links
+    private void rebuildClosure() {
+        Map<Integer, Integer> parentOf = new HashMap<>();
+        for (Object[] row : categoryRepository.findHierarchy()) {
+            parentOf.put((Integer) row[0], (Integer) row[2]);
+        }
+        List<CategoryClosure> paths = new ArrayList<>();
+        for (Integer categoryId : parentOf.keySet()) {
+            Set<Integer> seen = new HashSet<>();
+            Integer ancestor = categoryId;
+            int depth = 0;
+            while (ancestor != null && seen.add(ancestor)) {
+                paths.add(new CategoryClosure(ancestor, categoryId, depth++));
+                ancestor = parentOf.get(ancestor);
+            }
+        }
+        closureRepository.deleteAllInBatch();
+        closureRepository.saveAll(paths);
+    }
+
+    private List<CategoryResponse> toResponses(Integer categoryId, List<Integer> ids) {
+        if (!categoryRepository.existsById(categoryId)) {
+            throw new ResourceNotFoundException("Category not found with id: " + categoryId);
+        }
+        Map<Integer, CategoryTreeNode> nodes = snapshot.nodesById;
+        List<CategoryResponse> responses = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            CategoryTreeNode node = nodes.get(id);
+            if (node != null) {
+                responses.add(new CategoryResponse(node.getId(), node.getName(), node.getImageUrl(),
+                        node.getDescription(), thumbnailService.thumbnailUrl(node.getImageUrl())));
+            }
+        }
+        return responses;
+    }
+
+    private static final class TreeSnapshot {
+        final List<CategoryTreeNode> roots;
+        final Map<Integer, CategoryTreeNode> nodesById;
+
+        TreeSnapshot(List<CategoryTreeNode> roots, Map<Integer, CategoryTreeNode> nodesById) {
+            this.roots = roots;
+            this.nodesById = nodesById;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package pharmacy.pharmacy.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes keyset positions into opaque, URL-safe cursor strings.
+ * Clients must treat the cursor as a black box and only echo it back.
+ */
+final class CursorCodec {
+
+    private static final String VERSION = "v1";
+    private static final char SEPARATOR = '\u001F';
+    // Stands for a null part, so it round-trips distinct from an empty string
+    private static final String NULL_PART = "\u0000";
+
+    private CursorCodec() {
+    }
+
+    static String encode(String... parts) {
+        StringBuilder raw = new StringBuilder(VERSION);
+        for (String part : parts) {
+            raw.append(SEPARATOR).append(part == null ? NULL_PART : part);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encode(String...)}; null parts come back as null.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed or has the wrong arity
+     */
+    static String[] decode(String cursor, int expectedParts) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        String[] tokens = raw.split(String.valueOf(SEPARATOR), -1);
+        if (tokens.length != expectedParts + 1 || !VERSION.equals(tokens[0])) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        String[] parts = new String[expectedParts];
+        for (int i = 0; i < expectedParts; i++) {
+            parts[i] = NULL_PART.equals(tokens[i + 1]) ? null : tokens[i + 1];
+        }
+        return parts;
+    }
+}
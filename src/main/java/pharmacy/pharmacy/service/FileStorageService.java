@@ -1,30 +1,128 @@
 package pharmacy.pharmacy.service;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Content-addressed upload store. Every file is saved as {@code <sha-256>.<ext>}, with the hash
+ * computed while the upload streams to a temporary file, so identical uploads share one file and
+ * a stored file never changes. Image uploads get thumbnail variants generated in the background.
+ */
 @Service
 public class FileStorageService {
+
+    public static final String URL_PREFIX = "/uploads/";
+
+    private static final Pattern STORED_NAME = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,10})?");
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+
+    private final Path uploadDir;
+    private final ThumbnailService thumbnailService;
+
+    public FileStorageService(@Value("${pharmacy.uploads.dir:uploads}") String uploadDir,
+                              ThumbnailService thumbnailService) {
+        this.uploadDir = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.thumbnailService = thumbnailService;
+    }
+
     public String storeFile(MultipartFile file) {
-        String fileName = UUID.randomUUID() + "_" + file.getOriginalFilename();
-        Path uploadPath = Paths.get("uploads/");
-        try {
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
+        try (InputStream in = file.getInputStream()) {
+            String url = store(in, file.getOriginalFilename());
+            if (file.getContentType() != null && file.getContentType().startsWith("image/")) {
+                thumbnailService.generateAsync(hashOf(url), resolve(url));
             }
-            Path filePath = uploadPath.resolve(fileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-            return "/uploads/" + fileName; // return the relative or full path to be saved in DB
+            return url;
         } catch (IOException e) {
-            throw new RuntimeException("Could not store file " + fileName, e);
+            throw new RuntimeException("Could not store file " + file.getOriginalFilename(), e);
         }
     }
 
+    /**
+     * Streams {@code in} into the store and returns its {@code /uploads/...} URL.
+     * Content that is already stored is not written twice.
+     */
+    public String store(InputStream in, String originalName) throws IOException {
+        Files.createDirectories(uploadDir);
+        Path temp = Files.createTempFile(uploadDir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (DigestInputStream hashing = new DigestInputStream(in, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                hashing.transferTo(out);
+            }
+            String fileName = HexFormat.of().formatHex(digest.digest()) + extensionOf(originalName);
+            Path target = uploadDir.resolve(fileName);
+            if (!Files.exists(target)) {
+                try {
+                    // Same directory, so the rename is atomic and readers never see a partial file
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Another request stored the same content first
+                }
+            }
+            return URL_PREFIX + fileName;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Filesystem path behind an {@code /uploads/...} URL, or null for anything outside the upload directory.
+     */
+    public Path resolve(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        Path path = uploadDir.resolve(url.substring(URL_PREFIX.length())).normalize();
+        return path.startsWith(uploadDir) ? path : null;
+    }
+
+    /**
+     * The content hash of a stored file's URL, or null if the URL is not content-addressed.
+     */
+    public static String hashOf(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        Matcher matcher = STORED_NAME.matcher(url.substring(URL_PREFIX.length()));
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    public Path getUploadDir() {
+        return uploadDir;
+    }
+
+    private static String extensionOf(String originalName) {
+        if (originalName == null) {
+            return "";
+        }
+        int dot = originalName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : originalName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? "." + extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 }
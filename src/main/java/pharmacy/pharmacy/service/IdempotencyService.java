@@ -0,0 +1,153 @@
+package pharmacy.pharmacy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import pharmacy.pharmacy.dao.IdempotencyRecordRepository;
+import pharmacy.pharmacy.entity.IdempotencyRecord;
+import pharmacy.pharmacy.exception.GlobalException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Makes retried POSTs safe. The first request with a key runs normally and its response is stored under the
+ * key in the same transaction; later requests with that key get the stored response back without running again.
+ *
+ * The key is claimed with a plain INSERT before the work starts. A concurrent duplicate blocks on that row
+ * until the first request finishes: if it committed, the duplicate fails on the primary key and replays the
+ * stored response; if it rolled back, the duplicate runs as if it were first.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final String DELETE_EXPIRED_KEY_SQL =
+            "DELETE FROM idempotency_keys WHERE idempotency_key = ? AND expires_at < ?";
+    private static final String CLAIM_SQL = "INSERT INTO idempotency_keys " +
+            "(idempotency_key, request_hash, created_at, expires_at) VALUES (?, ?, ?, ?)";
+    private static final String COMPLETE_SQL =
+            "UPDATE idempotency_keys SET response_body = ? WHERE idempotency_key = ?";
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${pharmacy.idempotency.ttl-hours:24}") long ttlHours) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+    }
+
+    /**
+     * Runs {@code action} at most once per key. {@code scope} names the endpoint and, with {@code request},
+     * fingerprints the call: reusing a key for a different request is rejected. Without a key the action
+     * simply runs.
+     */
+    public <T> ResponseEntity<T> execute(String key, String scope, Object request, Class<T> responseType,
+                                         Supplier<T> action) {
+        if (key == null) {
+            return ResponseEntity.ok(action.get());
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new GlobalException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters",
+                    HttpStatus.BAD_REQUEST, "INVALID_IDEMPOTENCY_KEY");
+        }
+        String requestHash = fingerprint(scope, request);
+
+        // Retries of completed requests are answered from a single primary-key read
+        Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findById(key);
+        if (existing.isPresent() && existing.get().getExpiresAt().after(new Date())) {
+            return replay(existing.get(), requestHash, responseType);
+        }
+        boolean expiredRecordSeen = existing.isPresent();
+
+        return transactionTemplate.execute(status -> {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            // Only when there is a row to delete: a DELETE matching nothing takes a gap lock, and two first
+            // claims of one key holding it would deadlock on their INSERTs instead of one waiting on the other
+            if (expiredRecordSeen) {
+                jdbcTemplate.update(DELETE_EXPIRED_KEY_SQL, key, now);
+            }
+            try {
+                jdbcTemplate.update(CLAIM_SQL, key, requestHash, now, new Timestamp(now.getTime() + ttl.toMillis()));
+            } catch (DuplicateKeyException e) {
+                // A concurrent request with this key committed while we waited on its row. Nothing has been
+                // read in this transaction yet, so the lookup sees that commit.
+                IdempotencyRecord record = idempotencyRecordRepository.findById(key)
+                        .orElseThrow(() -> new GlobalException(
+                                "Idempotency-Key could not be claimed, retry the request",
+                                HttpStatus.CONFLICT, "IDEMPOTENCY_KEY_IN_USE"));
+                return replay(record, requestHash, responseType);
+            }
+            T body = action.get();
+            jdbcTemplate.update(COMPLETE_SQL, toJson(body), key);
+            return ResponseEntity.ok(body);
+        });
+    }
+
+    @Scheduled(initialDelayString = "${pharmacy.idempotency.cleanup-interval-ms:3600000}",
+            fixedDelayString = "${pharmacy.idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpiredKeys() {
+        idempotencyRecordRepository.deleteExpired(new Date());
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyRecord record, String requestHash, Class<T> responseType) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new GlobalException("Idempotency-Key was already used for a different request",
+                    HttpStatus.UNPROCESSABLE_ENTITY, "IDEMPOTENCY_KEY_REUSED");
+        }
+        try {
+            return ResponseEntity.ok()
+                    .header(REPLAYED_HEADER, "true")
+                    .body(objectMapper.readValue(record.getResponseBody(), responseType));
+        } catch (JsonProcessingException e) {
+            throw new GlobalException("Stored response for Idempotency-Key could not be read", e);
+        }
+    }
+
+    private String fingerprint(String scope, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new GlobalException("Could not fingerprint request", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new GlobalException("Could not store response for Idempotency-Key", e);
+        }
+    }
+}
@@ -1,15 +1,28 @@
 package pharmacy.pharmacy.service;
 
 import io.sentry.Sentry;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import pharmacy.pharmacy.dao.InventoryRepository;
+import pharmacy.pharmacy.dto.InventoryAvailabilityDTO;
 import pharmacy.pharmacy.dto.InventoryDTO;
 import pharmacy.pharmacy.entity.Inventory;
+import pharmacy.pharmacy.enums.JsonStreamFormat;
+import pharmacy.pharmacy.event.InventoryChangedEvent;
 import pharmacy.pharmacy.exception.GlobalException;
 import pharmacy.pharmacy.exception.ResourceNotFoundException;
+import pharmacy.pharmacy.service.export.JsonStreamWriter;
+import pharmacy.pharmacy.service.reservation.StockAvailabilityCounter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
 import java.util.List;
+import java.util.OptionalInt;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class InventoryService {
@@ -17,10 +30,19 @@ public class InventoryService {
     private final InventoryRepository inventoryRepository;
     private final ProductService productService;
     private final BranchService branchService;
+    private final JsonStreamWriter jsonStreamWriter;
+    private final StockAvailabilityCounter availabilityCounter;
+    private final ApplicationEventPublisher eventPublisher;
 
     public InventoryService(InventoryRepository inventoryRepository,
                           ProductService productService,
-                          BranchService branchService) {
+                          BranchService branchService,
+                          JsonStreamWriter jsonStreamWriter,
+                          StockAvailabilityCounter availabilityCounter,
+                          ApplicationEventPublisher eventPublisher) {
+        this.jsonStreamWriter = jsonStreamWriter;
+        this.availabilityCounter = availabilityCounter;
+        this.eventPublisher = eventPublisher;
         this.inventoryRepository = inventoryRepository;
         this.productService = productService;
         this.branchService = branchService;
@@ -37,6 +59,14 @@ public class InventoryService {
         }
     }
 
+    // Rows are mapped and written one at a time while the cursor is open; see JsonStreamWriter
+    @Transactional(readOnly = true)
+    public long streamAllInventory(JsonStreamFormat format, OutputStream out) throws IOException {
+        try (Stream<Inventory> rows = inventoryRepository.streamAll()) {
+            return jsonStreamWriter.write(format, rows, this::convertToDTO, out);
+        }
+    }
+
     public InventoryDTO getInventoryById(int id) {
         try {
             Inventory inventory = inventoryRepository.findById(id)
@@ -82,9 +112,17 @@ public class InventoryService {
             if (inventoryDTO.getStockLevel() == null) {
                 throw new GlobalException("Stock level is required");
             }
+            // Holds and sales update every record of the branch and product, so a second one would split them
+            if (inventoryRepository.existsByBranchIdAndProductId(inventoryDTO.getBranchId(),
+                    inventoryDTO.getProductId())) {
+                throw new GlobalException("Inventory record already exists for product " +
+                        inventoryDTO.getProductId() + " at branch " + inventoryDTO.getBranchId(),
+                        HttpStatus.CONFLICT, "DUPLICATE_INVENTORY");
+            }
 
             Inventory inventory = convertToEntity(inventoryDTO);
             Inventory savedInventory = inventoryRepository.save(inventory);
+            publishChanged(savedInventory);
             return convertToDTO(savedInventory);
         } catch (Exception e) {
             Sentry.captureException(e);
@@ -92,9 +130,11 @@ public class InventoryService {
         }
     }
 
+    // The row is written back whole, so it is locked against holds and sales for the rest of the transaction
+    @Transactional
     public InventoryDTO updateInventory(int id, InventoryDTO inventoryDTO) {
         try {
-            Inventory existingInventory = inventoryRepository.findById(id)
+            Inventory existingInventory = inventoryRepository.findByIdForUpdate(id)
                     .orElseThrow(() -> new ResourceNotFoundException("Inventory record not found with id: " + id));
 
             if (inventoryDTO.getShelfLocation() != null) {
@@ -117,6 +157,7 @@ public class InventoryService {
             }
 
             Inventory updatedInventory = inventoryRepository.save(existingInventory);
+            publishChanged(updatedInventory);
             return convertToDTO(updatedInventory);
         } catch (Exception e) {
             Sentry.captureException(e);
@@ -126,31 +167,26 @@ public class InventoryService {
 
     public void deleteInventory(int id) {
         try {
-            if (!inventoryRepository.existsById(id)) {
-                throw new ResourceNotFoundException("Inventory record not found with id: " + id);
-            }
-            inventoryRepository.deleteById(id);
+            Inventory inventory = inventoryRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Inventory record not found with id: " + id));
+            inventoryRepository.delete(inventory);
+            publishChanged(inventory);
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new GlobalException("Failed to delete inventory record with id: " + id, e);
         }
     }
 
+    // Applied to the stored level in one statement, so holds and sales committed meanwhile are kept
+    @Transactional
     public InventoryDTO updateStockLevel(int id, int quantity) {
         try {
-            Inventory inventory = inventoryRepository.findById(id)
-                    .orElseThrow(() -> new ResourceNotFoundException("Inventory record not found with id: " + id));
-
-            inventory.updateStockLevel(quantity);
-
-            // Check and update alerts
-            if (inventory.needsRestocking()) {
-                inventory.setLowStockAlert(true);
-            } else {
-                inventory.setLowStockAlert(false);
+            if (inventoryRepository.adjustStockLevel(id, quantity, new Date()) == 0) {
+                throw new ResourceNotFoundException("Inventory record not found with id: " + id);
             }
-
-            Inventory updatedInventory = inventoryRepository.save(inventory);
+            Inventory updatedInventory = inventoryRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Inventory record not found with id: " + id));
+            publishChanged(updatedInventory);
             return convertToDTO(updatedInventory);
         } catch (Exception e) {
             Sentry.captureException(e);
@@ -169,6 +205,27 @@ public class InventoryService {
         }
     }
 
+    // Served from the in-memory counters; untracked when the branch keeps no record for the product
+    public InventoryAvailabilityDTO getAvailability(Integer branchId, Integer productId) {
+        if (branchId == null || productId == null) {
+            throw new GlobalException("Branch ID and product ID are required",
+                    HttpStatus.BAD_REQUEST, "INVALID_FILTER");
+        }
+        OptionalInt available = availabilityCounter.getAvailable(branchId, productId);
+        InventoryAvailabilityDTO dto = new InventoryAvailabilityDTO();
+        dto.setBranchId(branchId);
+        dto.setProductId(productId);
+        dto.setTracked(available.isPresent());
+        dto.setAvailable(available.isPresent() ? Math.max(available.getAsInt(), 0) : null);
+        return dto;
+    }
+
+    // Refreshes the availability counter for the record once the change commits
+    private void publishChanged(Inventory inventory) {
+        eventPublisher.publishEvent(
+                new InventoryChangedEvent(inventory.getBranch().getId(), inventory.getProduct().getId()));
+    }
+
     private InventoryDTO convertToDTO(Inventory inventory) {
         InventoryDTO dto = new InventoryDTO();
         dto.setId(inventory.getId());
@@ -176,6 +233,7 @@ public class InventoryService {
         dto.setBranchId(inventory.getBranch().getId());
         dto.setShelfLocation(inventory.getShelfLocation());
         dto.setStockLevel(inventory.getStockLevel());
+        dto.setReservedQuantity(inventory.getReservedQuantity());
         dto.setMinimumStockLevel(inventory.getMinimumStockLevel());
         dto.setMaximumStockLevel(inventory.getMaximumStockLevel());
         dto.setLastRestocked(inventory.getLastRestocked());
@@ -0,0 +1,75 @@
+package pharmacy.pharmacy.service;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import pharmacy.pharmacy.dao.CategoryRepository;
+import pharmacy.pharmacy.dao.ProductRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves files saved under the old {@code UUID_originalName} scheme into the content-addressed store
+ * and repoints product and category image URLs at them, so duplicate uploads collapse into one file.
+ *
+ * Runs before the other startup runners so the in-memory indexes load the new URLs.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LegacyUploadMigration implements CommandLineRunner {
+
+    private final FileStorageService fileStorageService;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public LegacyUploadMigration(FileStorageService fileStorageService,
+                                 ProductRepository productRepository,
+                                 CategoryRepository categoryRepository,
+                                 TransactionTemplate transactionTemplate) {
+        this.fileStorageService = fileStorageService;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void run(String... args) throws IOException {
+        Path uploadDir = fileStorageService.getUploadDir();
+        if (!Files.isDirectory(uploadDir)) {
+            return;
+        }
+        List<Path> legacyFiles;
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            legacyFiles = files.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                    .filter(path -> FileStorageService.hashOf(urlOf(path)) == null)
+                    .collect(Collectors.toList());
+        }
+        for (Path legacyFile : legacyFiles) {
+            String oldUrl = urlOf(legacyFile);
+            String newUrl;
+            try (InputStream in = Files.newInputStream(legacyFile)) {
+                newUrl = fileStorageService.store(in, legacyFile.getFileName().toString());
+            }
+            // The old file is only removed once nothing points at it any more
+            transactionTemplate.executeWithoutResult(status -> {
+                productRepository.replaceImageUrl(oldUrl, newUrl);
+                categoryRepository.replaceImageUrl(oldUrl, newUrl);
+            });
+            Files.deleteIfExists(legacyFile);
+        }
+    }
+
+    private static String urlOf(Path file) {
+        return FileStorageService.URL_PREFIX + file.getFileName();
+    }
+}
@@ -7,14 +7,19 @@ import pharmacy.pharmacy.dao.NotificationRepository;
 import pharmacy.pharmacy.dto.NotificationDTO;
 import pharmacy.pharmacy.entity.Notification;
 import pharmacy.pharmacy.entity.User;
+import pharmacy.pharmacy.enums.JsonStreamFormat;
 import pharmacy.pharmacy.enums.NotificationType;
 import pharmacy.pharmacy.exception.GlobalException;
 import pharmacy.pharmacy.exception.ResourceNotFoundException;
 import pharmacy.pharmacy.mapper.EntityDtoMapper;
+import pharmacy.pharmacy.service.export.JsonStreamWriter;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -22,9 +27,12 @@ public class NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final UserService userService;
+    private final JsonStreamWriter jsonStreamWriter;
 
     public NotificationService(NotificationRepository notificationRepository,
-                             UserService userService) {
+                             UserService userService,
+                             JsonStreamWriter jsonStreamWriter) {
+        this.jsonStreamWriter = jsonStreamWriter;
         this.notificationRepository = notificationRepository;
         this.userService = userService;
     }
@@ -41,6 +49,15 @@ public class NotificationService {
         }
     }
 
+    // Rows are mapped and written one at a time while the cursor is open; see JsonStreamWriter
+    @Transactional(readOnly = true)
+    public long streamAllNotifications(JsonStreamFormat format, OutputStream out) throws IOException {
+        try (Stream<Object[]> rows = notificationRepository.streamAllWithUserName()) {
+            return jsonStreamWriter.write(format, rows,
+                    row -> EntityDtoMapper.convertToNotificationDTO((Notification) row[0], (String) row[1]), out);
+        }
+    }
+
     @Transactional(readOnly = true)
     public NotificationDTO getNotificationById(int id) {
         try {
@@ -0,0 +1,175 @@
+package pharmacy.pharmacy.service;
+
+import io.sentry.Sentry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pharmacy.pharmacy.dao.ArchivedOrderItemRepository;
+import pharmacy.pharmacy.dao.ArchivedOrderRepository;
+import pharmacy.pharmacy.dto.OrderDTO;
+import pharmacy.pharmacy.dto.OrderItemDTO;
+import pharmacy.pharmacy.entity.ArchivedOrder;
+import pharmacy.pharmacy.entity.ArchivedOrderItem;
+import pharmacy.pharmacy.enums.OrderStatus;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Moves COMPLETED and CANCELLED orders older than the archive horizon, with their items, from
+ * {@code orders}/{@code order_items} into {@code orders_archive}/{@code order_items_archive}. Runs off-hours
+ * in chunks, each chunk its own transaction, and stops when the run's time budget is spent.
+ *
+ * Archived orders keep their ids. Reads by id and history pages whose date window reaches the archive include
+ * them; everything else, including the order list and export, sees only live orders.
+ */
+@Service
+public class OrderArchiveService {
+
+    private static final String ORDER_COLUMNS = "id, user_id, branch_id, order_date, subtotal_amount, " +
+            "total_amount, discount_amount, tax_amount, status, payment_method, payment_status, created_at, " +
+            "processed_by, notes, version";
+    private static final String ITEM_COLUMNS =
+            "id, order_id, product_id, quantity, unit_price, unit_cost, discount_amount, created_at, updated_at";
+
+    // Locks the chunk so no status change or item edit can slip in between the copy and the delete
+    private static final String SELECT_CHUNK_SQL = "SELECT id FROM orders " +
+            "WHERE status IN ('COMPLETED', 'CANCELLED') AND order_date < :cutoff LIMIT :limit FOR UPDATE";
+    private static final String COPY_ORDERS_SQL = "INSERT INTO orders_archive (" + ORDER_COLUMNS + ", archived_at) " +
+            "SELECT " + ORDER_COLUMNS + ", :now FROM orders WHERE id IN (:ids)";
+    private static final String COPY_ITEMS_SQL = "INSERT INTO order_items_archive (" + ITEM_COLUMNS + ") " +
+            "SELECT " + ITEM_COLUMNS + " FROM order_items WHERE order_id IN (:ids)";
+    private static final String DELETE_ITEMS_SQL = "DELETE FROM order_items WHERE order_id IN (:ids)";
+    private static final String DELETE_ORDERS_SQL = "DELETE FROM orders WHERE id IN (:ids)";
+
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final ArchivedOrderItemRepository archivedOrderItemRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration horizon;
+    private final int chunkSize;
+    private final Duration maxRunTime;
+
+    public OrderArchiveService(ArchivedOrderRepository archivedOrderRepository,
+                               ArchivedOrderItemRepository archivedOrderItemRepository,
+                               NamedParameterJdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${pharmacy.archive.horizon-days:365}") long horizonDays,
+                               @Value("${pharmacy.archive.chunk-size:500}") int chunkSize,
+                               @Value("${pharmacy.archive.max-run-minutes:120}") long maxRunMinutes) {
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.archivedOrderItemRepository = archivedOrderItemRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.horizon = Duration.ofDays(horizonDays);
+        this.chunkSize = chunkSize;
+        this.maxRunTime = Duration.ofMinutes(maxRunMinutes);
+    }
+
+    @Scheduled(cron = "${pharmacy.archive.cron:0 30 2 * * *}")
+    public void archiveScheduled() {
+        try {
+            archiveOrders();
+        } catch (Exception e) {
+            Sentry.captureException(e);
+        }
+    }
+
+    /**
+     * Archives chunks until no order is past the horizon or the time budget is spent. Returns the number of
+     * orders moved; a run cut short is continued by the next one.
+     */
+    public int archiveOrders() {
+        long deadline = System.currentTimeMillis() + maxRunTime.toMillis();
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - horizon.toMillis());
+        int archived = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> archiveChunk(cutoff));
+            archived += moved;
+        } while (moved == chunkSize && System.currentTimeMillis() < deadline);
+        return archived;
+    }
+
+    // True when an archived order could sort at or after {@code notAfter}, i.e. a page reaching that far back
+    @Transactional(readOnly = true)
+    public boolean mayContainOrdersFrom(Date notAfter) {
+        Date latest = archivedOrderRepository.findLatestOrderDate();
+        return latest != null && (notAfter == null || !latest.before(notAfter));
+    }
+
+    @Transactional(readOnly = true)
+    public Date findFirstOrderDateByStatus(OrderStatus status) {
+        return archivedOrderRepository.findFirstOrderDateByStatus(status);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderDTO> getOrderHistory(Integer userId, Integer branchId, OrderStatus status, Date from, Date to,
+                                          Date beforeDate, Integer beforeId, int limit) {
+        return archivedOrderRepository.findHistoryPage(userId, branchId, status, from, to, beforeDate, beforeId, limit)
+                .stream()
+                .map(row -> convertToDTO((ArchivedOrder) row[0], (String) row[1], (String) row[2]))
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<OrderDTO> getOrderById(int id) {
+        return archivedOrderRepository.findWithNames(id).stream().findFirst().map(row -> {
+            OrderDTO dto = convertToDTO((ArchivedOrder) row[0], (String) row[1], (String) row[2]);
+            dto.setOrderItems(archivedOrderItemRepository.findByOrderIdWithProduct(id).stream()
+                    .map(itemRow -> convertToDTO((ArchivedOrderItem) itemRow[0], (String) itemRow[1],
+                            (String) itemRow[2]))
+                    .collect(Collectors.toList()));
+            return dto;
+        });
+    }
+
+    private int archiveChunk(Timestamp cutoff) {
+        List<Integer> ids = jdbcTemplate.queryForList(SELECT_CHUNK_SQL,
+                new MapSqlParameterSource("cutoff", cutoff).addValue("limit", chunkSize), Integer.class);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids)
+                .addValue("now", new Timestamp(System.currentTimeMillis()));
+        jdbcTemplate.update(COPY_ORDERS_SQL, params);
+        jdbcTemplate.update(COPY_ITEMS_SQL, params);
+        jdbcTemplate.update(DELETE_ITEMS_SQL, params);
+        jdbcTemplate.update(DELETE_ORDERS_SQL, params);
+        return ids.size();
+    }
+
+    private static OrderDTO convertToDTO(ArchivedOrder order, String customerName, String branchName) {
+        OrderDTO dto = new OrderDTO();
+        dto.setId(order.getId());
+        dto.setUserId(order.getUserId());
+        dto.setCustomerName(order.getUserId() != null ? customerName : "Guest");
+        dto.setBranchId(order.getBranchId());
+        dto.setBranchName(branchName);
+        dto.setOrderDate(order.getOrderDate());
+        dto.setSubtotalAmount(order.getSubtotalAmount());
+        dto.setTotalAmount(order.getTotalAmount());
+        dto.setDiscountAmount(order.getDiscountAmount());
+        dto.setTaxAmount(order.getTaxAmount());
+        dto.setStatus(order.getStatus());
+        dto.setPaymentMethod(order.getPaymentMethod());
+        dto.setPaymentStatus(order.getPaymentStatus());
+        dto.setNotes(order.getNotes());
+        dto.setProcessedById(order.getProcessedBy());
+        dto.setVersion(order.getVersion());
+        return dto;
+    }
+
+    private static OrderItemDTO convertToDTO(ArchivedOrderItem item, String productName, String productBarcode) {
+        return new OrderItemDTO(item.getId(), item.getOrderId(), item.getProductId(), item.getQuantity(),
+                item.getPrice(), item.getDiscountAmount(), productName, productBarcode, item.getTotalPrice());
+    }
+}
@@ -1,93 +1,153 @@
 package pharmacy.pharmacy.service;
 
-import io.sentry.Sentry;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import pharmacy.pharmacy.dao.OrderItemRepository;
+import pharmacy.pharmacy.dao.OrderRepository;
 import pharmacy.pharmacy.dao.ProductRepository;
 import pharmacy.pharmacy.dto.OrderItemDTO;
 import pharmacy.pharmacy.entity.Order;
 import pharmacy.pharmacy.entity.OrderItem;
 import pharmacy.pharmacy.entity.Product;
+import pharmacy.pharmacy.event.StockLevelChangedEvent;
 import pharmacy.pharmacy.exception.GlobalException;
 import pharmacy.pharmacy.exception.ResourceNotFoundException;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class OrderItemService {
 
+    // order_items uses IDENTITY keys, which Hibernate cannot batch, so new lines are inserted through JDBC
+    private static final String INSERT_ITEM_SQL = "INSERT INTO order_items (order_id, product_id, quantity, " +
+            "unit_price, unit_cost, discount_amount, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Same guard as ProductRepository.decrementStock
+    private static final String DECREMENT_STOCK_SQL = "UPDATE product SET stock_quantity = stock_quantity - ?, " +
+            "version = version + 1 WHERE id = ? AND stock_quantity >= ?";
+
     private final OrderItemRepository orderItemRepository;
-    private final ProductService productService;
+    private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     public OrderItemService(OrderItemRepository orderItemRepository,
-                            ProductService productService,
-                            ProductRepository productRepository) {
+                            OrderRepository orderRepository,
+                            ProductRepository productRepository,
+                            JdbcTemplate jdbcTemplate,
+                            ApplicationEventPublisher eventPublisher) {
         this.orderItemRepository = orderItemRepository;
-        this.productService = productService;
+        this.orderRepository = orderRepository;
         this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
     }
 
-    public OrderItemDTO addItemToOrder(Order order, OrderItemDTO orderItemDTO) {
-        // Validate input
-        if (orderItemDTO.getProductId() == null) {
-            throw new GlobalException("Product ID is required");
+    /**
+     * Adds every line of a new order with a fixed number of statements, however long the basket: one query
+     * for the products, one batched stock update and one batched insert. Throws OUT_OF_STOCK when any
+     * product is short; the caller's transaction then rolls back the decrements already made.
+     */
+    public int addItemsToOrder(Order order, List<OrderItemDTO> orderItemDTOs) {
+        // Sorted by product id, so orders sharing products lock their rows in the same order and cannot deadlock
+        Map<Integer, Integer> quantityByProduct = new TreeMap<>();
+        for (OrderItemDTO orderItemDTO : orderItemDTOs) {
+            validate(orderItemDTO);
+            quantityByProduct.merge(orderItemDTO.getProductId(), orderItemDTO.getQuantity(), Integer::sum);
         }
-        if (orderItemDTO.getQuantity() == null || orderItemDTO.getQuantity() <= 0) {
-            throw new GlobalException("Quantity must be greater than 0");
+        if (quantityByProduct.isEmpty()) {
+            return 0;
         }
 
-        Product product = productService.getProductById(orderItemDTO.getProductId());
-
-        // Create new order item
-        OrderItem orderItem = new OrderItem();
-        orderItem.setOrder(order);
-        orderItem.setProduct(product);
-        orderItem.setQuantity(orderItemDTO.getQuantity());
-        orderItem.setPrice(product.getPrice());
-        orderItem.setDiscountAmount(BigDecimal.ZERO);
+        Map<Integer, Product> products = productRepository.findAllById(quantityByProduct.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        for (Integer productId : quantityByProduct.keySet()) {
+            if (!products.containsKey(productId)) {
+                throw new ResourceNotFoundException("Product not found with id: " + productId);
+            }
+        }
 
-        OrderItem savedItem = orderItemRepository.save(orderItem);
+        List<Object[]> decrements = new ArrayList<>(quantityByProduct.size());
+        quantityByProduct.forEach((productId, quantity) -> decrements.add(new Object[]{quantity, productId, quantity}));
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, decrements);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                Product product = products.get((Integer) decrements.get(i)[1]);
+                throw new GlobalException("Insufficient stock for product: " + product.getName(),
+                        HttpStatus.CONFLICT, "OUT_OF_STOCK");
+            }
+        }
 
-        // Update product stock
-        product.setStockQuantity(product.getStockQuantity() - orderItemDTO.getQuantity());
-        productRepository.save(product);
+        BigDecimal linesTotal = BigDecimal.ZERO;
+        for (OrderItemDTO orderItemDTO : orderItemDTOs) {
+            BigDecimal price = products.get(orderItemDTO.getProductId()).getPrice();
+            linesTotal = linesTotal.add(price.multiply(BigDecimal.valueOf(orderItemDTO.getQuantity())));
+        }
 
-        return convertToDTO(savedItem);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, orderItemDTOs, orderItemDTOs.size(), (ps, orderItemDTO) -> {
+            ps.setInt(1, order.getId());
+            ps.setInt(2, orderItemDTO.getProductId());
+            ps.setInt(3, orderItemDTO.getQuantity());
+            Product product = products.get(orderItemDTO.getProductId());
+            ps.setBigDecimal(4, product.getPrice());
+            ps.setBigDecimal(5, product.getCostPrice());
+            ps.setBigDecimal(6, BigDecimal.ZERO);
+            ps.setTimestamp(7, now);
+            ps.setTimestamp(8, now);
+        });
+        order.adjustSubtotal(linesTotal);
+
+        for (Product product : products.values()) {
+            eventPublisher.publishEvent(new StockLevelChangedEvent(product.getId(), product.getBarcode()));
+        }
+        return orderItemDTOs.size();
     }
 
     public OrderItemDTO updateOrderItemQuantity(int id, int quantity) {
-        try {
-            if (quantity <= 0) {
-                throw new GlobalException("Quantity must be greater than 0");
-            }
+        if (quantity <= 0) {
+            throw new GlobalException("Quantity must be greater than 0", HttpStatus.BAD_REQUEST, "INVALID_QUANTITY");
+        }
 
-            OrderItem orderItem = orderItemRepository.findById(id)
-                    .orElseThrow(() -> new ResourceNotFoundException("Order item not found with id: " + id));
+        // The delta is taken from the quantity stored now, not one another edit is about to replace
+        OrderItem orderItem = orderItemRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Order item not found with id: " + id));
 
-            orderItem.setQuantity(quantity);
-            OrderItem updatedItem = orderItemRepository.save(orderItem);
-            return convertToDTO(updatedItem);
-        } catch (Exception e) {
-            Sentry.captureException(e);
-            throw new GlobalException("Failed to update order item quantity for id: " + id, e);
-        }
+        BigDecimal delta = orderItem.getPrice().multiply(BigDecimal.valueOf(quantity - orderItem.getQuantity()));
+        orderItem.setQuantity(quantity);
+        OrderItem updatedItem = orderItemRepository.save(orderItem);
+        orderRepository.adjustSubtotal(orderItem.getOrder().getId(), delta);
+        return convertToDTO(updatedItem);
     }
 
     public void removeItemFromOrder(int id) {
-        try {
-            OrderItem orderItem = orderItemRepository.findById(id)
-                    .orElseThrow(() -> new ResourceNotFoundException("Order item not found with id: " + id));
-
-            orderItemRepository.delete(orderItem);
-        } catch (Exception e) {
-            Sentry.captureException(e);
-            throw new GlobalException("Failed to remove order item with id: " + id, e);
-        }
+        OrderItem orderItem = orderItemRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Order item not found with id: " + id));
+
+        orderItemRepository.delete(orderItem);
+        orderRepository.adjustSubtotal(orderItem.getOrder().getId(), orderItem.getTotalPrice().negate());
     }
 
+    private static void validate(OrderItemDTO orderItemDTO) {
+        if (orderItemDTO.getProductId() == null) {
+            throw new GlobalException("Product ID is required", HttpStatus.BAD_REQUEST, "INVALID_ORDER_ITEM");
+        }
+        if (orderItemDTO.getQuantity() == null || orderItemDTO.getQuantity() <= 0) {
+            throw new GlobalException("Quantity must be greater than 0", HttpStatus.BAD_REQUEST, "INVALID_QUANTITY");
+        }
+    }
 
     private OrderItemDTO convertToDTO(OrderItem orderItem) {
         OrderItemDTO dto = new OrderItemDTO();
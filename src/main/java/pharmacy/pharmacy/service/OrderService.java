@@ -1,63 +1,179 @@
 package pharmacy.pharmacy.service;
 
 import io.sentry.Sentry;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import pharmacy.pharmacy.dao.OrderItemRepository;
 import pharmacy.pharmacy.dao.OrderRepository;
 import pharmacy.pharmacy.dto.OrderDTO;
+import pharmacy.pharmacy.dto.OrderHistoryPageResponse;
 import pharmacy.pharmacy.dto.OrderItemDTO;
+import pharmacy.pharmacy.dto.order.OrderStatusBulkRequest;
+import pharmacy.pharmacy.dto.order.OrderStatusBulkResponse;
+import pharmacy.pharmacy.dto.order.OrderStatusBulkResult;
 import pharmacy.pharmacy.entity.Branch;
 import pharmacy.pharmacy.entity.Order;
 import pharmacy.pharmacy.entity.OrderItem;
 import pharmacy.pharmacy.entity.User;
+import pharmacy.pharmacy.enums.JsonStreamFormat;
 import pharmacy.pharmacy.enums.OrderStatus;
+import pharmacy.pharmacy.enums.OrderTransitionOutcome;
 import pharmacy.pharmacy.enums.PaymentMethod;
 import pharmacy.pharmacy.enums.PaymentStatus;
+import pharmacy.pharmacy.event.OrderStatusChangedEvent;
 import pharmacy.pharmacy.exception.GlobalException;
 import pharmacy.pharmacy.exception.ResourceNotFoundException;
+import pharmacy.pharmacy.service.export.JsonStreamWriter;
+import pharmacy.pharmacy.service.outbox.OutboxService;
+import pharmacy.pharmacy.service.reservation.ReservationService;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class OrderService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BULK_ORDERS = 500;
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final BranchService branchService;
     private final UserService userService;
     private final ProductService productService;
     private final OrderItemService orderItemService;
+    private final JsonStreamWriter jsonStreamWriter;
+    private final SalesReportService salesReportService;
+    private final OutboxService outboxService;
+    private final OrderArchiveService orderArchiveService;
+    private final ReservationService reservationService;
 
     public OrderService(OrderRepository orderRepository,
                         OrderItemRepository orderItemRepository,
                         BranchService branchService,
                         UserService userService,
                         ProductService productService,
-                        OrderItemService orderItemService) {
+                        OrderItemService orderItemService,
+                        JsonStreamWriter jsonStreamWriter,
+                        SalesReportService salesReportService,
+                        OutboxService outboxService,
+                        OrderArchiveService orderArchiveService,
+                        ReservationService reservationService) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.branchService = branchService;
         this.userService = userService;
         this.productService = productService;
         this.orderItemService = orderItemService;
+        this.jsonStreamWriter = jsonStreamWriter;
+        this.salesReportService = salesReportService;
+        this.outboxService = outboxService;
+        this.orderArchiveService = orderArchiveService;
+        this.reservationService = reservationService;
     }
 
     @Transactional(readOnly = true)
     public List<OrderDTO> getAllOrders() {
-        return orderRepository.findAll().stream()
-                .map(this::convertToDTO)
+        return orderRepository.findAllWithCustomerName().stream()
+                .map(row -> convertToDTO((Order) row[0], (String) row[1]))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Order history for a customer or a branch, newest first, optionally narrowed to one status and to the
+     * days {@code from}..{@code to}. Keyset pagination on (orderDate, id): the cursor pins the last row of
+     * the previous page, so a page deep into years of history costs the same as the first one.
+     */
+    @Transactional(readOnly = true)
+    public OrderHistoryPageResponse getOrderHistory(Integer userId, Integer branchId, OrderStatus status,
+                                                    LocalDate from, LocalDate to, String cursor, Integer size) {
+        if (userId == null && branchId == null) {
+            throw new GlobalException("User ID or branch ID is required", HttpStatus.BAD_REQUEST, "INVALID_FILTER");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new GlobalException("'from' must be on or before 'to'", HttpStatus.BAD_REQUEST, "INVALID_DATE_RANGE");
+        }
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        Date beforeDate = null;
+        Integer beforeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = CursorCodec.decode(cursor, 2);
+                beforeDate = new Date(Long.parseLong(parts[0]));
+                beforeId = Integer.valueOf(parts[1]);
+            } catch (IllegalArgumentException e) {
+                throw new GlobalException("Invalid cursor: " + e.getMessage(),
+                        HttpStatus.BAD_REQUEST, "INVALID_CURSOR");
+            }
+        }
+
+        // One row more than the page tells whether another page follows
+        Date fromDate = startOfDay(from);
+        Date toDate = to == null ? null : startOfDay(to.plusDays(1));
+        List<OrderDTO> rows = orderRepository.findHistoryPage(userId, branchId, status, fromDate, toDate,
+                        beforeDate, beforeId, pageSize + 1).stream()
+                .map(row -> {
+                    Order order = (Order) row[0];
+                    OrderDTO dto = convertToDTO(order, (String) row[1]);
+                    dto.setBranchName(order.getBranch().getName());
+                    return dto;
+                })
                 .collect(Collectors.toList());
+
+        // Archived orders are read only when this page reaches back as far as the newest of them
+        Date reachesBack = rows.size() > pageSize ? rows.get(pageSize).getOrderDate() : fromDate;
+        if (orderArchiveService.mayContainOrdersFrom(reachesBack)) {
+            rows.addAll(orderArchiveService.getOrderHistory(userId, branchId, status, fromDate, toDate,
+                    beforeDate, beforeId, pageSize + 1));
+            rows.sort(Comparator.comparing((OrderDTO dto) -> dto.getOrderDate().getTime())
+                    .thenComparing(OrderDTO::getId)
+                    .reversed());
+        }
+        boolean hasNext = rows.size() > pageSize;
+        List<OrderDTO> items = hasNext ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            OrderDTO last = items.get(items.size() - 1);
+            nextCursor = CursorCodec.encode(String.valueOf(last.getOrderDate().getTime()),
+                    String.valueOf(last.getId()));
+        }
+        return new OrderHistoryPageResponse(items, nextCursor, hasNext, items.size());
+    }
+
+    // Rows are mapped and written one at a time while the cursor is open; see JsonStreamWriter
+    @Transactional(readOnly = true)
+    public long streamAllOrders(JsonStreamFormat format, OutputStream out) throws IOException {
+        try (Stream<Object[]> rows = orderRepository.streamAllWithCustomerName()) {
+            return jsonStreamWriter.write(format, rows, row -> convertToDTO((Order) row[0], (String) row[1]), out);
+        }
     }
 
     @Transactional(readOnly = true)
     public OrderDTO getOrderById(int id) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+        Order order = orderRepository.findById(id).orElse(null);
+        if (order == null) {
+            return orderArchiveService.getOrderById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+        }
         List<OrderItem> orderItems = orderItemRepository.findByOrder(order);
         return convertToDTO(order, orderItems);
     }
@@ -73,6 +189,11 @@ public class OrderService {
     }
 
     public OrderDTO createOrder(OrderDTO orderDTO) {
+        return createOrder(orderDTO, null);
+    }
+
+    // reservationHolderId names the cart whose branch stock holds the order uses up, if any
+    public OrderDTO createOrder(OrderDTO orderDTO, String reservationHolderId) {
         // Validate input
         if (orderDTO.getBranchId() == null) {
             throw new GlobalException("Branch ID is required");
@@ -90,36 +211,116 @@ public class OrderService {
         order.setOrderDate(new Date());
         order.setStatus(orderDTO.getStatus());
         order.setPaymentStatus(orderDTO.getPaymentStatus());
-        order.setTotalAmount(orderDTO.getTotalAmount());
+        order.setPaymentMethod(orderDTO.getPaymentMethod());
         order.setDiscountAmount(orderDTO.getDiscountAmount());
         order.setTaxAmount(orderDTO.getTaxAmount());
+        // Computed here rather than taken from the client; adding the items moves it by their total
+        order.setSubtotalAmount(BigDecimal.ZERO);
+        order.setTotalAmount(orZero(orderDTO.getTaxAmount()).subtract(orZero(orderDTO.getDiscountAmount())));
 
         Order savedOrder = orderRepository.save(order);
 
         // Add order items
-        for (OrderItemDTO itemDTO : orderDTO.getOrderItems()) {
-            orderItemService.addItemToOrder(savedOrder, itemDTO);
+        if (orderDTO.getOrderItems() != null) {
+            orderItemService.addItemsToOrder(savedOrder, orderDTO.getOrderItems());
+            reservationService.commit(reservationHolderId, branch.getId(), orderDTO.getOrderItems());
         }
+        // Sales recorded straight from the till are created as COMPLETED
+        salesReportService.orderStatusChanged(savedOrder.getId(), null, savedOrder.getStatus());
+        outboxService.orderStatusChanged(savedOrder, null);
 
         return convertToDTO(savedOrder);
     }
 
+    // Same rules as the bulk update: an invalid transition is refused with 409, a repeat of the status is a no-op
     public OrderDTO updateOrderStatus(int id, OrderStatus status) {
-        try {
-            Order order = getOrderEntityById(id);
-            order.setStatus(status);
+        Order order = orderRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+        OrderStatus previousStatus = order.getStatus();
+        if (previousStatus == status) {
+            return convertToDTO(order);
+        }
+        if (!previousStatus.canTransitionTo(status)) {
+            throw new GlobalException("Order " + id + " cannot move from " + previousStatus + " to " + status,
+                    HttpStatus.CONFLICT, "INVALID_TRANSITION");
+        }
+        salesReportService.orderStatusChanged(order.getId(), previousStatus, status);
+        order.setStatus(status);
+
+        // If order is completed, update payment status if not already set
+        if (status == OrderStatus.COMPLETED && order.getPaymentStatus() == PaymentStatus.PENDING) {
+            order.setPaymentStatus(PaymentStatus.PAID);
+        }
+
+        Order updatedOrder = orderRepository.save(order);
+        outboxService.orderStatusChanged(updatedOrder, previousStatus);
+        return convertToDTO(updatedOrder);
+    }
 
-            // If order is completed, update payment status if not already set
-            if (status == OrderStatus.COMPLETED && order.getPaymentStatus() == PaymentStatus.PENDING) {
-                order.setPaymentStatus(PaymentStatus.PAID);
+    /**
+     * Moves many orders to one status in one transaction. The orders are locked with a single select, each is
+     * checked against the version the client read and the allowed transitions, and the valid ones are updated
+     * with one statement. Rejected orders are reported per order and do not fail the request.
+     */
+    public OrderStatusBulkResponse updateOrderStatuses(OrderStatusBulkRequest request) {
+        OrderStatus status = request.getStatus();
+        List<OrderStatusBulkRequest.OrderVersion> requested = request.getOrders();
+        if (status == null) {
+            throw new GlobalException("Status is required", HttpStatus.BAD_REQUEST, "INVALID_STATUS");
+        }
+        if (requested == null || requested.isEmpty() || requested.size() > MAX_BULK_ORDERS) {
+            throw new GlobalException("Between 1 and " + MAX_BULK_ORDERS + " orders are required",
+                    HttpStatus.BAD_REQUEST, "INVALID_BULK_REQUEST");
+        }
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (OrderStatusBulkRequest.OrderVersion order : requested) {
+            if (order.getId() == null || !ids.add(order.getId())) {
+                throw new GlobalException("Order IDs must be present and unique",
+                        HttpStatus.BAD_REQUEST, "INVALID_BULK_REQUEST");
             }
+        }
 
-            Order updatedOrder = orderRepository.save(order);
-            return convertToDTO(updatedOrder);
-        } catch (Exception e) {
-            Sentry.captureException(e);
-            throw new GlobalException("Failed to update order status for id: " + id, e);
+        Map<Integer, Object[]> rows = new HashMap<>();
+        for (Object[] row : orderRepository.lockStatusRows(ids)) {
+            rows.put(((Number) row[0]).intValue(), row);
+        }
+
+        List<OrderStatusBulkResult> results = new ArrayList<>(requested.size());
+        Map<Integer, OrderStatus> previousStatuses = new LinkedHashMap<>();
+        List<OrderStatusChangedEvent> events = new ArrayList<>();
+        for (OrderStatusBulkRequest.OrderVersion order : requested) {
+            Object[] row = rows.get(order.getId());
+            if (row == null) {
+                results.add(new OrderStatusBulkResult(order.getId(), OrderTransitionOutcome.NOT_FOUND, null, null));
+                continue;
+            }
+            OrderStatus previous = OrderStatus.valueOf((String) row[1]);
+            long version = ((Number) row[2]).longValue();
+            OrderTransitionOutcome outcome;
+            if (order.getVersion() != null && order.getVersion() != version) {
+                outcome = OrderTransitionOutcome.VERSION_CONFLICT;
+            } else if (previous == status) {
+                outcome = OrderTransitionOutcome.UNCHANGED;
+            } else if (!previous.canTransitionTo(status)) {
+                outcome = OrderTransitionOutcome.INVALID_TRANSITION;
+            } else {
+                outcome = OrderTransitionOutcome.UPDATED;
+                version++;
+                previousStatuses.put(order.getId(), previous);
+                events.add(new OrderStatusChangedEvent(order.getId(),
+                        row[3] != null ? ((Number) row[3]).intValue() : null,
+                        ((Number) row[4]).intValue(), previous, status, (BigDecimal) row[5]));
+            }
+            results.add(new OrderStatusBulkResult(order.getId(), outcome, previous, version));
+        }
+
+        if (!previousStatuses.isEmpty()) {
+            orderRepository.updateStatusInBulk(previousStatuses.keySet(), status,
+                    status == OrderStatus.COMPLETED ? PaymentStatus.PAID : PaymentStatus.PENDING);
+            salesReportService.ordersStatusChanged(previousStatuses, status);
+            outboxService.ordersStatusChanged(events);
         }
+        return new OrderStatusBulkResponse(status, previousStatuses.size(), results);
     }
 
     public OrderDTO updatePaymentStatus(int id, PaymentStatus paymentStatus) {
@@ -166,15 +367,13 @@ public class OrderService {
                 throw new GlobalException("Cannot checkout empty order");
             }
 
-            // Calculate totals
-            calculateOrderTotals(order);
-
             // Update order status
             order.setStatus(OrderStatus.PENDING);
             order.setPaymentMethod(paymentMethod);
             order.setOrderDate(new Date());
 
             Order updatedOrder = orderRepository.save(order);
+            outboxService.orderStatusChanged(updatedOrder, OrderStatus.CART);
             return convertToDTO(updatedOrder);
         } catch (Exception e) {
             Sentry.captureException(e);
@@ -195,55 +394,27 @@ public class OrderService {
         }
     }
 
-    public OrderItemDTO updateOrderItemQuantity(int id, int quantity) {
-        try {
-            if (quantity <= 0) {
-                throw new GlobalException("Quantity must be greater than 0");
-            }
-
-            OrderItem orderItem = orderItemRepository.findById(id)
-                    .orElseThrow(() -> new ResourceNotFoundException("Order item not found with id: " + id));
-
-            orderItem.setQuantity(quantity);
-            OrderItem updatedItem = orderItemRepository.save(orderItem);
-            return convertToDTO(updatedItem);
-        } catch (Exception e) {
-            Sentry.captureException(e);
-            throw new GlobalException("Failed to update order item quantity for id: " + id, e);
-        }
+    private static BigDecimal orZero(BigDecimal amount) {
+        return amount != null ? amount : BigDecimal.ZERO;
     }
 
-    public void removeItemFromOrder(int id) {
-        try {
-            OrderItem orderItem = orderItemRepository.findById(id)
-                    .orElseThrow(() -> new ResourceNotFoundException("Order item not found with id: " + id));
-
-            orderItemRepository.delete(orderItem);
-        } catch (Exception e) {
-            Sentry.captureException(e);
-            throw new GlobalException("Failed to remove order item with id: " + id, e);
-        }
+    private static Date startOfDay(LocalDate day) {
+        return day == null ? null : Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
     }
 
-    private void calculateOrderTotals(Order order) {
-        List<OrderItem> items = orderItemRepository.findByOrder(order);
-        BigDecimal subtotal = items.stream()
-                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal discount = order.getDiscountAmount() != null ? order.getDiscountAmount() : BigDecimal.ZERO;
-        BigDecimal tax = order.getTaxAmount() != null ? order.getTaxAmount() : BigDecimal.ZERO;
-
-        order.setTotalAmount(subtotal.subtract(discount).add(tax));
+    private OrderDTO convertToDTO(Order order) {
+        return convertToDTO(order, order.getUser() != null ? order.getUser().getName() : null);
     }
 
-    private OrderDTO convertToDTO(Order order) {
+    // For rows where the customer's name was selected alongside the order and the user itself is not loaded
+    private OrderDTO convertToDTO(Order order, String customerName) {
         OrderDTO dto = new OrderDTO();
         dto.setId(order.getId());
         dto.setUserId(order.getUser() != null ? order.getUser().getId() : null);
-        dto.setCustomerName(order.getUser() != null ? order.getUser().getName() : "Guest");
+        dto.setCustomerName(order.getUser() != null ? customerName : "Guest");
         dto.setBranchId(order.getBranch().getId());
         dto.setOrderDate(order.getOrderDate());
+        dto.setSubtotalAmount(order.getSubtotalAmount());
         dto.setTotalAmount(order.getTotalAmount());
         dto.setDiscountAmount(order.getDiscountAmount());
         dto.setTaxAmount(order.getTaxAmount());
@@ -251,6 +422,7 @@ public class OrderService {
         dto.setPaymentMethod(order.getPaymentMethod());
         dto.setPaymentStatus(order.getPaymentStatus());
         dto.setNotes(order.getNotes());
+        dto.setVersion(order.getVersion());
         return dto;
     }
 
@@ -260,6 +432,7 @@ public class OrderService {
         dto.setUserId(order.getUser() != null ? order.getUser().getId() : null);
         dto.setBranchId(order.getBranch().getId());
         dto.setOrderDate(order.getOrderDate());
+        dto.setSubtotalAmount(order.getSubtotalAmount());
         dto.setTotalAmount(order.getTotalAmount());
         dto.setDiscountAmount(order.getDiscountAmount());
         dto.setTaxAmount(order.getTaxAmount());
@@ -267,6 +440,7 @@ public class OrderService {
         dto.setPaymentMethod(order.getPaymentMethod());
         dto.setPaymentStatus(order.getPaymentStatus());
         dto.setNotes(order.getNotes());
+        dto.setVersion(order.getVersion());
         dto.setCustomerName(order.getUser() != null ? order.getUser().getName() : "Guest");
 
         // Correctly map and collect the orderItems to a list of OrderItemDTOs
@@ -0,0 +1,422 @@
+package pharmacy.pharmacy.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import pharmacy.pharmacy.dao.CategoryRepository;
+import pharmacy.pharmacy.dao.ProductRepository;
+import pharmacy.pharmacy.dto.product.ProductImportError;
+import pharmacy.pharmacy.dto.product.ProductImportReport;
+import pharmacy.pharmacy.event.ProductsImportedEvent;
+import pharmacy.pharmacy.exception.GlobalException;
+import pharmacy.pharmacy.service.importer.CsvRowReader;
+import pharmacy.pharmacy.service.importer.TabularRowReader;
+import pharmacy.pharmacy.service.importer.XlsxRowReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk catalog import from CSV or XLSX. Rows are parsed as they stream in and handled in chunks:
+ * each chunk resolves barcodes and categories with one IN query apiece and is inserted with a single
+ * JDBC batch. Hibernate cannot batch inserts for IDENTITY ids, so the insert bypasses the EntityManager.
+ */
+@Service
+public class ProductImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_SQL = "INSERT INTO product (name, description, price, cost_price, " +
+            "stock_quantity, reorder_level, expiry_date, batch_number, barcode, is_prescription_required, " +
+            "category_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Excel shows dates in the workbook's display format; accept ISO plus the common Excel defaults
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("M/d/yy"),
+            DateTimeFormatter.ofPattern("M/d/yyyy"),
+            DateTimeFormatter.ofPattern("d-MMM-yy", Locale.ENGLISH));
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public ProductImportService(ProductRepository productRepository,
+                                CategoryRepository categoryRepository,
+                                JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${pharmacy.product-import.chunk-size:1000}") int chunkSize) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports every valid row and reports the rest. Each chunk commits on its own,
+     * so a bad row never rolls back rows that were already accepted.
+     */
+    public ProductImportReport importProducts(MultipartFile file) {
+        long startedAt = System.currentTimeMillis();
+        TabularRowReader reader = readerFor(file);
+        ImportRun run = new ImportRun();
+
+        try (InputStream in = file.getInputStream()) {
+            reader.read(in, run::accept);
+        } catch (IOException e) {
+            throw new GlobalException("Could not read import file: " + e.getMessage(),
+                    HttpStatus.BAD_REQUEST, "INVALID_IMPORT_FILE");
+        }
+        run.flush();
+
+        if (run.header == null) {
+            throw new GlobalException("Import file is empty", HttpStatus.BAD_REQUEST, "INVALID_IMPORT_FILE");
+        }
+        if (run.imported > 0) {
+            eventPublisher.publishEvent(new ProductsImportedEvent(run.imported));
+        }
+        return new ProductImportReport(run.totalRows, run.imported, run.failed,
+                System.currentTimeMillis() - startedAt, run.errors, run.failed > run.errors.size());
+    }
+
+    private TabularRowReader readerFor(MultipartFile file) {
+        String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new CsvRowReader();
+        }
+        if (name.endsWith(".xlsx")) {
+            return new XlsxRowReader();
+        }
+        throw new GlobalException("Only .csv and .xlsx files can be imported",
+                HttpStatus.BAD_REQUEST, "INVALID_IMPORT_FILE");
+    }
+
+    // Header names are matched case-insensitively, ignoring spaces, dashes and underscores
+    private static String normalizeHeader(String header) {
+        return header.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    /**
+     * State of one import: the header mapping, the pending chunk and the running report.
+     */
+    private final class ImportRun {
+
+        private Map<String, Integer> header;
+        private final List<ImportRow> chunk = new ArrayList<>();
+        private final Map<String, Integer> firstRowByBarcode = new HashMap<>();
+        private final Set<Integer> knownCategoryIds = new HashSet<>();
+        private final Set<Integer> missingCategoryIds = new HashSet<>();
+        private final Map<String, Integer> categoryIdsByName = new HashMap<>();
+        private final Set<String> missingCategoryNames = new HashSet<>();
+        private final List<ProductImportError> errors = new ArrayList<>();
+        private int totalRows;
+        private int imported;
+        private int failed;
+
+        void accept(int rowNumber, List<String> cells) {
+            if (header == null) {
+                readHeader(cells);
+                return;
+            }
+            totalRows++;
+            ImportRow row = parse(rowNumber, cells);
+            if (row == null) {
+                return;
+            }
+            chunk.add(row);
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void readHeader(List<String> cells) {
+            header = new HashMap<>();
+            for (int i = 0; i < cells.size(); i++) {
+                header.putIfAbsent(normalizeHeader(cells.get(i)), i);
+            }
+            List<String> missing = new ArrayList<>();
+            for (String required : List.of("name", "price", "costprice", "stockquantity", "barcode")) {
+                if (!header.containsKey(required)) {
+                    missing.add(required);
+                }
+            }
+            if (!header.containsKey("categoryid") && !header.containsKey("category")
+                    && !header.containsKey("categoryname")) {
+                missing.add("categoryId or category");
+            }
+            if (!missing.isEmpty()) {
+                throw new GlobalException("Import file is missing columns: " + String.join(", ", missing),
+                        HttpStatus.BAD_REQUEST, "INVALID_IMPORT_HEADER");
+            }
+        }
+
+        private String cell(List<String> cells, String... names) {
+            for (String name : names) {
+                Integer index = header.get(name);
+                if (index != null && index < cells.size() && !cells.get(index).isEmpty()) {
+                    return cells.get(index);
+                }
+            }
+            return null;
+        }
+
+        private ImportRow parse(int rowNumber, List<String> cells) {
+            String barcode = cell(cells, "barcode");
+            try {
+                ImportRow row = new ImportRow();
+                row.rowNumber = rowNumber;
+                row.barcode = require(barcode, "Barcode is required");
+                row.name = require(cell(cells, "name"), "Product name is required");
+                row.description = cell(cells, "description");
+                row.price = parseDecimal(require(cell(cells, "price"), "Price is required"), "price");
+                row.costPrice = parseDecimal(require(cell(cells, "costprice"), "Cost price is required"), "cost price");
+                row.stockQuantity = parseInteger(require(cell(cells, "stockquantity"), "Stock quantity is required"),
+                        "stock quantity");
+                String reorderLevel = cell(cells, "reorderlevel");
+                row.reorderLevel = reorderLevel == null ? null : parseInteger(reorderLevel, "reorder level");
+                String expiryDate = cell(cells, "expirydate");
+                row.expiryDate = expiryDate == null ? null : parseDate(expiryDate);
+                row.batchNumber = cell(cells, "batchnumber");
+                row.prescriptionRequired = parseBoolean(cell(cells, "isprescriptionrequired", "prescriptionrequired"));
+                String categoryId = cell(cells, "categoryid");
+                row.categoryId = categoryId == null ? null : parseInteger(categoryId, "category id");
+                String categoryName = cell(cells, "category", "categoryname");
+                row.categoryName = categoryName == null ? null : categoryName.toLowerCase(Locale.ROOT);
+
+                if (row.categoryId == null && row.categoryName == null) {
+                    throw new IllegalArgumentException("Category is required");
+                }
+                if (row.price.compareTo(new BigDecimal("0.01")) < 0) {
+                    throw new IllegalArgumentException("Price must be greater than 0");
+                }
+                if (row.costPrice.signum() < 0) {
+                    throw new IllegalArgumentException("Cost price cannot be negative");
+                }
+                if (row.stockQuantity < 0) {
+                    throw new IllegalArgumentException("Stock quantity cannot be negative");
+                }
+                if (row.barcode.length() > 50 || (row.batchNumber != null && row.batchNumber.length() > 50)) {
+                    throw new IllegalArgumentException("Barcode and batch number must be at most 50 characters");
+                }
+                if (row.name.length() > 255) {
+                    throw new IllegalArgumentException("Product name must be at most 255 characters");
+                }
+
+                Integer firstRow = firstRowByBarcode.putIfAbsent(row.barcode, rowNumber);
+                if (firstRow != null) {
+                    throw new IllegalArgumentException("Duplicate barcode in file (first seen on row " + firstRow + ")");
+                }
+                return row;
+            } catch (IllegalArgumentException e) {
+                reject(rowNumber, barcode, e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * Resolves the pending chunk against the database with set-based queries, then inserts
+         * the surviving rows in one batch.
+         */
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<ImportRow> rows = new ArrayList<>(chunk);
+            chunk.clear();
+
+            Set<String> existingBarcodes = new HashSet<>(productRepository.findExistingBarcodes(
+                    rows.stream().map(row -> row.barcode).collect(Collectors.toList())));
+            resolveCategories(rows);
+
+            List<ImportRow> insertable = new ArrayList<>(rows.size());
+            for (ImportRow row : rows) {
+                if (existingBarcodes.contains(row.barcode)) {
+                    reject(row.rowNumber, row.barcode, "Product with this barcode already exists");
+                } else if (row.categoryId == null) {
+                    reject(row.rowNumber, row.barcode, "Category not found: " + row.categoryName);
+                } else if (missingCategoryIds.contains(row.categoryId)) {
+                    reject(row.rowNumber, row.barcode, "Category not found with id: " + row.categoryId);
+                } else {
+                    insertable.add(row);
+                }
+            }
+            insert(insertable);
+        }
+
+        private void resolveCategories(List<ImportRow> rows) {
+            Set<Integer> unknownIds = new HashSet<>();
+            Set<String> unknownNames = new HashSet<>();
+            for (ImportRow row : rows) {
+                if (row.categoryId != null) {
+                    if (!knownCategoryIds.contains(row.categoryId) && !missingCategoryIds.contains(row.categoryId)) {
+                        unknownIds.add(row.categoryId);
+                    }
+                } else if (!categoryIdsByName.containsKey(row.categoryName)
+                        && !missingCategoryNames.contains(row.categoryName)) {
+                    unknownNames.add(row.categoryName);
+                }
+            }
+            if (!unknownIds.isEmpty()) {
+                List<Integer> found = categoryRepository.findExistingIds(unknownIds);
+                knownCategoryIds.addAll(found);
+                unknownIds.removeAll(found);
+                missingCategoryIds.addAll(unknownIds);
+            }
+            if (!unknownNames.isEmpty()) {
+                for (Object[] match : categoryRepository.findIdsByLowerCaseNameIn(unknownNames)) {
+                    categoryIdsByName.putIfAbsent((String) match[1], (Integer) match[0]);
+                }
+                unknownNames.removeAll(categoryIdsByName.keySet());
+                missingCategoryNames.addAll(unknownNames);
+            }
+            for (ImportRow row : rows) {
+                if (row.categoryId == null) {
+                    row.categoryId = categoryIdsByName.get(row.categoryName);
+                }
+            }
+        }
+
+        private void insert(List<ImportRow> rows) {
+            if (rows.isEmpty()) {
+                return;
+            }
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(),
+                                (ps, row) -> bind(ps, row, now)));
+                imported += rows.size();
+            } catch (DataAccessException batchFailure) {
+                // The batch rolled back as a whole (e.g. a barcode inserted concurrently);
+                // retry row by row so only the offending rows are reported
+                for (ImportRow row : rows) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status ->
+                                jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, row, now)));
+                        imported++;
+                    } catch (DataAccessException e) {
+                        reject(row.rowNumber, row.barcode, "Insert failed: " + e.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+        }
+
+        private void reject(int rowNumber, String barcode, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportError(rowNumber, barcode, message));
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, ImportRow row, Timestamp createdAt) throws SQLException {
+        ps.setString(1, row.name);
+        ps.setString(2, row.description);
+        ps.setBigDecimal(3, row.price);
+        ps.setBigDecimal(4, row.costPrice);
+        ps.setInt(5, row.stockQuantity);
+        if (row.reorderLevel == null) {
+            ps.setNull(6, Types.INTEGER);
+        } else {
+            ps.setInt(6, row.reorderLevel);
+        }
+        ps.setDate(7, row.expiryDate == null ? null : Date.valueOf(row.expiryDate));
+        ps.setString(8, row.batchNumber);
+        ps.setString(9, row.barcode);
+        ps.setBoolean(10, row.prescriptionRequired);
+        ps.setInt(11, row.categoryId);
+        ps.setTimestamp(12, createdAt);
+    }
+
+    private static String require(String value, String message) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(message);
+        }
+        return value;
+    }
+
+    private static BigDecimal parseDecimal(String value, String field) {
+        try {
+            return new BigDecimal(value.replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    private static Integer parseInteger(String value, String field) {
+        try {
+            return new BigDecimal(value.replace(",", "")).intValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format);
+            } catch (DateTimeParseException ignored) {
+                // Try the next format
+            }
+        }
+        throw new IllegalArgumentException("Invalid expiry date (use yyyy-MM-dd): " + value);
+    }
+
+    private static boolean parseBoolean(String value) {
+        if (value == null) {
+            return false;
+        }
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "yes", "y", "1":
+                return true;
+            case "false", "no", "n", "0":
+                return false;
+            default:
+                throw new IllegalArgumentException("Invalid prescription flag: " + value);
+        }
+    }
+
+    private static final class ImportRow {
+        int rowNumber;
+        String name;
+        String description;
+        BigDecimal price;
+        BigDecimal costPrice;
+        int stockQuantity;
+        Integer reorderLevel;
+        LocalDate expiryDate;
+        String batchNumber;
+        String barcode;
+        boolean prescriptionRequired;
+        Integer categoryId;
+        String categoryName;  // Lower-cased; used when the file names categories instead of ids
+    }
+}
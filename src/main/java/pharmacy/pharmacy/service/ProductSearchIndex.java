@@ -0,0 +1,311 @@
+package pharmacy.pharmacy.service;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pharmacy.pharmacy.dao.ProductRepository;
+import pharmacy.pharmacy.dto.product.ProductSearchHit;
+import pharmacy.pharmacy.dto.product.ProductSearchResponse;
+import pharmacy.pharmacy.entity.Product;
+import pharmacy.pharmacy.event.CategoryChangedEvent;
+import pharmacy.pharmacy.event.ProductChangedEvent;
+import pharmacy.pharmacy.event.ProductsImportedEvent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name, barcode, category name and description.
+ *
+ * Each token is posted three ways: as a whole word, as every leading prefix (type-ahead)
+ * and as character trigrams (infix matches such as "cetam" in "paracetamol"). A query
+ * matches a product only if every query token matches one of its fields; the score is the
+ * sum of the best match per token, weighted by match kind and field.
+ *
+ * The index is rebuilt from the database at startup and kept current by
+ * {@link ProductChangedEvent}s and {@link CategoryChangedEvent}s delivered after the writing
+ * transaction commits.
+ */
+@Component
+public class ProductSearchIndex implements CommandLineRunner {
+
+    private static final float EXACT = 1.0f;
+    private static final float PREFIX = 0.6f;
+    private static final float INFIX = 0.3f;
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float BARCODE_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private static final int GRAM = 3;
+    private static final int MAX_DESCRIPTION_TOKENS = 64;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ProductRepository productRepository;
+    private final ThumbnailService thumbnailService;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Posting key ("w:", "p:" or "g:" + term) -> product id -> best weight for that key
+    private Map<String, Map<Integer, Float>> postings = new HashMap<>();
+    private Map<Integer, IndexedProduct> documents = new HashMap<>();
+
+    public ProductSearchIndex(ProductRepository productRepository, ThumbnailService thumbnailService) {
+        this.productRepository = productRepository;
+        this.thumbnailService = thumbnailService;
+    }
+
+    @Override
+    public void run(String... args) {
+        rebuild();
+    }
+
+    /**
+     * Replaces the whole index with a fresh build from the database.
+     */
+    public void rebuild() {
+        Map<String, Map<Integer, Float>> freshPostings = new HashMap<>();
+        Map<Integer, IndexedProduct> freshDocuments = new HashMap<>();
+        for (Product product : productRepository.findAllWithCategory()) {
+            IndexedProduct document = analyze(product);
+            freshDocuments.put(product.getId(), document);
+            document.keys.forEach((key, weight) ->
+                    freshPostings.computeIfAbsent(key, k -> new HashMap<>()).put(product.getId(), weight));
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings = freshPostings;
+            documents = freshDocuments;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getChangeType() == ProductChangedEvent.ChangeType.DELETED) {
+            remove(event.getProductId());
+            return;
+        }
+        productRepository.findWithCategoryById(event.getProductId())
+                .ifPresentOrElse(this::index, () -> remove(event.getProductId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        rebuild();
+    }
+
+    // Category names are indexed with each product, so a renamed or deleted category re-indexes its products
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        Set<Integer> indexedIds = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            documents.forEach((id, document) -> {
+                if (event.getCategoryId().equals(document.categoryId)) {
+                    indexedIds.add(id);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        // A non-empty list keeps the IN clause valid
+        List<Integer> productIds = indexedIds.isEmpty() ? List.of(-1) : new ArrayList<>(indexedIds);
+        for (Product product : productRepository.findAllWithCategoryByCategoryIdOrIdIn(event.getCategoryId(),
+                productIds)) {
+            index(product);
+            indexedIds.remove(product.getId());
+        }
+        indexedIds.forEach(this::remove);
+    }
+
+    public void index(Product product) {
+        IndexedProduct document = analyze(product);
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(product.getId());
+            documents.put(product.getId(), document);
+            document.keys.forEach((key, weight) ->
+                    postings.computeIfAbsent(key, k -> new HashMap<>()).put(product.getId(), weight));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public ProductSearchResponse search(String query, int page, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int pageNumber = Math.max(page, 0);
+        List<String> queryTokens = ProductTextAnalyzer.tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return new ProductSearchResponse(query, pageNumber, pageSize, 0, List.of());
+        }
+
+        List<ProductSearchHit> ranked = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Integer, Float> scores = null;
+            for (String token : queryTokens) {
+                Map<Integer, Float> tokenScores = scoreToken(token);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    // Every query token must match: intersect and accumulate
+                    Map<Integer, Float> merged = new HashMap<>();
+                    for (Map.Entry<Integer, Float> entry : scores.entrySet()) {
+                        Float other = tokenScores.get(entry.getKey());
+                        if (other != null) {
+                            merged.put(entry.getKey(), entry.getValue() + other);
+                        }
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+            for (Map.Entry<Integer, Float> entry : scores.entrySet()) {
+                ProductSearchHit stored = documents.get(entry.getKey()).hit;
+                ranked.add(new ProductSearchHit(stored.getId(), stored.getName(), stored.getBarcode(),
+                        stored.getCategoryName(), stored.getPrice(), stored.getImageUrl(),
+                        thumbnailService.thumbnailUrl(stored.getImageUrl()),
+                        stored.getIsPrescriptionRequired(), entry.getValue()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        ranked.sort(Comparator.comparingDouble(ProductSearchHit::getScore).reversed()
+                .thenComparing(ProductSearchHit::getName, Comparator.nullsLast(String::compareTo))
+                .thenComparing(ProductSearchHit::getId));
+
+        int from = (int) Math.min((long) pageNumber * pageSize, ranked.size());
+        int to = Math.min(from + pageSize, ranked.size());
+        return new ProductSearchResponse(query, pageNumber, pageSize, ranked.size(),
+                new ArrayList<>(ranked.subList(from, to)));
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller must hold the read lock
+    private Map<Integer, Float> scoreToken(String token) {
+        Map<Integer, Float> best = new HashMap<>();
+        mergeMax(best, postings.get("w:" + token));
+        mergeMax(best, postings.get("p:" + token));
+
+        if (token.length() >= GRAM) {
+            // Infix match: the product must contain every trigram of the token
+            Map<Integer, Float> infix = null;
+            for (int i = 0; i + GRAM <= token.length(); i++) {
+                Map<Integer, Float> gramPostings = postings.get("g:" + token.substring(i, i + GRAM));
+                if (gramPostings == null) {
+                    infix = null;
+                    break;
+                }
+                if (infix == null) {
+                    infix = new HashMap<>(gramPostings);
+                } else {
+                    infix.keySet().retainAll(gramPostings.keySet());
+                    for (Map.Entry<Integer, Float> entry : infix.entrySet()) {
+                        entry.setValue(Math.min(entry.getValue(), gramPostings.get(entry.getKey())));
+                    }
+                }
+                if (infix.isEmpty()) {
+                    break;
+                }
+            }
+            mergeMax(best, infix);
+        }
+        return best;
+    }
+
+    private static void mergeMax(Map<Integer, Float> target, Map<Integer, Float> source) {
+        if (source != null) {
+            source.forEach((id, weight) -> target.merge(id, weight, Math::max));
+        }
+    }
+
+    // Caller must hold the write lock
+    private void removeUnlocked(Integer productId) {
+        IndexedProduct previous = documents.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        for (String key : previous.keys.keySet()) {
+            Map<Integer, Float> posting = postings.get(key);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    private IndexedProduct analyze(Product product) {
+        String categoryName = product.getCategory() != null ? product.getCategory().getName() : null;
+        Map<String, Float> keys = new HashMap<>();
+        addField(keys, ProductTextAnalyzer.tokenize(product.getName()), NAME_WEIGHT);
+        addField(keys, ProductTextAnalyzer.tokenize(product.getBarcode()), BARCODE_WEIGHT);
+        addField(keys, ProductTextAnalyzer.tokenize(categoryName), CATEGORY_WEIGHT);
+        List<String> descriptionTokens = ProductTextAnalyzer.tokenize(product.getDescription());
+        addField(keys, descriptionTokens.subList(0, Math.min(descriptionTokens.size(), MAX_DESCRIPTION_TOKENS)),
+                DESCRIPTION_WEIGHT);
+
+        ProductSearchHit hit = new ProductSearchHit(product.getId(), product.getName(), product.getBarcode(),
+                categoryName, product.getPrice(), product.getImageUrl(), null, product.getIsPrescriptionRequired(), 0);
+        return new IndexedProduct(hit, product.getCategory() != null ? product.getCategory().getId() : null, keys);
+    }
+
+    private static void addField(Map<String, Float> keys, List<String> tokens, float fieldWeight) {
+        Set<String> seen = new HashSet<>();
+        for (String token : tokens) {
+            if (!seen.add(token)) {
+                continue;
+            }
+            keys.merge("w:" + token, fieldWeight * EXACT, Math::max);
+            for (int length = 1; length < token.length(); length++) {
+                keys.merge("p:" + token.substring(0, length), fieldWeight * PREFIX, Math::max);
+            }
+            for (int i = 0; i + GRAM <= token.length(); i++) {
+                keys.merge("g:" + token.substring(i, i + GRAM), fieldWeight * INFIX, Math::max);
+            }
+        }
+    }
+
+    private static final class IndexedProduct {
+        private final ProductSearchHit hit;
+        private final Integer categoryId;
+        private final Map<String, Float> keys;
+
+        private IndexedProduct(ProductSearchHit hit, Integer categoryId, Map<String, Float> keys) {
+            this.hit = hit;
+            this.categoryId = categoryId;
+            this.keys = keys;
+        }
+    }
+}
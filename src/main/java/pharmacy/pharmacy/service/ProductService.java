@@ -1,45 +1,159 @@
 package pharmacy.pharmacy.service;
 
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+import pharmacy.pharmacy.dto.product.BarcodeCacheStats;
+import pharmacy.pharmacy.dto.product.ProductBarcodeSnapshot;
 import pharmacy.pharmacy.dto.product.ProductCreateRequest;
+import pharmacy.pharmacy.dto.product.ProductCursorPageResponse;
 import pharmacy.pharmacy.dto.product.ProductPageResponse;
 import pharmacy.pharmacy.dto.product.ProductResponse;
+import pharmacy.pharmacy.dto.product.ProductSearchResponse;
+import pharmacy.pharmacy.dto.product.ProductSuggestion;
 import pharmacy.pharmacy.entity.Category;
 import pharmacy.pharmacy.entity.Product;
+import pharmacy.pharmacy.enums.ExportFormat;
+import pharmacy.pharmacy.enums.ProductSortField;
+import pharmacy.pharmacy.event.ProductChangedEvent;
 import pharmacy.pharmacy.exception.GlobalException;
 import pharmacy.pharmacy.exception.ResourceNotFoundException;
 import pharmacy.pharmacy.dao.ProductRepository;
+import pharmacy.pharmacy.service.export.ExportColumn;
+import pharmacy.pharmacy.service.export.TabularExporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final List<ExportColumn<ProductResponse>> LOW_STOCK_EXPORT_COLUMNS = List.of(
+            ExportColumn.of("ID", ProductResponse::getId),
+            ExportColumn.of("Product Name", ProductResponse::getName),
+            ExportColumn.of("Category Name", ProductResponse::getCategoryName),
+            ExportColumn.of("Barcode", ProductResponse::getBarcode),
+            ExportColumn.of("Stocks", ProductResponse::getStockQuantity),
+            ExportColumn.of("Reorder Level", ProductResponse::getReorderLevel));
+
+    private static final List<ExportColumn<ProductResponse>> EXPIRING_EXPORT_COLUMNS = List.of(
+            ExportColumn.of("ID", ProductResponse::getId),
+            ExportColumn.of("Product Name", ProductResponse::getName),
+            ExportColumn.of("Expiry Date", ProductResponse::getExpiryDate),
+            ExportColumn.of("Category Name", ProductResponse::getCategoryName),
+            ExportColumn.of("Barcode", ProductResponse::getBarcode),
+            ExportColumn.of("Stocks", ProductResponse::getStockQuantity));
+
     private final ProductRepository productRepository;
     private final CategoryService categoryService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggestionIndex productSuggestionIndex;
+    private final BarcodeLookupCache barcodeLookupCache;
+    private final TabularExporter tabularExporter;
+    private final FileStorageService fileStorageService;
+    private final ThumbnailService thumbnailService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ProductService(ProductRepository productRepository, CategoryService categoryService) {
+    public ProductService(ProductRepository productRepository,
+                          CategoryService categoryService,
+                          ProductSearchIndex productSearchIndex,
+                          ProductSuggestionIndex productSuggestionIndex,
+                          BarcodeLookupCache barcodeLookupCache,
+                          TabularExporter tabularExporter,
+                          FileStorageService fileStorageService,
+                          ThumbnailService thumbnailService,
+                          ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.categoryService = categoryService;
+        this.productSearchIndex = productSearchIndex;
+        this.productSuggestionIndex = productSuggestionIndex;
+        this.barcodeLookupCache = barcodeLookupCache;
+        this.tabularExporter = tabularExporter;
+        this.fileStorageService = fileStorageService;
+        this.thumbnailService = thumbnailService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(readOnly = true)
     public List<ProductResponse> getAllProducts() {
-        return productRepository.findAll().stream()
-                .map(product -> {
-                    ProductResponse dto = new ProductResponse();
-                    dto.setId(product.getId());
-                    dto.setName(product.getName());
-                    dto.setPrice(product.getPrice());
-                    dto.setCategoryName(product.getCategory() != null ? product.getCategory().getName() : null);
-                    dto.setBarcode(product.getBarcode());
-                    dto.setStockQuantity(product.getStockQuantity());
-                    return dto;
-                })
+        return productRepository.findAllResponses();
+    }
+
+    /**
+     * Keyset (cursor) pagination over the catalog. The cursor pins the last row's sort value and id,
+     * so every page is a bounded index range scan and never uses OFFSET.
+     *
+     * Rows whose sort value is null come after all others in either direction, ordered by id, since a
+     * keyset comparison against null matches nothing.
+     */
+    @Transactional(readOnly = true)
+    public ProductCursorPageResponse getProductPage(ProductSortField sortField, Sort.Direction direction,
+                                                    String cursor, Integer size,
+                                                    Integer categoryId, Boolean prescriptionRequired) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Specification<Product> filter = catalogFilter(categoryId, prescriptionRequired);
+
+        KeysetScrollPosition position = cursor == null || cursor.isBlank()
+                ? ScrollPosition.keyset()
+                : decodeCursor(cursor, sortField, direction);
+        boolean nullable = sortField != ProductSortField.ID;
+        boolean inNulls = nullable && !position.isInitial()
+                && !position.getKeys().containsKey(sortField.getProperty());
+
+        List<Product> rows = new ArrayList<>(pageSize);
+        boolean hasNext = false;
+        if (!inNulls) {
+            Sort sort = Sort.by(direction, sortField.getProperty());
+            if (nullable) {
+                sort = sort.and(Sort.by(direction, "id"));  // Tie-breaker keeps the order stable
+            }
+            Window<Product> window = scroll(nullable ? filter.and(sortValue(sortField, false)) : filter,
+                    sort, pageSize, position);
+            rows.addAll(window.getContent());
+            hasNext = window.hasNext();
+            position = ScrollPosition.keyset();
+        }
+        if (nullable && !hasNext) {
+            Specification<Product> nulls = filter.and(sortValue(sortField, true));
+            if (rows.size() < pageSize) {
+                Window<Product> window = scroll(nulls, Sort.by(direction, "id"), pageSize - rows.size(), position);
+                rows.addAll(window.getContent());
+                hasNext = window.hasNext();
+            } else {
+                hasNext = productRepository.exists(nulls);
+            }
+        }
+
+        List<ProductResponse> items = rows.stream()
+                .map(this::convertToResponse)
                 .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (hasNext && !rows.isEmpty()) {
+            nextCursor = encodeCursor(rows.get(rows.size() - 1), sortField, direction);
+        }
+        return new ProductCursorPageResponse(items, nextCursor, nextCursor != null, items.size());
     }
 
     @Transactional(readOnly = true)
@@ -48,9 +162,20 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
     }
 
+    // The page shows the category name, so the category's version is part of the ETag
+    @Transactional(readOnly = true)
+    public String getProductPageEtag(Integer id) {
+        List<Object[]> rows = productRepository.findPageVersions(id);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Product not found with id: " + id);
+        }
+        Object[] row = rows.get(0);
+        return "\"product-" + id + "-" + row[0] + "-" + row[1] + "-" + row[2] + "\"";
+    }
+
     @Transactional(readOnly = true)
     public ProductPageResponse getProductPageData(Integer id) {
-        Product product = productRepository.findById(id)
+        Product product = productRepository.findWithCategoryById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
         return new ProductPageResponse(product);
     }
@@ -61,6 +186,22 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with barcode: " + barcode));
     }
 
+    // Read-through cached lookup used by POS scanning
+    public ProductBarcodeSnapshot lookupByBarcode(String barcode) {
+        return barcodeLookupCache.get(barcode, productRepository::findSnapshotByBarcode)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with barcode: " + barcode));
+    }
+
+    // Same snapshots as barcode scans, for carts adding a product by id
+    public ProductBarcodeSnapshot lookupById(Integer id) {
+        return barcodeLookupCache.getById(id, productRepository::findSnapshotById)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+    }
+
+    public BarcodeCacheStats getBarcodeCacheStats() {
+        return barcodeLookupCache.getStats();
+    }
+
     @Transactional
     public Product createProduct(ProductCreateRequest request) {
         // Check for duplicate barcode
@@ -89,12 +230,16 @@ public class ProductService {
         product.setBarcode(request.getBarcode());
         product.setCategory(category);
 
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(
+                ProductChangedEvent.ChangeType.CREATED, savedProduct.getId(), null, savedProduct.getBarcode()));
+        return savedProduct;
     }
 
     @Transactional
     public Product updateProduct(Integer id, ProductCreateRequest request) {
         Product product = getProductById(id);
+        String previousBarcode = product.getBarcode();
 
         Category category = null;
         if(request.getCategoryId() != null) {
@@ -113,23 +258,56 @@ public class ProductService {
         product.setBarcode(request.getBarcode());
 //        product.setIsPrescriptionRequired(request.getIsPrescriptionRequired());
 
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(
+                ProductChangedEvent.ChangeType.UPDATED, savedProduct.getId(), previousBarcode, savedProduct.getBarcode()));
+        return savedProduct;
     }
 
     @Transactional
     public void deleteProduct(Integer id) {
         Product product = getProductById(id);
         productRepository.delete(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(
+                ProductChangedEvent.ChangeType.DELETED, id, product.getBarcode(), null));
     }
 
-    @Transactional(readOnly = true)
-    public List<Product> getProductsByCategory(Integer categoryId) {
-        return productRepository.findByCategoryId(categoryId);
+    /**
+     * Stores an uploaded product photo and points the product at it. Identical photos share one stored file.
+     */
+    @Transactional
+    public ProductResponse uploadProductImage(Integer id, MultipartFile file) {
+        if (file == null || file.isEmpty()
+                || file.getContentType() == null || !file.getContentType().startsWith("image/")) {
+            throw new GlobalException("An image file is required", HttpStatus.BAD_REQUEST, "INVALID_IMAGE");
+        }
+        updateProductImage(id, fileStorageService.storeFile(file));
+        return convertToResponse(getProductById(id));
+    }
+
+    @Transactional
+    public void updateProductImage(Integer id, String imageUrl) {
+        String barcode = getProductById(id).getBarcode();
+        productRepository.updateProductImage(id, imageUrl);
+        eventPublisher.publishEvent(new ProductChangedEvent(
+                ProductChangedEvent.ChangeType.UPDATED, id, barcode, barcode));
     }
 
     @Transactional(readOnly = true)
-    public List<Product> searchProducts(String name) {
-        return productRepository.findByNameContainingIgnoreCase(name);
+    public List<ProductResponse> getProductsByCategory(Integer categoryId, boolean includeSubcategories) {
+        return includeSubcategories
+                ? productRepository.findResponsesInCategorySubtree(categoryId)
+                : productRepository.findResponsesByCategoryId(categoryId);
+    }
+
+    // Served from the in-memory index; no database round-trip
+    public ProductSearchResponse searchProducts(String query, int page, int size) {
+        return productSearchIndex.search(query, page, size);
+    }
+
+    // Type-ahead from the in-memory suggestion trie
+    public List<ProductSuggestion> suggestProducts(String prefix, int limit) {
+        return productSuggestionIndex.suggest(prefix, limit);
     }
 
     @Transactional(readOnly = true)
@@ -137,38 +315,31 @@ public class ProductService {
         return productRepository.findByIsPrescriptionRequired(true);
     }
 
+    @Transactional(readOnly = true)
     public List<ProductResponse> getLowStockProducts() {
-        return productRepository.findProductsBelowReorderLevel().stream()
-                .map(product -> {
-                    ProductResponse dto = new ProductResponse();
-                    dto.setId(product.getId());
-                    dto.setName(product.getName());
-                    dto.setPrice(product.getPrice());
-                    dto.setCategoryName(product.getCategory() != null ? product.getCategory().getName() : null);
-                    dto.setBarcode(product.getBarcode());
-                    dto.setStockQuantity(product.getStockQuantity());
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return productRepository.findResponsesBelowReorderLevel();
     }
 
     @Transactional(readOnly = true)
     public List<ProductResponse> getExpiringProducts() {
         LocalDate thresholdDate = LocalDate.now().plusMonths(1);
-//        return productRepository.findProductsExpiringSoon(thresholdDate);
-        return productRepository.findProductsExpiringSoon(thresholdDate).stream()
-                .map(product -> {
-                    ProductResponse dto = new ProductResponse();
-                    dto.setId(product.getId());
-                    dto.setName(product.getName());
-                    dto.setPrice(product.getPrice());
-                    dto.setCategoryName(product.getCategory() != null ? product.getCategory().getName() : null);
-                    dto.setBarcode(product.getBarcode());
-                    dto.setStockQuantity(product.getStockQuantity());
-                    dto.setExpiryDate(product.getExpiryDate());
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return productRepository.findResponsesExpiringSoon(thresholdDate);
+    }
+
+    // Rows are streamed from the database cursor into the writer; the transaction keeps the cursor open
+    @Transactional(readOnly = true)
+    public long exportLowStockProducts(ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<ProductResponse> rows = productRepository.streamResponsesBelowReorderLevel()) {
+            return tabularExporter.export(format, "Low Stock", LOW_STOCK_EXPORT_COLUMNS, rows, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportExpiringProducts(ExportFormat format, OutputStream out) throws IOException {
+        LocalDate thresholdDate = LocalDate.now().plusMonths(1);
+        try (Stream<ProductResponse> rows = productRepository.streamResponsesExpiringSoon(thresholdDate)) {
+            return tabularExporter.export(format, "Expiring Soon", EXPIRING_EXPORT_COLUMNS, rows, out);
+        }
     }
 
     @Transactional(readOnly = true)
@@ -176,8 +347,96 @@ public class ProductService {
         return productRepository.findLowStockProductsByBranch(branchId, 10);
     }
 
+    @Transactional(readOnly = true)
+    public List<Product> getLowStockProductsInOrder(int orderId) {
+        return productRepository.findLowStockProductsInOrder(orderId);
+    }
+
     public Product getProductEntityById(Integer productId) {
         return productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found."));
     }
+
+    private Specification<Product> catalogFilter(Integer categoryId, Boolean prescriptionRequired) {
+        return (root, query, cb) -> {
+            // Fetch the category in the same select; ProductResponse needs its name
+            if (query.getResultType() != Long.class) {
+                root.fetch("category", JoinType.LEFT);
+            }
+            List<Predicate> predicates = new ArrayList<>();
+            if (categoryId != null) {
+                predicates.add(cb.equal(root.get("category").get("id"), categoryId));
+            }
+            if (prescriptionRequired != null) {
+                predicates.add(cb.equal(root.get("isPrescriptionRequired"), prescriptionRequired));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private Window<Product> scroll(Specification<Product> spec, Sort sort, int limit, ScrollPosition position) {
+        return productRepository.findBy(spec, query -> query.sortBy(sort).limit(limit).scroll(position));
+    }
+
+    private static Specification<Product> sortValue(ProductSortField sortField, boolean isNull) {
+        return (root, query, cb) -> isNull
+                ? cb.isNull(root.get(sortField.getProperty()))
+                : cb.isNotNull(root.get(sortField.getProperty()));
+    }
+
+    // A null sort value is encoded as such and resumes among the null rows
+    private String encodeCursor(Product last, ProductSortField sortField, Sort.Direction direction) {
+        String sortValue = switch (sortField) {
+            case NAME -> last.getName();
+            case PRICE -> last.getPrice() == null ? null : last.getPrice().toPlainString();
+            case CREATED_AT -> last.getCreatedAt() == null ? null : String.valueOf(last.getCreatedAt().getTime());
+            case ID -> "";
+        };
+        return CursorCodec.encode(sortField.name(), direction.name(), sortValue, String.valueOf(last.getId()));
+    }
+
+    private KeysetScrollPosition decodeCursor(String cursor, ProductSortField sortField, Sort.Direction direction) {
+        try {
+            String[] parts = CursorCodec.decode(cursor, 4);
+            if (!sortField.name().equals(parts[0]) || !direction.name().equals(parts[1])) {
+                throw new IllegalArgumentException("Cursor was issued for a different sort order");
+            }
+            Map<String, Object> keys = new LinkedHashMap<>();
+            if (parts[2] != null) {
+                switch (sortField) {
+                    case NAME -> keys.put("name", parts[2]);
+                    case PRICE -> keys.put("price", new BigDecimal(parts[2]));
+                    case CREATED_AT -> keys.put("createdAt", new Date(Long.parseLong(parts[2])));
+                    case ID -> { }
+                }
+            } else if (sortField == ProductSortField.ID) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            if (parts[3] == null) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            keys.put("id", Integer.valueOf(parts[3]));
+            return ScrollPosition.forward(keys);
+        } catch (IllegalArgumentException e) {
+            throw new GlobalException("Invalid cursor: " + e.getMessage(), HttpStatus.BAD_REQUEST, "INVALID_CURSOR");
+        }
+    }
+
+    private ProductResponse convertToResponse(Product product) {
+        ProductResponse dto = new ProductResponse();
+        dto.setId(product.getId());
+        dto.setName(product.getName());
+        dto.setDescription(product.getDescription());
+        dto.setImageUrl(product.getImageUrl());
+        dto.setThumbnailUrl(thumbnailService.thumbnailUrl(product.getImageUrl()));
+        dto.setPrice(product.getPrice());
+        dto.setCategoryId(product.getCategory() != null ? product.getCategory().getId() : null);
+        dto.setCategoryName(product.getCategory() != null ? product.getCategory().getName() : null);
+        dto.setBarcode(product.getBarcode());
+        dto.setStockQuantity(product.getStockQuantity());
+        dto.setReorderLevel(product.getReorderLevel());
+        dto.setExpiryDate(product.getExpiryDate());
+        dto.setIsPrescriptionRequired(product.getIsPrescriptionRequired());
+        return dto;
+    }
 }
\ No newline at end of file
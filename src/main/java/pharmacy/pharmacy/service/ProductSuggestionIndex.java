@@ -0,0 +1,243 @@
+package pharmacy.pharmacy.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pharmacy.pharmacy.dao.OrderItemRepository;
+import pharmacy.pharmacy.dao.ProductRepository;
+import pharmacy.pharmacy.dto.product.ProductSuggestion;
+import pharmacy.pharmacy.enums.OrderStatus;
+import pharmacy.pharmacy.event.ProductChangedEvent;
+import pharmacy.pharmacy.event.ProductsImportedEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Type-ahead suggestions from a {@link SuggestionTrie} over product names and barcodes.
+ *
+ * Each name is indexed from every word start, so "extra" finds "Panadol Extra". Results are
+ * ranked by units sold over the last {@code salesWindowDays}; ties fall back to name order.
+ * Product writes update the trie in place; sales ranks are recomputed by a periodic rebuild, which
+ * carries over the writes that land while it is reading.
+ */
+@Component
+public class ProductSuggestionIndex implements CommandLineRunner {
+
+    // Orders in these states never turned into sales
+    private static final Set<OrderStatus> NON_SALE_STATUSES =
+            EnumSet.of(OrderStatus.CART, OrderStatus.CANCELLED, OrderStatus.REFUNDED, OrderStatus.FAILED);
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final int topK;
+    private final int salesWindowDays;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Integer, SuggestedProduct> products = new HashMap<>();
+    private SuggestionTrie trie;
+    // Products written since the running rebuild began reading; null when no rebuild is running
+    private Set<Integer> changedDuringRebuild;
+
+    public ProductSuggestionIndex(ProductRepository productRepository,
+                                  OrderItemRepository orderItemRepository,
+                                  @Value("${pharmacy.suggest.top-k:10}") int topK,
+                                  @Value("${pharmacy.suggest.sales-window-days:30}") int salesWindowDays) {
+        this.productRepository = productRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.topK = topK;
+        this.salesWindowDays = salesWindowDays;
+        this.trie = new SuggestionTrie(topK, rankingOver(products));
+    }
+
+    @Override
+    public void run(String... args) {
+        rebuild();
+    }
+
+    /**
+     * Reloads products and recent sales, then swaps in a freshly built trie. Rebuilds run one at a time.
+     */
+    @Scheduled(initialDelayString = "${pharmacy.suggest.refresh-interval-ms:900000}",
+            fixedDelayString = "${pharmacy.suggest.refresh-interval-ms:900000}")
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Integer, SuggestedProduct> freshProducts = new HashMap<>();
+        SuggestionTrie freshTrie = new SuggestionTrie(topK, rankingOver(freshProducts));
+        try {
+            Date since = Date.from(Instant.now().minus(Duration.ofDays(salesWindowDays)));
+            Map<Integer, Long> unitsSold = new HashMap<>();
+            for (Object[] row : orderItemRepository.sumQuantitySoldSince(since, NON_SALE_STATUSES)) {
+                unitsSold.put((Integer) row[0], ((Number) row[1]).longValue());
+            }
+            for (ProductSuggestion suggestion : productRepository.findAllSuggestions()) {
+                freshProducts.put(suggestion.getId(),
+                        new SuggestedProduct(suggestion, unitsSold.getOrDefault(suggestion.getId(), 0L)));
+            }
+            freshProducts.values().forEach(product -> product.keys.forEach(key -> freshTrie.insert(key, product.id())));
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // The live index holds the latest state of products written meanwhile; the read may predate it
+            for (Integer productId : changedDuringRebuild) {
+                SuggestedProduct latest = products.get(productId);
+                SuggestedProduct fresh = freshProducts.get(productId);
+                replace(freshProducts, freshTrie, productId, latest == null ? null
+                        : new SuggestedProduct(latest.suggestion, fresh != null ? fresh.unitsSold : latest.unitsSold));
+            }
+            changedDuringRebuild = null;
+            products = freshProducts;
+            trie = freshTrie;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getChangeType() == ProductChangedEvent.ChangeType.DELETED) {
+            remove(event.getProductId());
+            return;
+        }
+        productRepository.findSuggestionById(event.getProductId())
+                .ifPresentOrElse(this::put, () -> remove(event.getProductId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        rebuild();
+    }
+
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        String key = String.join(" ", ProductTextAnalyzer.tokenize(prefix));
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            int[] ids = trie.lookup(key, Math.min(Math.max(limit, 1), topK));
+            List<ProductSuggestion> suggestions = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                suggestions.add(products.get(id).suggestion);
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Keeps the product's units sold; only its text and display fields change
+    private void put(ProductSuggestion suggestion) {
+        lock.writeLock().lock();
+        try {
+            SuggestedProduct previous = products.get(suggestion.getId());
+            replace(products, trie, suggestion.getId(),
+                    new SuggestedProduct(suggestion, previous == null ? 0L : previous.unitsSold));
+            recordChange(suggestion.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            replace(products, trie, productId, null);
+            recordChange(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private void recordChange(Integer productId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(productId);
+        }
+    }
+
+    // Swaps the product's entry for current (null drops it) in both the map and the trie
+    private static void replace(Map<Integer, SuggestedProduct> products, SuggestionTrie trie,
+                                Integer productId, SuggestedProduct current) {
+        SuggestedProduct previous = products.get(productId);
+        if (previous != null) {
+            // Unlinked from the trie before the map entry goes, since the ranking reads this map
+            previous.keys.forEach(key -> trie.remove(key, productId));
+            products.remove(productId);
+        }
+        if (current != null) {
+            products.put(productId, current);
+            current.keys.forEach(key -> trie.insert(key, productId));
+        }
+    }
+
+    private static Comparator<Integer> rankingOver(Map<Integer, SuggestedProduct> products) {
+        return (a, b) -> {
+            SuggestedProduct first = products.get(a);
+            SuggestedProduct second = products.get(b);
+            int bySales = Long.compare(second.unitsSold, first.unitsSold);
+            if (bySales != 0) {
+                return bySales;
+            }
+            int byName = first.sortName.compareTo(second.sortName);
+            return byName != 0 ? byName : Integer.compare(a, b);
+        };
+    }
+
+    private static final class SuggestedProduct {
+        final ProductSuggestion suggestion;
+        final long unitsSold;
+        final String sortName;
+        final Set<String> keys = new LinkedHashSet<>();
+
+        SuggestedProduct(ProductSuggestion suggestion, long unitsSold) {
+            this.suggestion = suggestion;
+            this.unitsSold = unitsSold;
+            this.sortName = ProductTextAnalyzer.normalize(suggestion.getName());
+
+            // One key per word start of the name, plus the barcode
+            List<String> tokens = ProductTextAnalyzer.tokenize(suggestion.getName());
+            for (int i = 0; i < tokens.size(); i++) {
+                keys.add(String.join(" ", tokens.subList(i, tokens.size())));
+            }
+            String barcode = ProductTextAnalyzer.normalize(suggestion.getBarcode());
+            if (!barcode.isEmpty()) {
+                keys.add(barcode);
+            }
+        }
+
+        int id() {
+            return suggestion.getId();
+        }
+    }
+}
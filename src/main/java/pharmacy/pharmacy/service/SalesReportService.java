@@ -0,0 +1,150 @@
+package pharmacy.pharmacy.service;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pharmacy.pharmacy.dao.OrderRepository;
+import pharmacy.pharmacy.dao.SalesDailyRollupRepository;
+import pharmacy.pharmacy.dto.report.SalesReportRow;
+import pharmacy.pharmacy.dto.report.SalesSummaryResponse;
+import pharmacy.pharmacy.enums.OrderStatus;
+import pharmacy.pharmacy.exception.GlobalException;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains {@code sales_daily_rollup} and answers sales reports from it. Range queries touch at most one row
+ * per day, branch and product in the range, however many orders those days had.
+ */
+@Service
+public class SalesReportService implements CommandLineRunner {
+
+    // Backfills commit a month at a time so a long history does not become one huge transaction
+    private static final int REBUILD_CHUNK_MONTHS = 1;
+
+    private final SalesDailyRollupRepository rollupRepository;
+    private final OrderRepository orderRepository;
+    private final OrderArchiveService orderArchiveService;
+    private final TransactionTemplate transactionTemplate;
+
+    public SalesReportService(SalesDailyRollupRepository rollupRepository,
+                              OrderRepository orderRepository,
+                              OrderArchiveService orderArchiveService,
+                              TransactionTemplate transactionTemplate) {
+        this.rollupRepository = rollupRepository;
+        this.orderRepository = orderRepository;
+        this.orderArchiveService = orderArchiveService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Records the unit cost of older lines, then on first start fills the rollup from every completed order so far
+    @Override
+    public void run(String... args) {
+        transactionTemplate.executeWithoutResult(status -> {
+            rollupRepository.backfillOrderItemCosts();
+            rollupRepository.backfillArchivedOrderItemCosts();
+        });
+        if (rollupRepository.count() > 0) {
+            return;
+        }
+        Date firstSale = orderRepository.findFirstOrderDateByStatus(OrderStatus.COMPLETED);
+        Date firstArchivedSale = orderArchiveService.findFirstOrderDateByStatus(OrderStatus.COMPLETED);
+        if (firstSale == null || (firstArchivedSale != null && firstArchivedSale.before(firstSale))) {
+            firstSale = firstArchivedSale;
+        }
+        if (firstSale != null) {
+            rebuild(firstSale.toInstant().atZone(ZoneId.systemDefault()).toLocalDate(), LocalDate.now());
+        }
+    }
+
+    /**
+     * Called in the transaction that changes an order's status, after the order row is locked.
+     * Only moves into or out of COMPLETED change the rollup.
+     */
+    @Transactional
+    public void orderStatusChanged(Integer orderId, OrderStatus previous, OrderStatus current) {
+        boolean wasCompleted = previous == OrderStatus.COMPLETED;
+        boolean isCompleted = current == OrderStatus.COMPLETED;
+        if (wasCompleted != isCompleted) {
+            rollupRepository.applyOrders(List.of(orderId), isCompleted ? 1 : -1);
+        }
+    }
+
+    // Set-based form of orderStatusChanged for orders that all moved to {@code current}, in one statement
+    @Transactional
+    public void ordersStatusChanged(Map<Integer, OrderStatus> previousStatuses, OrderStatus current) {
+        boolean isCompleted = current == OrderStatus.COMPLETED;
+        List<Integer> orderIds = previousStatuses.entrySet().stream()
+                .filter(entry -> (entry.getValue() == OrderStatus.COMPLETED) != isCompleted)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (!orderIds.isEmpty()) {
+            rollupRepository.applyOrders(orderIds, isCompleted ? 1 : -1);
+        }
+    }
+
+    /**
+     * Recomputes the given days from the raw orders, live and archived, e.g. after order lines were edited
+     * by hand.
+     * Returns the number of rollup rows written.
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        int written = 0;
+        for (LocalDate start = from; !start.isAfter(to); start = start.plusMonths(REBUILD_CHUNK_MONTHS)) {
+            LocalDate chunkStart = start;
+            LocalDate end = start.plusMonths(REBUILD_CHUNK_MONTHS).minusDays(1);
+            LocalDate chunkEnd = end.isAfter(to) ? to : end;
+            written += transactionTemplate.execute(status -> {
+                rollupRepository.deleteBetween(chunkStart, chunkEnd);
+                return rollupRepository.insertFromOrders(chunkStart, chunkEnd.plusDays(1))
+                        + rollupRepository.addFromArchivedOrders(chunkStart, chunkEnd.plusDays(1));
+            });
+        }
+        return written;
+    }
+
+    @Transactional(readOnly = true)
+    public SalesSummaryResponse getSummary(LocalDate from, LocalDate to, Integer branchId) {
+        validateRange(from, to);
+        return new SalesSummaryResponse(from, to, branchId,
+                rollupRepository.sumBetween(from, to, branchId),
+                rollupRepository.sumByDay(from, to, branchId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<SalesReportRow> getSalesByProduct(LocalDate from, LocalDate to, Integer branchId, int limit) {
+        validateRange(from, to);
+        if (limit < 1) {
+            throw new GlobalException("Limit must be at least 1", HttpStatus.BAD_REQUEST, "INVALID_LIMIT");
+        }
+        return rollupRepository.sumByProduct(from, to, branchId, PageRequest.of(0, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public List<SalesReportRow> getSalesByCategory(LocalDate from, LocalDate to, Integer branchId) {
+        validateRange(from, to);
+        return rollupRepository.sumByCategory(from, to, branchId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SalesReportRow> getSalesByBranch(LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        return rollupRepository.sumByBranch(from, to, null);
+    }
+
+    private static void validateRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new GlobalException("'from' must be on or before 'to'",
+                    HttpStatus.BAD_REQUEST, "INVALID_DATE_RANGE");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package pharmacy.pharmacy.service;
 
 import io.sentry.Sentry;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import pharmacy.pharmacy.dao.ProductRepository;
@@ -8,12 +9,18 @@ import pharmacy.pharmacy.dao.StockRepository;
 import pharmacy.pharmacy.dto.StockDTO;
 import pharmacy.pharmacy.dto.stock.StockCreateRequest;
 import pharmacy.pharmacy.entity.*;
+import pharmacy.pharmacy.enums.JsonStreamFormat;
+import pharmacy.pharmacy.event.StockLevelChangedEvent;
 import pharmacy.pharmacy.exception.GlobalException;
 import pharmacy.pharmacy.exception.ResourceNotFoundException;
 import pharmacy.pharmacy.mapper.EntityDtoMapper;
+import pharmacy.pharmacy.service.export.JsonStreamWriter;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class StockService {
@@ -24,19 +31,25 @@ public class StockService {
     private final BranchService branchService;
     private final UserService userService;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JsonStreamWriter jsonStreamWriter;
 
     public StockService(StockRepository stockRepository,
                         ProductService productService,
                         SupplierService supplierService,
                         BranchService branchService,
                         ProductRepository productRepository,
-                        UserService userService) {
+                        UserService userService,
+                        ApplicationEventPublisher eventPublisher,
+                        JsonStreamWriter jsonStreamWriter) {
+        this.jsonStreamWriter = jsonStreamWriter;
         this.stockRepository = stockRepository;
         this.productService = productService;
         this.supplierService = supplierService;
         this.branchService = branchService;
         this.userService = userService;
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(readOnly = true)
@@ -46,6 +59,14 @@ public class StockService {
                 .collect(Collectors.toList());
     }
 
+    // Rows are mapped and written one at a time while the cursor is open; see JsonStreamWriter
+    @Transactional(readOnly = true)
+    public long streamAllStockEntries(JsonStreamFormat format, OutputStream out) throws IOException {
+        try (Stream<Stock> rows = stockRepository.streamAllWithProductAndBranch()) {
+            return jsonStreamWriter.write(format, rows, EntityDtoMapper::convertToStockDTO, out);
+        }
+    }
+
     @Transactional(readOnly = true)
     public StockDTO getStockById(Integer id) {
         try {
@@ -109,11 +130,10 @@ public class StockService {
                     .approvedBy(approvedBy)
                     .build();
 
-            // Increment Product stockQuantity
-            product.setStockQuantity(product.getStockQuantity() + createRequest.getQuantityAdded());
-
-            productRepository.save(product);
+            // Added in the database rather than from the loaded value, so concurrent deliveries and sales all count
+            productRepository.incrementStock(product.getId(), createRequest.getQuantityAdded());
             stock = stockRepository.save(stock);
+            eventPublisher.publishEvent(new StockLevelChangedEvent(product.getId(), product.getBarcode()));
             return EntityDtoMapper.convertToStockDTO(stock);
         } catch (Exception e) {
             Sentry.captureException(e);
@@ -0,0 +1,263 @@
+package pharmacy.pharmacy.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compressed (radix) prefix trie from normalized keys to product ids. Every node caches the
+ * best-ranked {@code topK} ids of its subtree, so a lookup is a walk down the prefix followed by
+ * reading one small array. Ranks come from the supplied comparator; when ranks change the trie
+ * must be rebuilt, since cached top lists are only adjusted for the ids being inserted or removed.
+ *
+ * Not thread-safe; {@link ProductSuggestionIndex} guards it with a read/write lock.
+ */
+final class SuggestionTrie {
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final int topK;
+    private final Comparator<Integer> ranking;
+    private final Node root = new Node("");
+
+    SuggestionTrie(int topK, Comparator<Integer> ranking) {
+        this.topK = topK;
+        this.ranking = ranking;
+    }
+
+    void insert(String key, int id) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int index = node.childIndex(key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i));
+                node.addChild(leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge: the shared part becomes a new node above the old child
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.addChild(child);
+                middle.top = child.top;
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            path.add(node);
+            i += common;
+        }
+        node.terminals = addId(node.terminals, id);
+        for (Node onPath : path) {
+            offer(onPath, id);
+        }
+    }
+
+    void remove(String key, int id) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int index = node.childIndex(key.charAt(i));
+            if (index < 0) {
+                return;
+            }
+            Node child = node.children[index];
+            if (!key.startsWith(child.label, i)) {
+                return;
+            }
+            node = child;
+            path.add(node);
+            i += child.label.length();
+        }
+        int[] remaining = removeId(node.terminals, id);
+        if (remaining == node.terminals) {
+            return;
+        }
+        node.terminals = remaining;
+
+        for (int j = path.size() - 1; j >= 0; j--) {
+            Node current = path.get(j);
+            if (j > 0) {
+                Node parent = path.get(j - 1);
+                if (current.terminals.length == 0 && current.children.length == 0) {
+                    parent.removeChild(current.label.charAt(0));
+                } else if (current.terminals.length == 0 && current.children.length == 1) {
+                    // Keep the trie compressed: fold a pass-through node into its only child
+                    Node only = current.children[0];
+                    only.label = current.label + only.label;
+                    parent.children[parent.childIndex(only.label.charAt(0))] = only;
+                }
+            }
+            if (contains(current.top, id)) {
+                recomputeTop(current);
+            }
+        }
+    }
+
+    /**
+     * Best-ranked ids whose key starts with {@code prefix}, at most {@code limit}.
+     */
+    int[] lookup(String prefix, int limit) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(i));
+            if (index < 0) {
+                return NO_IDS;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common == prefix.length()) {
+                node = child;  // Prefix ends on or inside this edge
+                break;
+            }
+            if (common < child.label.length()) {
+                return NO_IDS;
+            }
+            node = child;
+            i += common;
+        }
+        return node.top.length <= limit ? node.top : Arrays.copyOf(node.top, limit);
+    }
+
+    private void offer(Node node, int id) {
+        if (contains(node.top, id)) {
+            return;
+        }
+        int position = 0;
+        while (position < node.top.length && ranking.compare(node.top[position], id) <= 0) {
+            position++;
+        }
+        if (position >= topK) {
+            return;
+        }
+        int length = Math.min(node.top.length + 1, topK);
+        int[] top = new int[length];
+        System.arraycopy(node.top, 0, top, 0, position);
+        top[position] = id;
+        System.arraycopy(node.top, position, top, position + 1, length - position - 1);
+        node.top = top;
+    }
+
+    // A node's best ids are always among its own terminals and its children's best ids
+    private void recomputeTop(Node node) {
+        List<Integer> candidates = new ArrayList<>();
+        for (int id : node.terminals) {
+            candidates.add(id);
+        }
+        for (Node child : node.children) {
+            for (int id : child.top) {
+                if (!candidates.contains(id)) {
+                    candidates.add(id);
+                }
+            }
+        }
+        candidates.sort(ranking);
+        int length = Math.min(candidates.size(), topK);
+        int[] top = new int[length];
+        for (int i = 0; i < length; i++) {
+            top[i] = candidates.get(i);
+        }
+        node.top = top;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int candidate : ids) {
+            if (candidate == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] addId(int[] ids, int id) {
+        if (contains(ids, id)) {
+            return ids;
+        }
+        int[] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[ids.length] = id;
+        return grown;
+    }
+
+    private static int[] removeId(int[] ids, int id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                int[] shrunk = new int[ids.length - 1];
+                System.arraycopy(ids, 0, shrunk, 0, i);
+                System.arraycopy(ids, i + 1, shrunk, i, ids.length - i - 1);
+                return shrunk;
+            }
+        }
+        return ids;
+    }
+
+    // Children are kept as parallel arrays sorted by first character to keep nodes small
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        String label;
+        char[] firstChars = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        int[] terminals = NO_IDS;
+        int[] top = NO_IDS;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int childIndex(char c) {
+            int index = Arrays.binarySearch(firstChars, c);
+            return index >= 0 ? index : -1;
+        }
+
+        void addChild(Node child) {
+            char c = child.label.charAt(0);
+            int insertAt = -(Arrays.binarySearch(firstChars, c) + 1);
+            char[] chars = new char[firstChars.length + 1];
+            Node[] nodes = new Node[children.length + 1];
+            System.arraycopy(firstChars, 0, chars, 0, insertAt);
+            System.arraycopy(children, 0, nodes, 0, insertAt);
+            chars[insertAt] = c;
+            nodes[insertAt] = child;
+            System.arraycopy(firstChars, insertAt, chars, insertAt + 1, firstChars.length - insertAt);
+            System.arraycopy(children, insertAt, nodes, insertAt + 1, children.length - insertAt);
+            firstChars = chars;
+            children = nodes;
+        }
+
+        void removeChild(char c) {
+            int index = childIndex(c);
+            if (index < 0) {
+                return;
+            }
+            char[] chars = new char[firstChars.length - 1];
+            Node[] nodes = new Node[children.length - 1];
+            System.arraycopy(firstChars, 0, chars, 0, index);
+            System.arraycopy(children, 0, nodes, 0, index);
+            System.arraycopy(firstChars, index + 1, chars, index, firstChars.length - index - 1);
+            System.arraycopy(children, index + 1, nodes, index, children.length - index - 1);
+            firstChars = chars;
+            children = nodes;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package pharmacy.pharmacy.service;
+
+import io.sentry.Sentry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import pharmacy.pharmacy.dao.CategoryRepository;
+import pharmacy.pharmacy.dao.ProductRepository;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Resized JPEG variants of uploaded images, written as {@code uploads/thumbs/<hash>_<width>.jpg}.
+ *
+ * Generation runs on the bounded {@code thumbnailExecutor}; when its queue is full the work is dropped
+ * and picked up again by the startup backfill. Until an image's variants exist,
+ * {@link #thumbnailUrl(String)} falls back to the original URL.
+ */
+@Service
+public class ThumbnailService implements CommandLineRunner {
+
+    public static final String THUMBNAIL_URL_PREFIX = FileStorageService.URL_PREFIX + "thumbs/";
+
+    // Refuse to decode anything larger; a small compressed file can expand to gigabytes of pixels
+    private static final long MAX_SOURCE_PIXELS = 50_000_000L;
+
+    private final Path thumbnailDir;
+    private final List<Integer> widths;
+    private final TaskExecutor executor;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+
+    // Hashes whose variants are all on disk, and hashes queued or being resized
+    private final Set<String> ready = ConcurrentHashMap.newKeySet();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public ThumbnailService(@Value("${pharmacy.uploads.dir:uploads}") String uploadDir,
+                            @Value("${pharmacy.uploads.thumbnail-widths:160,480}") List<Integer> widths,
+                            @Qualifier("thumbnailExecutor") TaskExecutor executor,
+                            ProductRepository productRepository,
+                            CategoryRepository categoryRepository) {
+        this.thumbnailDir = Paths.get(uploadDir).toAbsolutePath().normalize().resolve("thumbs");
+        List<Integer> sorted = new ArrayList<>(new LinkedHashSet<>(widths));
+        Collections.sort(sorted);
+        this.widths = Collections.unmodifiableList(sorted);
+        this.executor = executor;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+    }
+
+    @Override
+    public void run(String... args) throws IOException {
+        loadExistingVariants();
+        // Images stored before thumbnails existed, or whose generation was dropped
+        Set<String> imageUrls = new LinkedHashSet<>(productRepository.findDistinctUploadedImageUrls());
+        imageUrls.addAll(categoryRepository.findDistinctUploadedImageUrls());
+        Path uploadDir = thumbnailDir.getParent();
+        for (String imageUrl : imageUrls) {
+            String hash = FileStorageService.hashOf(imageUrl);
+            if (hash != null) {
+                generateAsync(hash, uploadDir.resolve(imageUrl.substring(FileStorageService.URL_PREFIX.length())));
+            }
+        }
+    }
+
+    /**
+     * URL of the smallest variant, for listings; the original URL until the variant has been generated.
+     */
+    public String thumbnailUrl(String imageUrl) {
+        String hash = FileStorageService.hashOf(imageUrl);
+        if (hash == null || !ready.contains(hash)) {
+            return imageUrl;
+        }
+        return THUMBNAIL_URL_PREFIX + variantName(hash, widths.get(0));
+    }
+
+    // Only grows; lets cached listings notice that more thumbnails exist
+    public int getGeneratedCount() {
+        return ready.size();
+    }
+
+    public void generateAsync(String hash, Path source) {
+        if (hash == null || source == null || widths.isEmpty() || ready.contains(hash) || !pending.add(hash)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    if (Files.isRegularFile(source) && generate(hash, source)) {
+                        ready.add(hash);
+                    }
+                } catch (Exception e) {
+                    Sentry.captureException(e);
+                } finally {
+                    pending.remove(hash);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            pending.remove(hash);
+        }
+    }
+
+    // Returns false when the file is not a readable image
+    private boolean generate(String hash, Path source) throws IOException {
+        BufferedImage image = decode(source);
+        if (image == null) {
+            return false;
+        }
+        Files.createDirectories(thumbnailDir);
+        for (int width : widths) {
+            BufferedImage scaled = scaleToWidth(image, width);
+            Path target = thumbnailDir.resolve(variantName(hash, width));
+            Path temp = Files.createTempFile(thumbnailDir, "thumb-", ".tmp");
+            try {
+                writeJpeg(scaled, temp);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return true;
+    }
+
+    // Decodes with subsampling so huge photos are never held in memory at full resolution
+    private BufferedImage decode(Path source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                if ((long) sourceWidth * sourceHeight > MAX_SOURCE_PIXELS) {
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, sourceWidth / (widths.get(widths.size() - 1) * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Never upscales; transparent areas are flattened onto white since JPEG has no alpha
+    private static BufferedImage scaleToWidth(BufferedImage image, int width) {
+        int targetWidth = Math.min(width, image.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round((double) image.getHeight() * targetWidth / image.getWidth()));
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, targetWidth, targetHeight);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.85f);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // A hash is ready only when every configured width is on disk
+    private void loadExistingVariants() throws IOException {
+        if (!Files.isDirectory(thumbnailDir)) {
+            return;
+        }
+        Map<String, Integer> variantCounts = new HashMap<>();
+        try (Stream<Path> files = Files.list(thumbnailDir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".jpg") && name.indexOf('_') == 64)
+                    .filter(name -> widths.contains(parseWidth(name)))
+                    .forEach(name -> variantCounts.merge(name.substring(0, 64), 1, Integer::sum));
+        }
+        variantCounts.forEach((hash, count) -> {
+            if (count == widths.size()) {
+                ready.add(hash);
+            }
+        });
+    }
+
+    private static int parseWidth(String variantName) {
+        try {
+            return Integer.parseInt(variantName.substring(65, variantName.length() - ".jpg".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String variantName(String hash, int width) {
+        return hash + "_" + width + ".jpg";
+    }
+}
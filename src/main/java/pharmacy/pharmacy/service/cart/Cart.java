@@ -0,0 +1,107 @@
+package pharmacy.pharmacy.service.cart;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A shopping cart that lives only in a {@link CartStore} until checkout. Callers synchronize on the cart
+ * for every read and change; the subtotal is adjusted by each change instead of being re-summed.
+ */
+public final class Cart {
+
+    private final String id;
+    private final Integer branchId;
+    private final Integer userId;
+    private final BigDecimal discountAmount;
+    private final BigDecimal taxAmount;
+    private final Date createdAt = new Date();
+
+    // Keyed by product id, in the order the products were first added
+    private final Map<Integer, CartLine> lines = new LinkedHashMap<>();
+    private BigDecimal subtotalAmount = BigDecimal.ZERO;
+
+    // Set once the cart has been turned into an order; the cart then only answers retried checkouts
+    private Integer orderId;
+
+    public Cart(String id, Integer branchId, Integer userId, BigDecimal discountAmount, BigDecimal taxAmount) {
+        this.id = id;
+        this.branchId = branchId;
+        this.userId = userId;
+        this.discountAmount = discountAmount != null ? discountAmount : BigDecimal.ZERO;
+        this.taxAmount = taxAmount != null ? taxAmount : BigDecimal.ZERO;
+    }
+
+    public CartLine getLine(Integer productId) {
+        return lines.get(productId);
+    }
+
+    public List<CartLine> getLines() {
+        return new ArrayList<>(lines.values());
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    // Adding a product already in the cart raises its quantity at the price captured the first time
+    public void addLine(Integer productId, String barcode, String productName, BigDecimal price, int quantity) {
+        CartLine line = lines.computeIfAbsent(productId, id -> new CartLine(id, barcode, productName, price, 0));
+        setQuantity(line, line.getQuantity() + quantity);
+    }
+
+    public void setQuantity(CartLine line, int quantity) {
+        subtotalAmount = subtotalAmount.add(line.getPrice().multiply(BigDecimal.valueOf(quantity - line.getQuantity())));
+        line.setQuantity(quantity);
+    }
+
+    public void removeLine(CartLine line) {
+        lines.remove(line.getProductId());
+        subtotalAmount = subtotalAmount.subtract(line.getTotalPrice());
+    }
+
+    public void checkedOut(Integer orderId) {
+        this.orderId = orderId;
+        lines.clear();
+        subtotalAmount = BigDecimal.ZERO;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Integer getBranchId() {
+        return branchId;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public BigDecimal getDiscountAmount() {
+        return discountAmount;
+    }
+
+    public BigDecimal getTaxAmount() {
+        return taxAmount;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public BigDecimal getSubtotalAmount() {
+        return subtotalAmount;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return subtotalAmount.subtract(discountAmount).add(taxAmount);
+    }
+
+    public Integer getOrderId() {
+        return orderId;
+    }
+}
@@ -0,0 +1,52 @@
+package pharmacy.pharmacy.service.cart;
+
+import java.math.BigDecimal;
+
+/**
+ * One product in a {@link Cart}. Name and price are captured when the product is added; the order created
+ * at checkout is priced from the product as it is then.
+ */
+public final class CartLine {
+
+    private final Integer productId;
+    private final String barcode;
+    private final String productName;
+    private final BigDecimal price;
+    private int quantity;
+
+    CartLine(Integer productId, String barcode, String productName, BigDecimal price, int quantity) {
+        this.productId = productId;
+        this.barcode = barcode;
+        this.productName = productName;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public String getBarcode() {
+        return barcode;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return price.multiply(BigDecimal.valueOf(quantity));
+    }
+}
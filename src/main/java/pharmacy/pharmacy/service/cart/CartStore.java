@@ -0,0 +1,19 @@
+package pharmacy.pharmacy.service.cart;
+
+import java.util.Optional;
+
+/**
+ * Where carts live between requests. Implementations drop carts that have not been used for a while,
+ * so an abandoned cart simply disappears.
+ */
+public interface CartStore {
+
+    // Also counts as a use of the cart for idle expiry
+    Optional<Cart> get(String cartId);
+
+    void put(Cart cart);
+
+    void remove(String cartId);
+
+    int size();
+}
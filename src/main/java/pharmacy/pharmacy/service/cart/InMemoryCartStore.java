@@ -0,0 +1,93 @@
+package pharmacy.pharmacy.service.cart;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-local {@link CartStore}. Carts idle for longer than {@code idleTtlMinutes} expire, and once
+ * {@code maxCarts} is reached the least recently used cart is dropped to make room.
+ *
+ * Carts do not survive a restart and are not shared between instances; a POS till keeps talking to the
+ * instance that holds its cart.
+ */
+@Component
+public class InMemoryCartStore implements CartStore {
+
+    private final int maxCarts;
+    private final long idleTtlNanos;
+
+    // Access-ordered, so iteration starts at the cart that has been idle longest
+    private final LinkedHashMap<String, Entry> entries;
+
+    public InMemoryCartStore(@Value("${pharmacy.cart.max-carts:10000}") int maxCarts,
+                             @Value("${pharmacy.cart.idle-ttl-minutes:60}") long idleTtlMinutes) {
+        this.maxCarts = maxCarts;
+        this.idleTtlNanos = TimeUnit.MINUTES.toNanos(idleTtlMinutes);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > InMemoryCartStore.this.maxCarts;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Optional<Cart> get(String cartId) {
+        Entry entry = entries.get(cartId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        long now = System.nanoTime();
+        if (now - entry.lastUsed >= idleTtlNanos) {
+            entries.remove(cartId);
+            return Optional.empty();
+        }
+        entry.lastUsed = now;
+        return Optional.of(entry.cart);
+    }
+
+    @Override
+    public synchronized void put(Cart cart) {
+        entries.put(cart.getId(), new Entry(cart, System.nanoTime()));
+    }
+
+    @Override
+    public synchronized void remove(String cartId) {
+        entries.remove(cartId);
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Expired carts are also dropped on access; this frees the memory of carts nobody comes back to
+    @Scheduled(fixedDelayString = "${pharmacy.cart.sweep-interval-ms:60000}")
+    public synchronized void evictIdle() {
+        long now = System.nanoTime();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastUsed < idleTtlNanos) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    private static final class Entry {
+        private final Cart cart;
+        private long lastUsed;
+
+        private Entry(Cart cart, long lastUsed) {
+            this.cart = cart;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
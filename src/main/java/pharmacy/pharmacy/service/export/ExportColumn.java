@@ -0,0 +1,29 @@
+package pharmacy.pharmacy.service.export;
+
+import java.util.function.Function;
+
+/**
+ * One column of a tabular export: a header and how to read the cell value from a row.
+ */
+public final class ExportColumn<T> {
+
+    private final String header;
+    private final Function<T, ?> value;
+
+    private ExportColumn(String header, Function<T, ?> value) {
+        this.header = header;
+        this.value = value;
+    }
+
+    public static <T> ExportColumn<T> of(String header, Function<T, ?> value) {
+        return new ExportColumn<>(header, value);
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public Object valueOf(T row) {
+        return value.apply(row);
+    }
+}
@@ -0,0 +1,70 @@
+package pharmacy.pharmacy.service.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Component;
+import pharmacy.pharmacy.enums.JsonStreamFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Maps streamed entities to DTOs and writes them as NDJSON or as one JSON array, one row at a time.
+ * The persistence context is cleared every {@code BATCH_SIZE} rows, so neither the entities nor the
+ * DTOs accumulate in memory however many rows the cursor returns.
+ */
+@Component
+public class JsonStreamWriter {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ObjectWriter writer;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public JsonStreamWriter(ObjectMapper objectMapper) {
+        // Flushing the servlet stream after every value would send one tiny chunk per row
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Consumes {@code rows} fully and returns the number written. Must run inside the read-only
+     * transaction that owns the stream; the caller closes the stream.
+     */
+    public <E> long write(JsonStreamFormat format, Stream<E> rows, Function<? super E, ?> mapper,
+                          OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = writer.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            if (format == JsonStreamFormat.JSON) {
+                generator.writeStartArray();
+            }
+            Iterator<E> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, mapper.apply(iterator.next()));
+                if (format == JsonStreamFormat.NDJSON) {
+                    generator.writeRaw('\n');
+                }
+                if (++count % BATCH_SIZE == 0) {
+                    // Rows already written are no longer needed; nothing is dirty in a read-only transaction
+                    entityManager.clear();
+                    generator.flush();
+                }
+            }
+            if (format == JsonStreamFormat.JSON) {
+                generator.writeEndArray();
+            }
+        }
+        return count;
+    }
+}
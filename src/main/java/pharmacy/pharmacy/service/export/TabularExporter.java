@@ -0,0 +1,165 @@
+package pharmacy.pharmacy.service.export;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Component;
+import pharmacy.pharmacy.enums.ExportFormat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes a stream of rows as XLSX or CSV straight to an output stream. Memory use is bounded by the
+ * SXSSF row window (older rows are flushed to a compressed temp file) or by the CSV writer buffer,
+ * regardless of how many rows the source produces.
+ */
+@Component
+public class TabularExporter {
+
+    // Rows kept in memory by SXSSF before being flushed to disk
+    private static final int ROW_ACCESS_WINDOW = 100;
+    private static final int MAX_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    /**
+     * Consumes {@code rows} fully and returns the number of data rows written.
+     * The caller owns the stream (and any transaction/cursor behind it).
+     */
+    public <T> long export(ExportFormat format, String sheetName, List<ExportColumn<T>> columns,
+                           Stream<T> rows, OutputStream out) throws IOException {
+        return format == ExportFormat.CSV
+                ? writeCsv(columns, rows, out)
+                : writeXlsx(sheetName, columns, rows, out);
+    }
+
+    private <T> long writeXlsx(String sheetName, List<ExportColumn<T>> columns,
+                               Stream<T> rows, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd"));
+            CellStyle dateTimeStyle = workbook.createCellStyle();
+            dateTimeStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+
+            long written = 0;
+            int sheetNumber = 1;
+            Sheet sheet = newSheet(workbook, sheetName, sheetNumber, columns, headerStyle);
+            int rowNum = 1;
+
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                if (rowNum >= MAX_ROWS_PER_SHEET) {
+                    // Roll over instead of failing past the xlsx row limit
+                    sheet = newSheet(workbook, sheetName, ++sheetNumber, columns, headerStyle);
+                    rowNum = 1;
+                }
+                T item = iterator.next();
+                Row row = sheet.createRow(rowNum++);
+                for (int i = 0; i < columns.size(); i++) {
+                    setCell(row.createCell(i), columns.get(i).valueOf(item), dateStyle, dateTimeStyle);
+                }
+                written++;
+            }
+
+            workbook.write(out);
+            out.flush();
+            return written;
+        } finally {
+            workbook.dispose();  // Delete the temp files backing flushed rows
+            workbook.close();
+        }
+    }
+
+    private <T> Sheet newSheet(SXSSFWorkbook workbook, String sheetName, int sheetNumber,
+                               List<ExportColumn<T>> columns, CellStyle headerStyle) {
+        Sheet sheet = workbook.createSheet(sheetNumber == 1 ? sheetName : sheetName + " (" + sheetNumber + ")");
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < columns.size(); i++) {
+            Cell cell = header.createCell(i);
+            cell.setCellValue(columns.get(i).getHeader());
+            cell.setCellStyle(headerStyle);
+        }
+        return sheet;
+    }
+
+    private void setCell(Cell cell, Object value, CellStyle dateStyle, CellStyle dateTimeStyle) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number number) {
+            cell.setCellValue(number instanceof BigDecimal decimal ? decimal.doubleValue() : number.doubleValue());
+        } else if (value instanceof Boolean bool) {
+            cell.setCellValue(bool);
+        } else if (value instanceof LocalDate date) {
+            cell.setCellValue(date);
+            cell.setCellStyle(dateStyle);
+        } else if (value instanceof LocalDateTime dateTime) {
+            cell.setCellValue(dateTime);
+            cell.setCellStyle(dateTimeStyle);
+        } else if (value instanceof Date date) {
+            cell.setCellValue(date);
+            cell.setCellStyle(dateTimeStyle);
+        } else {
+            cell.setCellValue(value.toString());
+        }
+    }
+
+    private <T> long writeCsv(List<ExportColumn<T>> columns, Stream<T> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write('\uFEFF');  // BOM so Excel opens the file as UTF-8
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) writer.write(',');
+            writer.write(escapeCsv(columns.get(i).getHeader()));
+        }
+        writer.write("\r\n");
+
+        long written = 0;
+        Iterator<T> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            T item = iterator.next();
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) writer.write(',');
+                Object value = columns.get(i).valueOf(item);
+                if (value != null) {
+                    writer.write(escapeCsv(value instanceof BigDecimal decimal
+                            ? decimal.toPlainString() : value.toString()));
+                }
+            }
+            writer.write("\r\n");
+            written++;
+        }
+        writer.flush();
+        return written;
+    }
+
+    // RFC 4180 quoting
+    private String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
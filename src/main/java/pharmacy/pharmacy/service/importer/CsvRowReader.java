@@ -0,0 +1,75 @@
+package pharmacy.pharmacy.service.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV reader: quoted fields, doubled quotes and line breaks inside quotes.
+ */
+public class CsvRowReader implements TabularRowReader {
+
+    @Override
+    public void read(InputStream in, RowHandler handler) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        List<String> cells = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean inQuotes = false;
+        boolean rowHasContent = false;
+        int rowNumber = 1;
+
+        int c = reader.read();
+        if (c == '\uFEFF') {
+            c = reader.read();  // Skip the UTF-8 BOM Excel writes
+        }
+        for (; c != -1; c = reader.read()) {
+            char ch = (char) c;
+            if (inQuotes) {
+                if (ch == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                inQuotes = true;
+                rowHasContent = true;
+            } else if (ch == ',') {
+                cells.add(field.toString().trim());
+                field.setLength(0);
+                rowHasContent = true;
+            } else if (ch == '\n' || ch == '\r') {
+                if (ch == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                if (rowHasContent || field.length() > 0) {
+                    cells.add(field.toString().trim());
+                    handler.row(rowNumber, cells);
+                    cells = new ArrayList<>();
+                }
+                field.setLength(0);
+                rowHasContent = false;
+                rowNumber++;
+            } else {
+                field.append(ch);
+            }
+        }
+        if (rowHasContent || field.length() > 0) {
+            cells.add(field.toString().trim());
+            handler.row(rowNumber, cells);
+        }
+    }
+}
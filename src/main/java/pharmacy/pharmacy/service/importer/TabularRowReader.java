@@ -0,0 +1,23 @@
+package pharmacy.pharmacy.service.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Push-style reader for uploaded spreadsheets. Rows are handed over one at a time as they are
+ * parsed, so the whole file is never materialized as objects.
+ */
+public interface TabularRowReader {
+
+    @FunctionalInterface
+    interface RowHandler {
+        /**
+         * @param rowNumber 1-based row number as shown in a spreadsheet (the header is row 1)
+         * @param cells     cell text, trimmed; missing trailing cells are absent
+         */
+        void row(int rowNumber, List<String> cells);
+    }
+
+    void read(InputStream in, RowHandler handler) throws IOException;
+}
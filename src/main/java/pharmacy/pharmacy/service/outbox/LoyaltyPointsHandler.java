@@ -0,0 +1,54 @@
+package pharmacy.pharmacy.service.outbox;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pharmacy.pharmacy.dao.CustomerRepository;
+import pharmacy.pharmacy.enums.OrderStatus;
+import pharmacy.pharmacy.event.OrderStatusChangedEvent;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Credits a customer one loyalty point per {@code amount-per-point} of the order total when the order is
+ * completed, and takes them back when a completed order is cancelled or refunded.
+ */
+@Component
+public class LoyaltyPointsHandler implements OrderEventHandler {
+
+    private final CustomerRepository customerRepository;
+    private final BigDecimal amountPerPoint;
+
+    public LoyaltyPointsHandler(CustomerRepository customerRepository,
+                                @Value("${pharmacy.loyalty.amount-per-point:100}") BigDecimal amountPerPoint) {
+        this.customerRepository = customerRepository;
+        this.amountPerPoint = amountPerPoint;
+    }
+
+    @Override
+    public String name() {
+        return "loyalty";
+    }
+
+    @Override
+    public void handle(OrderStatusChangedEvent event) {
+        boolean completed = event.getStatus() == OrderStatus.COMPLETED;
+        boolean wasCompleted = event.getPreviousStatus() == OrderStatus.COMPLETED;
+        if (event.getUserId() == null || event.getTotalAmount() == null || completed == wasCompleted) {
+            return;
+        }
+        int points = event.getTotalAmount().divide(amountPerPoint, 0, RoundingMode.DOWN).intValue();
+        if (points <= 0) {
+            return;
+        }
+        // Users without a customer profile (staff, walk-ins) do not collect points
+        customerRepository.findByUserIdForUpdate(event.getUserId()).ifPresent(customer -> {
+            if (completed) {
+                customer.addLoyaltyPoints(points);
+            } else {
+                // Points already redeemed cannot be taken back
+                customer.redeemPoints(Math.min(points, customer.getLoyaltyPoints()));
+            }
+        });
+    }
+}
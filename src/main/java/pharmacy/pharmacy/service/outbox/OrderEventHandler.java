@@ -0,0 +1,16 @@
+package pharmacy.pharmacy.service.outbox;
+
+import pharmacy.pharmacy.event.OrderStatusChangedEvent;
+
+/**
+ * Consumer of order events, called by the {@link OutboxDispatcher} in a transaction of its own that also
+ * records the delivery, so each handler processes an event once even when another handler fails and the
+ * event is retried. Throwing rolls back the handler's work and schedules a retry.
+ */
+public interface OrderEventHandler {
+
+    // Stable name recorded on delivered events; renaming a handler makes pending events run it again
+    String name();
+
+    void handle(OrderStatusChangedEvent event);
+}
@@ -0,0 +1,52 @@
+package pharmacy.pharmacy.service.outbox;
+
+import org.springframework.stereotype.Component;
+import pharmacy.pharmacy.dto.NotificationDTO;
+import pharmacy.pharmacy.enums.NotificationType;
+import pharmacy.pharmacy.event.OrderStatusChangedEvent;
+import pharmacy.pharmacy.service.NotificationService;
+
+// Tells the customer about every status their order moves into, once it has left the cart
+@Component
+public class OrderNotificationHandler implements OrderEventHandler {
+
+    private final NotificationService notificationService;
+
+    public OrderNotificationHandler(NotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
+    @Override
+    public String name() {
+        return "notification";
+    }
+
+    @Override
+    public void handle(OrderStatusChangedEvent event) {
+        if (event.getUserId() == null || event.getStatus() == null) {
+            return;
+        }
+        String message = switch (event.getStatus()) {
+            case CART -> null;
+            case PENDING -> "Your order has been placed.";
+            case PROCESSING -> "Your order is being prepared.";
+            case READY -> "Your order is ready for pickup.";
+            case SHIPPED -> "Your order has been shipped.";
+            case DELIVERED -> "Your order has been delivered.";
+            case COMPLETED -> "Your order is complete. Thank you!";
+            case CANCELLED -> "Your order has been cancelled.";
+            case REFUNDED -> "Your order has been refunded.";
+            case FAILED -> "Your order could not be processed.";
+        };
+        if (message == null) {
+            return;
+        }
+        NotificationDTO notification = new NotificationDTO();
+        notification.setUserId(event.getUserId());
+        notification.setTitle("Order #" + event.getOrderId() + " " + event.getStatus().name().toLowerCase());
+        notification.setMessage(message);
+        notification.setNotificationType(NotificationType.ORDER);
+        notification.setRelatedId(event.getOrderId());
+        notificationService.createNotification(notification);
+    }
+}
@@ -0,0 +1,136 @@
+package pharmacy.pharmacy.service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.sentry.Sentry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import pharmacy.pharmacy.dao.OutboxEventRepository;
+import pharmacy.pharmacy.entity.OutboxEvent;
+import pharmacy.pharmacy.enums.OutboxStatus;
+import pharmacy.pharmacy.event.OrderStatusChangedEvent;
+import pharmacy.pharmacy.exception.GlobalException;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Delivers committed outbox events to the {@link OrderEventHandler}s in the background, a batch per poll.
+ *
+ * Each handler runs in its own transaction, which locks the event row and records the delivery, so a failing
+ * handler neither undoes nor repeats the others. A failed event is retried with exponential backoff until
+ * {@code max-attempts}, then left as FAILED. Events of one order are delivered in the order they were
+ * written; locked rows are skipped, so several instances can poll the same table.
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final long MAX_BACKOFF_SECONDS = Duration.ofHours(1).toSeconds();
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final List<OrderEventHandler> handlers;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retention;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            List<OrderEventHandler> handlers,
+                            TransactionTemplate transactionTemplate,
+                            ObjectMapper objectMapper,
+                            @Value("${pharmacy.outbox.batch-size:100}") int batchSize,
+                            @Value("${pharmacy.outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${pharmacy.outbox.retention-days:7}") long retentionDays) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.handlers = handlers;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    @Scheduled(fixedDelayString = "${pharmacy.outbox.poll-interval-ms:1000}")
+    public void dispatchDueEvents() {
+        List<Long> ids = outboxEventRepository.findDueIds(new Date(), PageRequest.of(0, batchSize));
+        for (Long id : ids) {
+            dispatch(id);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${pharmacy.outbox.cleanup-interval-ms:3600000}",
+            fixedDelayString = "${pharmacy.outbox.cleanup-interval-ms:3600000}")
+    public void deleteProcessedEvents() {
+        outboxEventRepository.deleteProcessedBefore(new Date(System.currentTimeMillis() - retention.toMillis()));
+    }
+
+    private void dispatch(Long id) {
+        Exception failure = null;
+        for (OrderEventHandler handler : handlers) {
+            try {
+                Boolean claimed = transactionTemplate.execute(status -> deliver(id, handler));
+                if (!Boolean.TRUE.equals(claimed)) {
+                    return;  // Being delivered by another instance, or no longer pending
+                }
+            } catch (Exception e) {
+                Sentry.captureException(e);
+                failure = e;
+            }
+        }
+        Exception error = failure;
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.findByIdForUpdate(id)
+                .filter(event -> event.getStatus() == OutboxStatus.PENDING)
+                .ifPresent(event -> {
+                    if (error == null) {
+                        event.setStatus(OutboxStatus.PROCESSED);
+                        event.setProcessedAt(new Date());
+                        event.setLastError(null);
+                    } else {
+                        recordFailure(event, error);
+                    }
+                }));
+    }
+
+    // Runs in the handler's transaction; returns false when the event could not be locked
+    private boolean deliver(Long id, OrderEventHandler handler) {
+        OutboxEvent event = outboxEventRepository.findByIdForUpdate(id).orElse(null);
+        if (event == null || event.getStatus() != OutboxStatus.PENDING) {
+            return false;
+        }
+        if (!event.isDeliveredTo(handler.name())) {
+            handler.handle(readPayload(event));
+            event.markDeliveredTo(handler.name());
+        }
+        return true;
+    }
+
+    private void recordFailure(OutboxEvent event, Exception error) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        event.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        if (attempts >= maxAttempts) {
+            event.setStatus(OutboxStatus.FAILED);
+        } else {
+            long backoffSeconds = Math.min(1L << Math.min(attempts, 20), MAX_BACKOFF_SECONDS);
+            event.setAvailableAt(new Date(System.currentTimeMillis() + backoffSeconds * 1000));
+        }
+    }
+
+    private OrderStatusChangedEvent readPayload(OutboxEvent event) {
+        if (!OrderStatusChangedEvent.TYPE.equals(event.getEventType())) {
+            throw new GlobalException("Unknown outbox event type: " + event.getEventType());
+        }
+        try {
+            return objectMapper.readValue(event.getPayload(), OrderStatusChangedEvent.class);
+        } catch (JsonProcessingException e) {
+            throw new GlobalException("Could not read outbox event " + event.getId(), e);
+        }
+    }
+}
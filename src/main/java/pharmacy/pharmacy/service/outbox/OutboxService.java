@@ -0,0 +1,81 @@
+package pharmacy.pharmacy.service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pharmacy.pharmacy.dao.OutboxEventRepository;
+import pharmacy.pharmacy.entity.Order;
+import pharmacy.pharmacy.entity.OutboxEvent;
+import pharmacy.pharmacy.enums.OrderStatus;
+import pharmacy.pharmacy.enums.OutboxStatus;
+import pharmacy.pharmacy.event.OrderStatusChangedEvent;
+import pharmacy.pharmacy.exception.GlobalException;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writes outbox events. The request only inserts one row, however many handlers will later consume it.
+ */
+@Service
+public class OutboxService {
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_events " +
+            "(event_type, aggregate_id, payload, status, attempts, available_at, created_at) " +
+            "VALUES (?, ?, ?, ?, 0, ?, ?)";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, JdbcTemplate jdbcTemplate,
+                         ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    // Must join the transaction that changes the order, so the event commits or rolls back with it
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderStatusChanged(Order order, OrderStatus previousStatus) {
+        OrderStatusChangedEvent event = new OrderStatusChangedEvent(order.getId(),
+                order.getUser() != null ? order.getUser().getId() : null,
+                order.getBranch().getId(), previousStatus, order.getStatus(), order.getTotalAmount());
+
+        Date now = new Date();
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setEventType(OrderStatusChangedEvent.TYPE);
+        outboxEvent.setAggregateId(order.getId());
+        outboxEvent.setPayload(toJson(event));
+        outboxEvent.setStatus(OutboxStatus.PENDING);
+        outboxEvent.setAvailableAt(now);
+        outboxEvent.setCreatedAt(now);
+        outboxEventRepository.save(outboxEvent);
+    }
+
+    // Bulk status changes write their events in one JDBC batch; IDENTITY ids stop Hibernate from batching
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ordersStatusChanged(List<OrderStatusChangedEvent> events) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, OrderStatusChangedEvent.TYPE);
+            ps.setInt(2, event.getOrderId());
+            ps.setString(3, toJson(event));
+            ps.setString(4, OutboxStatus.PENDING.name());
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+        });
+    }
+
+    private String toJson(Object event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new GlobalException("Could not serialize outbox event", e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package pharmacy.pharmacy.service.outbox;
+
+import org.springframework.stereotype.Component;
+import pharmacy.pharmacy.enums.OrderStatus;
+import pharmacy.pharmacy.event.OrderStatusChangedEvent;
+import pharmacy.pharmacy.service.AlertService;
+
+// Stock moves when items are added, so an order's products are checked once it is placed or checked out
+@Component
+public class StockAlertHandler implements OrderEventHandler {
+
+    private final AlertService alertService;
+
+    public StockAlertHandler(AlertService alertService) {
+        this.alertService = alertService;
+    }
+
+    @Override
+    public String name() {
+        return "stock-alert";
+    }
+
+    @Override
+    public void handle(OrderStatusChangedEvent event) {
+        if (event.getPreviousStatus() == null || event.getPreviousStatus() == OrderStatus.CART) {
+            alertService.raiseStockAlertsForOrder(event.getOrderId(), event.getBranchId());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package pharmacy.pharmacy.service.reservation;
+
+import io.sentry.Sentry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pharmacy.pharmacy.dao.InventoryRepository;
+import pharmacy.pharmacy.dao.StockReservationRepository;
+import pharmacy.pharmacy.dto.OrderItemDTO;
+import pharmacy.pharmacy.entity.StockReservation;
+import pharmacy.pharmacy.event.InventoryChangedEvent;
+import pharmacy.pharmacy.exception.GlobalException;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Holds branch stock for open carts. A hold moves quantity from available to reserved on the branch's
+ * inventory record, checkout turns the cart's holds into a decrement of the stock level, and holds not
+ * renewed by cart activity within {@code hold-ttl-minutes} are given back by the sweeper.
+ *
+ * Products a branch keeps no inventory record for are not tracked: they are never held and never refused.
+ */
+@Service
+public class ReservationService {
+
+    // Sells quantity, using up the holder's held part of it; 0 rows when the rest is not free to sell
+    private static final String COMMIT_STOCK_SQL = "UPDATE inventory SET stock_level = stock_level - ?, " +
+            "reserved_quantity = reserved_quantity - ?, last_updated = ? WHERE branch_id = ? AND product_id = ? " +
+            "AND reserved_quantity >= ? AND stock_level - reserved_quantity + ? >= ?";
+
+    private final StockReservationRepository reservationRepository;
+    private final InventoryRepository inventoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration holdTtl;
+    private final int sweepBatchSize;
+
+    public ReservationService(StockReservationRepository reservationRepository,
+                              InventoryRepository inventoryRepository,
+                              JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${pharmacy.reservation.hold-ttl-minutes:15}") long holdTtlMinutes,
+                              @Value("${pharmacy.reservation.sweep-batch-size:500}") int sweepBatchSize) {
+        this.reservationRepository = reservationRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.holdTtl = Duration.ofMinutes(holdTtlMinutes);
+        this.sweepBatchSize = sweepBatchSize;
+    }
+
+    /**
+     * Sets the holder's hold on a product to {@code quantity} (0 releases it) and renews all of the holder's
+     * holds. Throws OUT_OF_STOCK, leaving the hold as it was, when the branch cannot cover the increase.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)  // No gap locks, so two new carts' first holds cannot deadlock
+    public void hold(String holderId, Integer branchId, Integer productId, int quantity) {
+        // The holder's reservation rows are locked before the inventory row, the order commit and the sweeper use
+        List<StockReservation> reservations = reservationRepository.findByHolderIdForUpdate(holderId);
+        StockReservation reservation = reservations.stream()
+                .filter(candidate -> candidate.getProductId().equals(productId))
+                .findFirst()
+                .orElse(null);
+        int held = reservation != null ? reservation.getQuantity() : 0;
+        int change = quantity - held;
+
+        if (change > 0 && inventoryRepository.reserveStock(branchId, productId, change) == 0) {
+            List<Integer> available = inventoryRepository.findAvailable(branchId, productId);
+            if (available.isEmpty()) {
+                return;  // Not tracked at this branch
+            }
+            throw new GlobalException("Only " + Math.max(available.get(0), 0) + " more of product " + productId +
+                    " available at branch " + branchId, HttpStatus.CONFLICT, "OUT_OF_STOCK");
+        }
+        if (change < 0) {
+            inventoryRepository.releaseStock(branchId, productId, -change);
+        }
+
+        Date expiresAt = new Date(System.currentTimeMillis() + holdTtl.toMillis());
+        for (StockReservation renewed : reservations) {
+            renewed.setExpiresAt(expiresAt);
+        }
+        if (quantity == 0) {
+            if (reservation != null) {
+                reservationRepository.delete(reservation);
+            }
+        } else if (reservation == null) {
+            reservationRepository.save(new StockReservation(null, holderId, branchId, productId, quantity,
+                    expiresAt, null));
+        } else {
+            reservation.setQuantity(quantity);
+        }
+        if (change != 0) {
+            eventPublisher.publishEvent(new InventoryChangedEvent(branchId, productId));
+        }
+    }
+
+    // Gives back everything the holder still holds, e.g. when its cart is deleted
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public void releaseAll(String holderId) {
+        List<StockReservation> reservations = reservationRepository.findByHolderIdForUpdate(holderId);
+        for (StockReservation reservation : reservations) {
+            release(reservation);
+        }
+        reservationRepository.deleteAllInBatch(reservations);
+    }
+
+    /**
+     * Takes the items of a new order off the branch's stock, in the order's transaction. Quantities the
+     * holder (the cart being checked out, or null) had held are used first; the rest must be free to sell
+     * or the call throws OUT_OF_STOCK. Holds for products no longer in the order are released.
+     */
+    @Transactional
+    public void commit(String holderId, Integer branchId, List<OrderItemDTO> items) {
+        Map<Integer, Integer> heldByProduct = new TreeMap<>();
+        List<StockReservation> reservations = holderId != null
+                ? reservationRepository.findByHolderIdForUpdate(holderId)
+                : List.of();
+        for (StockReservation reservation : reservations) {
+            if (reservation.getBranchId().equals(branchId)) {
+                heldByProduct.put(reservation.getProductId(), reservation.getQuantity());
+            } else {
+                release(reservation);
+            }
+        }
+        // Sorted by product id, the same order holds and sweeps lock inventory rows in
+        Map<Integer, Integer> quantityByProduct = new TreeMap<>();
+        for (OrderItemDTO item : items) {
+            quantityByProduct.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+
+        List<Object[]> updates = new ArrayList<>(quantityByProduct.size());
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        quantityByProduct.forEach((productId, quantity) -> {
+            int held = heldByProduct.getOrDefault(productId, 0);
+            updates.add(new Object[]{quantity, held, now, branchId, productId, held, held, quantity});
+        });
+        int[] updated = jdbcTemplate.batchUpdate(COMMIT_STOCK_SQL, updates);
+        for (int i = 0; i < updated.length; i++) {
+            Integer productId = (Integer) updates.get(i)[4];
+            if (updated[i] == 0 && inventoryRepository.existsByBranchIdAndProductId(branchId, productId)) {
+                throw new GlobalException("Insufficient stock at branch " + branchId + " for product " + productId,
+                        HttpStatus.CONFLICT, "OUT_OF_STOCK");
+            }
+        }
+
+        heldByProduct.forEach((productId, held) -> {
+            if (!quantityByProduct.containsKey(productId)) {
+                inventoryRepository.releaseStock(branchId, productId, held);
+            }
+        });
+        reservationRepository.deleteAllInBatch(reservations);
+        Set<Integer> changed = new TreeSet<>(heldByProduct.keySet());
+        changed.addAll(quantityByProduct.keySet());
+        for (Integer productId : changed) {
+            eventPublisher.publishEvent(new InventoryChangedEvent(branchId, productId));
+        }
+    }
+
+    /**
+     * Releases expired holds a batch at a time, each batch in its own transaction. Holds being committed
+     * by a checkout are locked and skipped, so several instances can sweep at once.
+     */
+    @Scheduled(fixedDelayString = "${pharmacy.reservation.sweep-interval-ms:30000}")
+    public void releaseExpiredHolds() {
+        try {
+            Integer released;
+            do {
+                released = transactionTemplate.execute(status -> releaseExpiredBatch(new Date()));
+            } while (released != null && released == sweepBatchSize);
+        } catch (Exception e) {
+            Sentry.captureException(e);
+        }
+    }
+
+    private int releaseExpiredBatch(Date now) {
+        List<StockReservation> expired = reservationRepository.findExpiredForUpdate(now,
+                PageRequest.of(0, sweepBatchSize));
+        // One update per branch and product, taken in a fixed order so concurrent sweeps cannot deadlock
+        Map<Long, StockReservation> first = new TreeMap<>();
+        Map<Long, Integer> quantityByKey = new TreeMap<>();
+        for (StockReservation reservation : expired) {
+            long key = ((long) reservation.getBranchId() << 32) | reservation.getProductId();
+            first.putIfAbsent(key, reservation);
+            quantityByKey.merge(key, reservation.getQuantity(), Integer::sum);
+        }
+        quantityByKey.forEach((key, quantity) -> {
+            StockReservation reservation = first.get(key);
+            inventoryRepository.releaseStock(reservation.getBranchId(), reservation.getProductId(), quantity);
+            eventPublisher.publishEvent(
+                    new InventoryChangedEvent(reservation.getBranchId(), reservation.getProductId()));
+        });
+        reservationRepository.deleteAllInBatch(expired);
+        return expired.size();
+    }
+
+    private void release(StockReservation reservation) {
+        inventoryRepository.releaseStock(reservation.getBranchId(), reservation.getProductId(),
+                reservation.getQuantity());
+        eventPublisher.publishEvent(new InventoryChangedEvent(reservation.getBranchId(), reservation.getProductId()));
+    }
+}
@@ -0,0 +1,89 @@
+package pharmacy.pharmacy.service.reservation;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pharmacy.pharmacy.dao.InventoryRepository;
+import pharmacy.pharmacy.event.InventoryChangedEvent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Available-to-sell ({@code stock_level - reserved_quantity}) per branch and product, kept in memory so a
+ * lookup is one map read. Loaded at startup, reloaded per key after each committed change and fully
+ * resynced on a timer to pick up writes made elsewhere.
+ *
+ * The figure is for display; holds and sales are still checked against the inventory row itself.
+ */
+@Component
+public class StockAvailabilityCounter implements CommandLineRunner {
+
+    private final InventoryRepository inventoryRepository;
+
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    // Orders reloads and resyncs by when they began reading, so an older read never replaces a newer one
+    private final AtomicLong sequence = new AtomicLong();
+
+    public StockAvailabilityCounter(InventoryRepository inventoryRepository) {
+        this.inventoryRepository = inventoryRepository;
+    }
+
+    @Override
+    public void run(String... args) {
+        resync();
+    }
+
+    // Empty when the branch keeps no inventory record for the product
+    public OptionalInt getAvailable(Integer branchId, Integer productId) {
+        Counter counter = counters.get(key(branchId, productId));
+        return counter == null || counter.available == null
+                ? OptionalInt.empty()
+                : OptionalInt.of(counter.available);
+    }
+
+    @Scheduled(initialDelayString = "${pharmacy.reservation.resync-interval-ms:300000}",
+            fixedDelayString = "${pharmacy.reservation.resync-interval-ms:300000}")
+    public void resync() {
+        long start = sequence.incrementAndGet();
+        Map<Long, Integer> loaded = new HashMap<>();
+        for (Object[] row : inventoryRepository.findAllAvailable()) {
+            loaded.put(key((Integer) row[0], (Integer) row[1]), (Integer) row[2]);
+        }
+        // Records reloaded since the resync began keep their newer figure
+        counters.entrySet().removeIf(entry -> entry.getValue().stamp <= start && !loaded.containsKey(entry.getKey()));
+        loaded.forEach((key, available) -> counters.compute(key, (k, current) ->
+                current != null && current.stamp > start ? current : new Counter(available, start)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        // Stamped before the read, so a reload that read later, or a resync that began later, wins
+        long stamp = sequence.incrementAndGet();
+        List<Integer> available = inventoryRepository.findAvailable(event.getBranchId(), event.getProductId());
+        // A deleted record is kept as an empty counter until the next resync, so it is not brought back
+        Integer value = available.isEmpty() ? null : available.get(0);
+        counters.compute(key(event.getBranchId(), event.getProductId()), (k, current) ->
+                current != null && current.stamp > stamp ? current : new Counter(value, stamp));
+    }
+
+    private static long key(Integer branchId, Integer productId) {
+        return ((long) branchId << 32) | (productId & 0xFFFFFFFFL);
+    }
+
+    private static final class Counter {
+        private final Integer available;
+        private final long stamp;
+
+        private Counter(Integer available, long stamp) {
+            this.available = available;
+            this.stamp = stamp;
+        }
+    }
+}
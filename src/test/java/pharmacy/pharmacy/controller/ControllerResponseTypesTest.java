@@ -0,0 +1,131 @@
+package pharmacy.pharmacy.controller;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Entity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Endpoints must answer with DTOs: entities carry lazy collections that Jackson would walk one select at
+ * a time. Checks the declared return type of every handler, through wrappers, collections and DTO fields.
+ * Wildcard bodies ({@code ResponseEntity<?>}) cannot be checked this way.
+ */
+class ControllerResponseTypesTest {
+
+    private static final String BASE_PACKAGE = "pharmacy.pharmacy";
+
+    @Test
+    void handlersReturnNoEntities() throws ClassNotFoundException {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(RestController.class));
+
+        List<Method> handlers = new ArrayList<>();
+        for (BeanDefinition candidate : scanner.findCandidateComponents(BASE_PACKAGE + ".controller")) {
+            for (Method method : Class.forName(candidate.getBeanClassName()).getDeclaredMethods()) {
+                if (AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class)) {
+                    handlers.add(method);
+                }
+            }
+        }
+
+        List<String> leaks = new ArrayList<>();
+        for (Method handler : handlers) {
+            Class<?> entity = findEntity(handler.getGenericReturnType(), new HashSet<>());
+            if (entity != null) {
+                leaks.add(handler.getDeclaringClass().getSimpleName() + "." + handler.getName() + " returns "
+                        + entity.getSimpleName());
+            }
+        }
+        assertFalse(handlers.isEmpty());
+        assertEquals(List.of(), leaks);
+    }
+
+    @Test
+    void findsEntityInsideWrappersAndFields() {
+        assertEquals(Leaky.class, findEntity(Wrapper.class, new HashSet<>()));
+        assertNull(findEntity(Safe.class, new HashSet<>()));
+    }
+
+    private static Class<?> findEntity(Type type, Set<Class<?>> visited) {
+        if (type instanceof ParameterizedType parameterized) {
+            for (Type argument : parameterized.getActualTypeArguments()) {
+                Class<?> leaked = findEntity(argument, visited);
+                if (leaked != null) {
+                    return leaked;
+                }
+            }
+            return findEntity(parameterized.getRawType(), visited);
+        }
+        if (type instanceof WildcardType wildcard) {
+            return findEntity(wildcard.getUpperBounds()[0], visited);
+        }
+        if (type instanceof GenericArrayType array) {
+            return findEntity(array.getGenericComponentType(), visited);
+        }
+        if (!(type instanceof Class<?> clazz)) {
+            return null;
+        }
+        if (clazz.isArray()) {
+            return findEntity(clazz.getComponentType(), visited);
+        }
+        if (AnnotationUtils.findAnnotation(clazz, Entity.class) != null) {
+            return clazz;
+        }
+        // Only our own types are walked; library wrappers are covered through their type arguments
+        if (!clazz.getName().startsWith(BASE_PACKAGE + ".") || clazz.isEnum() || !visited.add(clazz)) {
+            return null;
+        }
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isAnnotationPresent(JsonIgnore.class)) {
+                    continue;
+                }
+                Class<?> leaked = findEntity(field.getGenericType(), visited);
+                if (leaked != null) {
+                    return leaked;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Entity
+    static class Leaky {
+    }
+
+    static class Wrapper {
+        List<Holder<Leaky>> holders;
+    }
+
+    static class Holder<T> {
+        T value;
+    }
+
+    static class Safe {
+        List<String> names;
+        @JsonIgnore
+        Leaky internal;
+    }
+}
@@ -0,0 +1,56 @@
+package pharmacy.pharmacy.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CursorCodecTest {
+
+    @Test
+    void roundTripsParts() {
+        String cursor = CursorCodec.encode("PRICE", "ASC", "12.50", "42");
+
+        assertArrayEquals(new String[]{"PRICE", "ASC", "12.50", "42"}, CursorCodec.decode(cursor, 4));
+    }
+
+    @Test
+    void keepsNullDistinctFromEmptyString() {
+        String cursor = CursorCodec.encode("CREATED_AT", "DESC", null, "");
+
+        assertArrayEquals(new String[]{"CREATED_AT", "DESC", null, ""}, CursorCodec.decode(cursor, 4));
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        String cursor = CursorCodec.encode("NAME", "ASC", "Vitamin C 500mg / 60 tabs ??>>", "7");
+
+        assertFalse(cursor.contains("+") || cursor.contains("/") || cursor.contains("="));
+        assertArrayEquals(new String[]{"NAME", "ASC", "Vitamin C 500mg / 60 tabs ??>>", "7"},
+                CursorCodec.decode(cursor, 4));
+    }
+
+    @Test
+    void rejectsWrongNumberOfParts() {
+        String cursor = CursorCodec.encode("1700000000000", "42");
+
+        assertThrows(IllegalArgumentException.class, () -> CursorCodec.decode(cursor, 4));
+    }
+
+    @Test
+    void rejectsInvalidBase64() {
+        assertThrows(IllegalArgumentException.class, () -> CursorCodec.decode("not a cursor!", 2));
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        String cursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("v0\u001F1\u001F2".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> CursorCodec.decode(cursor, 2));
+    }
+}
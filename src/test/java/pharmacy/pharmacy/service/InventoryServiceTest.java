@@ -0,0 +1,106 @@
+package pharmacy.pharmacy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import pharmacy.pharmacy.dao.InventoryRepository;
+import pharmacy.pharmacy.dto.InventoryDTO;
+import pharmacy.pharmacy.entity.Branch;
+import pharmacy.pharmacy.entity.Inventory;
+import pharmacy.pharmacy.entity.Product;
+import pharmacy.pharmacy.exception.GlobalException;
+import pharmacy.pharmacy.service.export.JsonStreamWriter;
+import pharmacy.pharmacy.service.reservation.StockAvailabilityCounter;
+
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryServiceTest {
+
+    private InventoryRepository inventoryRepository;
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        inventoryRepository = mock(InventoryRepository.class);
+        inventoryService = new InventoryService(inventoryRepository, mock(ProductService.class),
+                mock(BranchService.class), mock(JsonStreamWriter.class), mock(StockAvailabilityCounter.class),
+                mock(ApplicationEventPublisher.class));
+    }
+
+    @Test
+    void stockAdjustmentLeavesQuantityHeldByCartsAlone() {
+        when(inventoryRepository.adjustStockLevel(eq(7), eq(-2), any(Date.class))).thenReturn(1);
+        // A cart held 4 while the adjustment was being made
+        when(inventoryRepository.findById(7)).thenReturn(Optional.of(inventory(8, 4)));
+
+        InventoryDTO result = inventoryService.updateStockLevel(7, -2);
+
+        assertEquals(8, result.getStockLevel());
+        assertEquals(4, result.getReservedQuantity());
+        verify(inventoryRepository, never()).save(any(Inventory.class));
+    }
+
+    @Test
+    void stockAdjustmentOfMissingRecordFails() {
+        when(inventoryRepository.adjustStockLevel(eq(7), anyInt(), any(Date.class))).thenReturn(0);
+
+        assertThrows(GlobalException.class, () -> inventoryService.updateStockLevel(7, 5));
+        verify(inventoryRepository, never()).findById(anyInt());
+    }
+
+    @Test
+    void editWritesBackQuantityHeldByCarts() {
+        // The locked read sees a hold and a sale committed since the client loaded the record
+        when(inventoryRepository.findByIdForUpdate(7)).thenReturn(Optional.of(inventory(9, 3)));
+        when(inventoryRepository.save(any(Inventory.class))).then(returnsFirstArg());
+        InventoryDTO edit = new InventoryDTO();
+        edit.setShelfLocation("A-3");
+
+        InventoryDTO result = inventoryService.updateInventory(7, edit);
+
+        assertEquals("A-3", result.getShelfLocation());
+        assertEquals(9, result.getStockLevel());
+        assertEquals(3, result.getReservedQuantity());
+        verify(inventoryRepository, never()).findById(anyInt());
+    }
+
+    @Test
+    void createRefusesSecondRecordForBranchAndProduct() {
+        when(inventoryRepository.existsByBranchIdAndProductId(2, 5)).thenReturn(true);
+        InventoryDTO dto = new InventoryDTO();
+        dto.setBranchId(2);
+        dto.setProductId(5);
+        dto.setStockLevel(10);
+
+        GlobalException e = assertThrows(GlobalException.class, () -> inventoryService.createInventory(dto));
+
+        assertEquals("DUPLICATE_INVENTORY", ((GlobalException) e.getCause()).getErrorCode());
+        verify(inventoryRepository, never()).save(any(Inventory.class));
+    }
+
+    private static Inventory inventory(int stockLevel, int reservedQuantity) {
+        Product product = new Product();
+        product.setId(5);
+        Branch branch = new Branch();
+        branch.setId(2);
+        return Inventory.builder()
+                .id(7)
+                .product(product)
+                .branch(branch)
+                .stockLevel(stockLevel)
+                .reservedQuantity(reservedQuantity)
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package pharmacy.pharmacy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pharmacy.pharmacy.dao.OrderItemRepository;
+import pharmacy.pharmacy.dao.ProductRepository;
+import pharmacy.pharmacy.dto.product.ProductSuggestion;
+import pharmacy.pharmacy.event.ProductChangedEvent;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSuggestionIndexTest {
+
+    private ProductRepository productRepository;
+    private OrderItemRepository orderItemRepository;
+    private ProductSuggestionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        orderItemRepository = mock(OrderItemRepository.class);
+        when(orderItemRepository.sumQuantitySoldSince(any(), anyCollection())).thenReturn(List.of());
+        index = new ProductSuggestionIndex(productRepository, orderItemRepository, 10, 30);
+    }
+
+    @Test
+    void rebuildIndexesProductsBySales() {
+        when(orderItemRepository.sumQuantitySoldSince(any(), anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{2, 5L}));
+        when(productRepository.findAllSuggestions())
+                .thenReturn(List.of(product(1, "Panadol Extra"), product(2, "Panadol Night")));
+
+        index.rebuild();
+
+        assertEquals(List.of(2, 1), ids(index.suggest("pan", 10)));
+        assertEquals(List.of(1), ids(index.suggest("extra", 10)));
+    }
+
+    @Test
+    void renameDuringRebuildSurvivesTheSwap() {
+        when(productRepository.findAllSuggestions()).thenReturn(List.of(product(1, "Panadol")));
+        index.rebuild();
+        // The rebuild reads the old name; the rename commits and is applied before the rebuild swaps in
+        when(productRepository.findSuggestionById(1)).thenReturn(Optional.of(product(1, "Brufen")));
+        when(productRepository.findAllSuggestions()).thenAnswer(invocation -> {
+            index.onProductChanged(changed(ProductChangedEvent.ChangeType.UPDATED, 1));
+            return List.of(product(1, "Panadol"));
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of(1), ids(index.suggest("bru", 10)));
+        assertTrue(index.suggest("pan", 10).isEmpty());
+    }
+
+    @Test
+    void deleteDuringRebuildSurvivesTheSwap() {
+        when(productRepository.findAllSuggestions()).thenReturn(List.of(product(1, "Panadol")));
+        index.rebuild();
+        when(productRepository.findAllSuggestions()).thenAnswer(invocation -> {
+            index.onProductChanged(changed(ProductChangedEvent.ChangeType.DELETED, 1));
+            return List.of(product(1, "Panadol"));
+        });
+
+        index.rebuild();
+
+        assertTrue(index.suggest("pan", 10).isEmpty());
+    }
+
+    @Test
+    void createDuringRebuildSurvivesTheSwap() {
+        when(productRepository.findSuggestionById(3)).thenReturn(Optional.of(product(3, "Cetirizine")));
+        when(productRepository.findAllSuggestions()).thenAnswer(invocation -> {
+            index.onProductChanged(changed(ProductChangedEvent.ChangeType.CREATED, 3));
+            return List.of(product(1, "Panadol"));
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of(3), ids(index.suggest("cet", 10)));
+        assertEquals(List.of(1), ids(index.suggest("pan", 10)));
+    }
+
+    @Test
+    void writesAfterRebuildApplyInPlace() {
+        when(productRepository.findAllSuggestions()).thenReturn(List.of(product(1, "Panadol")));
+        index.rebuild();
+        when(productRepository.findSuggestionById(1)).thenReturn(Optional.of(product(1, "Brufen")));
+
+        index.onProductChanged(changed(ProductChangedEvent.ChangeType.UPDATED, 1));
+
+        assertEquals(List.of(1), ids(index.suggest("bru", 10)));
+        assertTrue(index.suggest("pan", 10).isEmpty());
+    }
+
+    private static ProductSuggestion product(int id, String name) {
+        return new ProductSuggestion(id, name, null, BigDecimal.ONE, null);
+    }
+
+    private static ProductChangedEvent changed(ProductChangedEvent.ChangeType type, int productId) {
+        return new ProductChangedEvent(type, productId, null, null);
+    }
+
+    private static List<Integer> ids(List<ProductSuggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggestion::getId).toList();
+    }
+}
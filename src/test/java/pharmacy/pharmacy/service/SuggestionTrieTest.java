@@ -0,0 +1,141 @@
+package pharmacy.pharmacy.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class SuggestionTrieTest {
+
+    // Lower id ranks higher
+    private static final Comparator<Integer> BY_ID = Comparator.naturalOrder();
+
+    @Test
+    void lookupReturnsBestRankedIdsUnderPrefix() {
+        SuggestionTrie trie = new SuggestionTrie(10, BY_ID);
+        trie.insert("paracetamol", 3);
+        trie.insert("panadol", 1);
+        trie.insert("ibuprofen", 2);
+
+        assertArrayEquals(new int[]{1, 3}, trie.lookup("pa", 10));
+        assertArrayEquals(new int[]{1, 2, 3}, trie.lookup("", 10));
+        assertArrayEquals(new int[]{1}, trie.lookup("pa", 1));
+    }
+
+    @Test
+    void insertSplitsSharedEdge() {
+        SuggestionTrie trie = new SuggestionTrie(10, BY_ID);
+        trie.insert("paracetamol", 1);
+        trie.insert("paralen", 2);
+
+        assertArrayEquals(new int[]{1, 2}, trie.lookup("para", 10));
+        assertArrayEquals(new int[]{1}, trie.lookup("parac", 10));
+        assertArrayEquals(new int[]{2}, trie.lookup("paral", 10));
+        assertArrayEquals(new int[]{}, trie.lookup("parax", 10));
+    }
+
+    @Test
+    void insertOfPrefixOfExistingKeySplitsEdgeAtKeyEnd() {
+        SuggestionTrie trie = new SuggestionTrie(10, BY_ID);
+        trie.insert("aspirin", 2);
+        trie.insert("asp", 1);
+
+        assertArrayEquals(new int[]{1, 2}, trie.lookup("as", 10));
+        assertArrayEquals(new int[]{1, 2}, trie.lookup("asp", 10));
+        assertArrayEquals(new int[]{2}, trie.lookup("aspi", 10));
+    }
+
+    @Test
+    void lookupEndingInsideEdgeMatchesWholeEdge() {
+        SuggestionTrie trie = new SuggestionTrie(10, BY_ID);
+        trie.insert("ibuprofen", 1);
+
+        assertArrayEquals(new int[]{1}, trie.lookup("ibu", 10));
+        assertArrayEquals(new int[]{1}, trie.lookup("ibuprofen", 10));
+        assertArrayEquals(new int[]{}, trie.lookup("ibx", 10));
+        assertArrayEquals(new int[]{}, trie.lookup("ibuprofens", 10));
+    }
+
+    @Test
+    void removeFoldsPassThroughNodeIntoOnlyChild() {
+        SuggestionTrie trie = new SuggestionTrie(10, BY_ID);
+        trie.insert("paracetamol", 1);
+        trie.insert("paralen", 2);
+
+        trie.remove("paralen", 2);
+
+        assertArrayEquals(new int[]{1}, trie.lookup("para", 10));
+        assertArrayEquals(new int[]{1}, trie.lookup("parac", 10));
+        assertArrayEquals(new int[]{}, trie.lookup("paral", 10));
+
+        // The folded edge must still split correctly
+        trie.insert("paramol", 3);
+        assertArrayEquals(new int[]{1, 3}, trie.lookup("para", 10));
+        assertArrayEquals(new int[]{3}, trie.lookup("param", 10));
+    }
+
+    @Test
+    void removeFoldsParentLeftWithOneChildAfterLeafIsDropped() {
+        SuggestionTrie trie = new SuggestionTrie(10, BY_ID);
+        trie.insert("abcd", 1);
+        trie.insert("abce", 2);
+        trie.insert("abx", 3);
+
+        trie.remove("abx", 3);
+        trie.remove("abce", 2);
+
+        assertArrayEquals(new int[]{1}, trie.lookup("ab", 10));
+        assertArrayEquals(new int[]{1}, trie.lookup("abcd", 10));
+        assertArrayEquals(new int[]{}, trie.lookup("abx", 10));
+        assertArrayEquals(new int[]{}, trie.lookup("abce", 10));
+    }
+
+    @Test
+    void removeKeepsOtherIdsOnSameKey() {
+        SuggestionTrie trie = new SuggestionTrie(10, BY_ID);
+        trie.insert("aspirin", 1);
+        trie.insert("aspirin", 2);
+
+        trie.remove("aspirin", 1);
+
+        assertArrayEquals(new int[]{2}, trie.lookup("asp", 10));
+    }
+
+    @Test
+    void removeOfUnknownKeyOrIdChangesNothing() {
+        SuggestionTrie trie = new SuggestionTrie(10, BY_ID);
+        trie.insert("aspirin", 1);
+
+        trie.remove("aspirin", 2);
+        trie.remove("asp", 1);
+        trie.remove("codeine", 1);
+
+        assertArrayEquals(new int[]{1}, trie.lookup("a", 10));
+    }
+
+    @Test
+    void topKIsCappedAndRefilledAfterRemoval() {
+        SuggestionTrie trie = new SuggestionTrie(2, BY_ID);
+        trie.insert("ab", 1);
+        trie.insert("ac", 2);
+        trie.insert("ad", 3);
+
+        assertArrayEquals(new int[]{1, 2}, trie.lookup("a", 10));
+
+        trie.remove("ab", 1);
+
+        assertArrayEquals(new int[]{2, 3}, trie.lookup("a", 10));
+        assertArrayEquals(new int[]{2, 3}, trie.lookup("", 10));
+    }
+
+    @Test
+    void topKFollowsRankingNotInsertionOrder() {
+        SuggestionTrie trie = new SuggestionTrie(2, BY_ID);
+        trie.insert("ad", 3);
+        trie.insert("ac", 2);
+        trie.insert("ab", 1);
+
+        assertArrayEquals(new int[]{1, 2}, trie.lookup("a", 10));
+    }
+}
@@ -0,0 +1,197 @@
+package pharmacy.pharmacy.service.reservation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import pharmacy.pharmacy.dao.InventoryRepository;
+import pharmacy.pharmacy.dao.StockReservationRepository;
+import pharmacy.pharmacy.dto.OrderItemDTO;
+import pharmacy.pharmacy.entity.StockReservation;
+import pharmacy.pharmacy.event.InventoryChangedEvent;
+import pharmacy.pharmacy.exception.GlobalException;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReservationServiceTest {
+
+    private static final String CART = "cart-1";
+
+    private StockReservationRepository reservationRepository;
+    private InventoryRepository inventoryRepository;
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private ReservationService reservationService;
+
+    // Argument rows of the last commit batch, in execution order
+    private final List<Object[]> committed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        reservationRepository = mock(StockReservationRepository.class);
+        inventoryRepository = mock(InventoryRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+        reservationService = new ReservationService(reservationRepository, inventoryRepository, jdbcTemplate,
+                transactionTemplate, eventPublisher, 15, 2);
+    }
+
+    @Test
+    void commitUsesHeldQuantityFirst() {
+        List<StockReservation> holds = List.of(hold(1, 10, 2));
+        when(reservationRepository.findByHolderIdForUpdate(CART)).thenReturn(holds);
+        commitBatchReturns(1);
+
+        reservationService.commit(CART, 1, List.of(item(10, 3)));
+
+        assertEquals(1, committed.size());
+        // quantity, held, (timestamp), branch, product, held, held, quantity
+        Object[] row = committed.get(0);
+        assertArrayEquals(new Object[]{3, 2}, new Object[]{row[0], row[1]});
+        assertArrayEquals(new Object[]{1, 10, 2, 2, 3}, new Object[]{row[3], row[4], row[5], row[6], row[7]});
+        verify(inventoryRepository, never()).releaseStock(anyInt(), anyInt(), anyInt());
+        verify(reservationRepository).deleteAllInBatch(holds);
+        verify(eventPublisher).publishEvent(any(InventoryChangedEvent.class));
+    }
+
+    @Test
+    void commitLocksInventoryInProductOrderAndMergesLines() {
+        when(reservationRepository.findByHolderIdForUpdate(CART)).thenReturn(List.of());
+        commitBatchReturns(1, 1);
+
+        reservationService.commit(CART, 1, List.of(item(30, 1), item(10, 2), item(30, 4)));
+
+        assertEquals(2, committed.size());
+        assertArrayEquals(new Object[]{2, 10}, new Object[]{committed.get(0)[0], committed.get(0)[4]});
+        assertArrayEquals(new Object[]{5, 30}, new Object[]{committed.get(1)[0], committed.get(1)[4]});
+    }
+
+    @Test
+    void commitReleasesHoldsNotInTheOrder() {
+        List<StockReservation> holds = List.of(hold(1, 10, 2), hold(1, 20, 4), hold(2, 30, 1));
+        when(reservationRepository.findByHolderIdForUpdate(CART)).thenReturn(holds);
+        commitBatchReturns(1);
+
+        reservationService.commit(CART, 1, List.of(item(10, 2)));
+
+        // Dropped from the order, and held at another branch than the one checked out at
+        verify(inventoryRepository).releaseStock(1, 20, 4);
+        verify(inventoryRepository).releaseStock(2, 30, 1);
+        verify(reservationRepository).deleteAllInBatch(holds);
+    }
+
+    @Test
+    void commitWithoutHolderSellsFreeStockOnly() {
+        commitBatchReturns(1);
+
+        reservationService.commit(null, 1, List.of(item(10, 3)));
+
+        verify(reservationRepository, never()).findByHolderIdForUpdate(anyString());
+        Object[] row = committed.get(0);
+        assertArrayEquals(new Object[]{3, 0, 0, 0, 3}, new Object[]{row[0], row[1], row[5], row[6], row[7]});
+    }
+
+    @Test
+    void commitRefusesWhenStockIsShort() {
+        when(reservationRepository.findByHolderIdForUpdate(CART)).thenReturn(List.of(hold(1, 10, 2)));
+        commitBatchReturns(0);
+        when(inventoryRepository.existsByBranchIdAndProductId(1, 10)).thenReturn(true);
+
+        GlobalException e = assertThrows(GlobalException.class,
+                () -> reservationService.commit(CART, 1, List.of(item(10, 5))));
+
+        assertEquals("OUT_OF_STOCK", e.getErrorCode());
+        verify(reservationRepository, never()).deleteAllInBatch(anyList());
+    }
+
+    @Test
+    void commitSellsUntrackedProducts() {
+        when(reservationRepository.findByHolderIdForUpdate(CART)).thenReturn(List.of());
+        commitBatchReturns(0);
+        when(inventoryRepository.existsByBranchIdAndProductId(1, 10)).thenReturn(false);
+
+        reservationService.commit(CART, 1, List.of(item(10, 5)));
+
+        verify(reservationRepository).deleteAllInBatch(List.of());
+    }
+
+    @Test
+    void sweepReleasesExpiredHoldsOncePerBranchAndProduct() {
+        List<StockReservation> expired = List.of(hold(1, 10, 2), hold(1, 10, 3));
+        when(reservationRepository.findExpiredForUpdate(any(Date.class), any(Pageable.class)))
+                .thenReturn(expired, List.of());
+
+        reservationService.releaseExpiredHolds();
+
+        verify(inventoryRepository).releaseStock(1, 10, 5);
+        verify(reservationRepository).deleteAllInBatch(expired);
+        verify(eventPublisher).publishEvent(any(InventoryChangedEvent.class));
+    }
+
+    @Test
+    void sweepRunsUntilABatchComesBackShort() {
+        List<StockReservation> full = List.of(hold(1, 10, 1), hold(2, 10, 1));
+        List<StockReservation> shortBatch = List.of(hold(1, 20, 1));
+        when(reservationRepository.findExpiredForUpdate(any(Date.class), any(Pageable.class)))
+                .thenReturn(full, shortBatch);
+
+        reservationService.releaseExpiredHolds();
+
+        verify(reservationRepository, times(2)).findExpiredForUpdate(any(Date.class), any(Pageable.class));
+        verify(inventoryRepository).releaseStock(1, 10, 1);
+        verify(inventoryRepository).releaseStock(2, 10, 1);
+        verify(inventoryRepository).releaseStock(1, 20, 1);
+        verify(reservationRepository).deleteAllInBatch(shortBatch);
+    }
+
+    @Test
+    void sweepWithNothingExpiredReleasesNothing() {
+        when(reservationRepository.findExpiredForUpdate(any(Date.class), any(Pageable.class))).thenReturn(List.of());
+
+        reservationService.releaseExpiredHolds();
+
+        verify(inventoryRepository, never()).releaseStock(anyInt(), anyInt(), anyInt());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void commitBatchReturns(int... updated) {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            committed.clear();
+            committed.addAll(invocation.getArgument(1, List.class));
+            return updated;
+        });
+    }
+
+    private static StockReservation hold(int branchId, int productId, int quantity) {
+        return new StockReservation(null, CART, branchId, productId, quantity, new Date(), null);
+    }
+
+    private static OrderItemDTO item(int productId, int quantity) {
+        OrderItemDTO item = new OrderItemDTO();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+}